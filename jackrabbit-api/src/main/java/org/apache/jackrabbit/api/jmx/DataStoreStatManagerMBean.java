@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.api.jmx;
+
+import javax.management.openmbean.TabularData;
+
+import org.apache.jackrabbit.api.stats.DataStoreStat;
+
+/**
+ * JMX Bindings for {@link DataStoreStat}.
+ * 
+ */
+public interface DataStoreStatManagerMBean {
+
+    String NAME = "org.apache.jackrabbit:type=DataStoreStats";
+
+    /**
+     * @return a sorted array containing the top
+     *         {@link #getHotBinariesQueueSize()} most frequently read binaries
+     */
+    TabularData getHotBinaries();
+
+    /**
+     * @return size of the <b>Hot</b> queue
+     */
+    int getHotBinariesQueueSize();
+
+    /**
+     * Change the size of the <b>Hot</b> queue
+     * 
+     * @param size
+     *            the new size
+     */
+    void setHotBinariesQueueSize(int size);
+
+    /**
+     * clears the <b>Hot</b> queue
+     */
+    void clearHotBinariesQueue();
+
+    /**
+     * @return the sample rate of the <b>Hot</b> queue
+     */
+    int getSampleRate();
+
+    /**
+     * Change the sample rate of the <b>Hot</b> queue
+     * 
+     * @param rate
+     *            record one out of <code>rate</code> reads
+     */
+    void setSampleRate(int rate);
+
+    /**
+     * @return <code>true</code> if the <b>Hot</b> queue is being recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * starts recording the <b>Hot</b> queue
+     */
+    void enable();
+
+    /**
+     * stops recording the <b>Hot</b> queue
+     */
+    void disable();
+
+    /**
+     * clears all data
+     */
+    void reset();
+
+}
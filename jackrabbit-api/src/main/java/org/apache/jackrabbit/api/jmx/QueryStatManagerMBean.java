@@ -76,4 +76,14 @@ public interface QueryStatManagerMBean {
      */
     void clearPopularQueriesQueue();
 
+    /**
+     * @return number of queries served from the query plan cache
+     */
+    long getPlanCacheHitCount();
+
+    /**
+     * @return number of queries that were not found in the query plan cache
+     */
+    long getPlanCacheMissCount();
+
 }
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.api.stats;
+
+import java.io.Serializable;
+
+/**
+ * Object that holds statistical info about a binary in the data store.
+ * 
+ */
+public interface DataStoreStatDto extends Serializable {
+
+    String getIdentifier();
+
+    /**
+     * @return the estimated number of reads, that is the number of sampled
+     *         reads multiplied by the sample rate
+     */
+    long getReadCount();
+
+    long getLength();
+
+    String getLastAccessTime();
+
+    long getPosition();
+
+    void setPosition(long position);
+
+}
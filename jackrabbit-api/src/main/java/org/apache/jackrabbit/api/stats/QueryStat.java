@@ -70,6 +70,18 @@ public interface QueryStat {
      */
     void clearPopularQueriesQueue();
 
+    /**
+     * @return number of queries whose parsed query tree was taken from the
+     *         query plan cache
+     */
+    long getPlanCacheHitCount();
+
+    /**
+     * @return number of queries that had to be parsed because their
+     *         statement was not found in the query plan cache
+     */
+    long getPlanCacheMissCount();
+
     /** -- GENERAL OPS -- **/
 
     /**
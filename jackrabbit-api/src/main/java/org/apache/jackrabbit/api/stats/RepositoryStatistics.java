@@ -45,7 +45,19 @@ public interface RepositoryStatistics {
         SESSION_COUNT(false),
         QUERY_COUNT(true),
         QUERY_DURATION(true),
-        QUERY_AVERAGE(true);
+        QUERY_AVERAGE(true),
+        DATASTORE_READ_COUNTER(true),
+        DATASTORE_READ_BYTES(true),
+        DATASTORE_READ_DURATION(true),
+        DATASTORE_READ_AVERAGE(false),
+        DATASTORE_WRITE_COUNTER(true),
+        DATASTORE_WRITE_BYTES(true),
+        DATASTORE_WRITE_DURATION(true),
+        DATASTORE_WRITE_AVERAGE(false),
+        TERM_DOCS_CACHE_HIT_COUNTER(true),
+        TERM_DOCS_CACHE_EVICTION_COUNTER(true),
+        TERM_DOCS_CACHE_REJECT_COUNTER(true),
+        TERM_DOCS_CACHE_MEMORY_USED(false);
 
         private final boolean resetValueEachSecond;
 
@@ -61,6 +61,7 @@ import org.apache.jackrabbit.core.security.principal.PrincipalManagerImpl;
 import org.apache.jackrabbit.core.security.principal.PrincipalProvider;
 import org.apache.jackrabbit.core.security.principal.PrincipalProviderRegistry;
 import org.apache.jackrabbit.core.security.principal.ProviderRegistryImpl;
+import org.apache.jackrabbit.core.security.user.AuthorizableIndex;
 import org.apache.jackrabbit.core.security.user.MembershipCache;
 import org.apache.jackrabbit.core.security.user.UserManagerImpl;
 import org.apache.jackrabbit.core.security.user.action.AuthorizableAction;
@@ -452,6 +453,21 @@ public class DefaultSecurityManager implements JackrabbitSecurityManager {
         }
     }
 
+    /**
+     * @param session The session for which to retrieve the authorizable index.
+     * @return The authorizable index or <code>null</code> if the user manager
+     * of the given session owns the index or no index is used.
+     * @throws RepositoryException If an error occurs.
+     */
+    protected AuthorizableIndex getAuthorizableIndex(SessionImpl session) throws RepositoryException {
+        if (session == systemSession || session instanceof SystemSession) {
+            // the index is created within the corresponding uMgr
+            return null;
+        } else {
+            return ((UserManagerImpl) getSystemUserManager(session.getWorkspace().getName())).getAuthorizableIndex();
+        }
+    }
+
     /**
      * Creates a {@link UserManagerImpl} for the given session. May be overridden
      * to return a custom implementation.
@@ -483,6 +499,10 @@ public class DefaultSecurityManager implements JackrabbitSecurityManager {
         } else {
             um = new UserManagerImpl(session, adminId, params, getMembershipCache(session));
         }
+        AuthorizableIndex index = getAuthorizableIndex(session);
+        if (index != null) {
+            um.setAuthorizableIndex(index);
+        }
 
         if (umc != null && !(session instanceof SystemSession)) {
             AuthorizableAction[] actions = umc.getAuthorizableActions();
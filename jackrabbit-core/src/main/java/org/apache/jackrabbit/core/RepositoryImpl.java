@@ -72,6 +72,7 @@ import org.apache.jackrabbit.core.config.VersioningConfig;
 import org.apache.jackrabbit.core.config.WorkspaceConfig;
 import org.apache.jackrabbit.core.data.DataStore;
 import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.core.data.InstrumentedDataStore;
 import org.apache.jackrabbit.core.data.GarbageCollector;
 import org.apache.jackrabbit.core.fs.FileSystem;
 import org.apache.jackrabbit.core.fs.FileSystemException;
@@ -89,6 +90,7 @@ import org.apache.jackrabbit.core.observation.ObservationDispatcher;
 import org.apache.jackrabbit.core.persistence.IterablePersistenceManager;
 import org.apache.jackrabbit.core.persistence.PMContext;
 import org.apache.jackrabbit.core.persistence.PersistenceManager;
+import org.apache.jackrabbit.core.query.lucene.TermDocsCacheStatistics;
 import org.apache.jackrabbit.core.retention.RetentionRegistry;
 import org.apache.jackrabbit.core.retention.RetentionRegistryImpl;
 import org.apache.jackrabbit.core.security.JackrabbitSecurityManager;
@@ -278,9 +280,16 @@ public class RepositoryImpl extends AbstractRepository
 
             DataStore dataStore = repConfig.getDataStore();
             if (dataStore != null) {
-                context.setDataStore(dataStore);
+                context.setDataStore(new InstrumentedDataStore(
+                        dataStore, context.getRepositoryStatistics(),
+                        context.getStatManager().getDataStoreStat()));
             }
 
+            // record the statistics of the shared term docs caches
+            context.getExecutor().scheduleAtFixedRate(
+                    new TermDocsCacheStatistics(context.getRepositoryStatistics()),
+                    1, 1, TimeUnit.SECONDS);
+
             nodeIdFactory = new NodeIdFactory(repConfig.getHomeDir());
             nodeIdFactory.open();
             context.setNodeIdFactory(nodeIdFactory);
@@ -1422,7 +1431,13 @@ public class RepositoryImpl extends AbstractRepository
             }
             ipmList[i] = (IterablePersistenceManager) pm;
         }
-        return new GarbageCollector(context.getDataStore(), ipmList, sessions);
+        // the garbage collector works on the underlying data store,
+        // its scans should not show up in the access statistics
+        DataStore dataStore = context.getDataStore();
+        if (dataStore instanceof InstrumentedDataStore) {
+            dataStore = ((InstrumentedDataStore) dataStore).getDelegate();
+        }
+        return new GarbageCollector(dataStore, ipmList, sessions);
     }
 
     //-----------------------------------------------------------< Repository >
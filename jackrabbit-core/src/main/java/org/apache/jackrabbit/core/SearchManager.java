@@ -44,6 +44,8 @@ import org.apache.jackrabbit.core.query.QueryHandler;
 import org.apache.jackrabbit.core.query.QueryHandlerContext;
 import org.apache.jackrabbit.core.query.QueryHandlerFactory;
 import org.apache.jackrabbit.core.query.QueryObjectModelImpl;
+import org.apache.jackrabbit.core.query.QueryPlanCache;
+import org.apache.jackrabbit.core.query.lucene.SearchIndex;
 import org.apache.jackrabbit.core.session.SessionContext;
 import org.apache.jackrabbit.core.state.ItemStateException;
 import org.apache.jackrabbit.core.state.NodeState;
@@ -282,6 +284,20 @@ public class SearchManager implements SynchronousEventListener {
         return handler.getWeaklyReferringNodes(id);
     }
 
+    /**
+     * Returns the cache of parsed query statements of this workspace.
+     *
+     * @return the query plan cache or <code>null</code> if the query
+     *         handler does not cache parsed query statements.
+     */
+    public QueryPlanCache getQueryPlanCache() {
+        if (handler instanceof SearchIndex) {
+            return ((SearchIndex) handler).getQueryPlanCache();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Checks if the given event should be excluded based on the
      * {@link #excludePath} setting.
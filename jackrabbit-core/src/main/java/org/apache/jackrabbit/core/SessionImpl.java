@@ -188,6 +188,12 @@ public class SessionImpl extends AbstractSession
      */
     protected NamePathResolver namePathResolver;
 
+    /**
+     * Flag indicating whether session local namespace mappings have been
+     * set with {@link #setNamespacePrefix(String, String)}.
+     */
+    private volatile boolean namespacesRemapped = false;
+
     /**
      * The version manager for this session
      */
@@ -1023,10 +1029,22 @@ public class SessionImpl extends AbstractSession
     public void setNamespacePrefix(String prefix, String uri)
             throws NamespaceException, RepositoryException {
         super.setNamespacePrefix(prefix, uri);
+        namespacesRemapped = true;
         // Clear name and path caches
         namePathResolver = new DefaultNamePathResolver(this, true);
     }
 
+    /**
+     * Returns <code>true</code> if a namespace prefix has been remapped in
+     * this session. Otherwise names and paths are resolved exactly like
+     * with the global namespace registry.
+     *
+     * @return whether session local namespace mappings are in use.
+     */
+    public boolean hasNamespaceRemappings() {
+        return namespacesRemapped;
+    }
+
 
     //------------------------------------------------------< locking support >
     /**
@@ -26,6 +26,7 @@ import org.apache.jackrabbit.core.security.principal.PrincipalManagerImpl;
 import org.apache.jackrabbit.core.security.principal.PrincipalProvider;
 import org.apache.jackrabbit.core.security.principal.PrincipalProviderRegistry;
 import org.apache.jackrabbit.core.security.simple.SimpleWorkspaceAccessManager;
+import org.apache.jackrabbit.core.security.user.AuthorizableIndex;
 import org.apache.jackrabbit.core.security.user.MembershipCache;
 import org.apache.jackrabbit.core.security.user.UserPerWorkspaceUserManager;
 import org.apache.jackrabbit.core.security.user.UserManagerImpl;
@@ -236,6 +237,10 @@ public class UserPerWorkspaceSecurityManager extends DefaultSecurityManager {
         } else {
             umgr = new UserPerWorkspaceUserManager(session, adminId, params, getMembershipCache(session));
         }
+        AuthorizableIndex index = getAuthorizableIndex(session);
+        if (index != null) {
+            umgr.setAuthorizableIndex(index);
+        }
 
         if (umc != null && !(session instanceof SystemSession)) {
             AuthorizableAction[] actions = umc.getAuthorizableActions();
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache that never blocks readers. The entries are kept in a
+ * <code>ConcurrentHashMap</code>; instead of maintaining an access ordered
+ * list, every entry carries a reference flag that is set when the entry is
+ * read. Once the cache grows beyond its maximum size, one of the writing
+ * threads sweeps over the entries, evicting those that have not been read
+ * since the previous sweep and clearing the flag of the others (the CLOCK
+ * approximation of LRU).
+ * <p>
+ * Callers that compute a value outside of any lock may race with a
+ * concurrent invalidation. To avoid caching a stale value they read the
+ * {@link #getGeneration() generation} before computing the value and pass
+ * it to {@link #put(Object, Object, long)}, which drops the value if the
+ * cache was invalidated in the meantime.
+ */
+public class ClockCache<K, V> {
+
+    private static class E<V> {
+
+        private final V value;
+
+        private volatile boolean referenced;
+
+        public E(V value) {
+            this.value = value;
+        }
+
+    }
+
+    private final ConcurrentHashMap<K, E<V>> map;
+
+    private final int maxSize;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param initialSize the initial capacity.
+     * @param maxSize the maximum number of entries.
+     */
+    public ClockCache(int initialSize, int maxSize) {
+        this.map = new ConcurrentHashMap<K, E<V>>(Math.min(initialSize, maxSize));
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached value.
+     *
+     * @param key entry key
+     * @return entry value, or <code>null</code> if not found
+     */
+    public V get(K key) {
+        E<V> entry = map.get(key);
+        if (entry != null) {
+            if (!entry.referenced) {
+                // avoid writing to shared memory on every read
+                entry.referenced = true;
+            }
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the given entry to the cache.
+     *
+     * @param key entry key
+     * @param value entry value
+     */
+    public void put(K key, V value) {
+        if (map.put(key, new E<V>(value)) == null
+                && size.incrementAndGet() > maxSize) {
+            sweep(key);
+        }
+    }
+
+    /**
+     * Adds the given entry to the cache unless the cache was invalidated
+     * after the given generation was obtained.
+     *
+     * @param key entry key
+     * @param value entry value
+     * @param generation the generation read before computing the value
+     * @return <code>true</code> if the entry was added
+     */
+    public boolean put(K key, V value, long generation) {
+        if (this.generation.get() != generation) {
+            return false;
+        }
+        put(key, value);
+        if (this.generation.get() != generation) {
+            // invalidated concurrently, the value may be stale
+            remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the identified entry from the cache.
+     *
+     * @param key entry key
+     * @return the removed value, or <code>null</code>
+     */
+    public V remove(K key) {
+        generation.incrementAndGet();
+        E<V> entry = map.remove(key);
+        if (entry != null) {
+            size.decrementAndGet();
+            return entry.value;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the identified entries from the cache. Like {@link #clear()}
+     * this starts a new generation even if none of the keys is cached, so
+     * that values computed before the call are not added afterwards.
+     *
+     * @param keys entry keys
+     * @return the number of removed entries
+     */
+    public int removeAll(Collection<K> keys) {
+        generation.incrementAndGet();
+        int removed = 0;
+        for (K key : keys) {
+            if (map.remove(key) != null) {
+                size.decrementAndGet();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        for (Map.Entry<K, E<V>> entry : map.entrySet()) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Returns the generation of this cache. The generation changes whenever
+     * an entry is removed or the cache is cleared.
+     *
+     * @return the current generation.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns a snapshot of the cached values. Concurrent modifications may
+     * or may not be reflected.
+     *
+     * @return cached values
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<V>(size.get());
+        for (E<V> entry : map.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    /**
+     * Returns a snapshot of the cached entries. Concurrent modifications may
+     * or may not be reflected. Unlike {@link #get(Object)} this does not
+     * mark the entries as recently used.
+     *
+     * @return cached entries
+     */
+    public Map<K, V> entries() {
+        Map<K, V> entries = new HashMap<K, V>(size.get());
+        for (Map.Entry<K, E<V>> entry : map.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue().value);
+        }
+        return entries;
+    }
+
+    /**
+     * @return the number of cached entries.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the maximum number of entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Evicts entries until the cache is below its maximum size. Only one
+     * thread sweeps at a time, the others continue without waiting.
+     *
+     * @param added the key of the entry that was just added, which is kept
+     */
+    private void sweep(K added) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // evict a few more entries than necessary, so that the next
+            // sweep is not triggered right away
+            int target = maxSize - Math.max(1, maxSize / 16);
+            for (int pass = 0; pass < 2 && size.get() > target; pass++) {
+                Iterator<Map.Entry<K, E<V>>> it = map.entrySet().iterator();
+                while (it.hasNext() && size.get() > target) {
+                    Map.Entry<K, E<V>> entry = it.next();
+                    if (added.equals(entry.getKey())) {
+                        continue;
+                    } else if (entry.getValue().referenced && pass == 0) {
+                        entry.getValue().referenced = false;
+                    } else {
+                        evict(entry);
+                    }
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Removes the given entry unless it was replaced or removed concurrently.
+     */
+    private void evict(Map.Entry<K, E<V>> entry) {
+        if (map.remove(entry.getKey(), entry.getValue())) {
+            size.decrementAndGet();
+        }
+    }
+
+}
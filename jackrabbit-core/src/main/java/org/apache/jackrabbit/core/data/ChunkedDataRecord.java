@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.data;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Data record of the {@link ChunkedFileDataStore}. The record is backed by
+ * a manifest file that lists the chunks of the binary; the stream is
+ * reassembled from the chunks on the fly, opening one chunk at a time.
+ */
+public class ChunkedDataRecord extends AbstractDataRecord {
+
+    /**
+     * The data store that contains the chunks.
+     */
+    private final ChunkedFileDataStore store;
+
+    /**
+     * The manifest file.
+     */
+    private final File manifest;
+
+    /**
+     * The length of the binary, or -1 if the manifest was not read yet.
+     */
+    private long length = -1;
+
+    /**
+     * Creates a data record based on the given identifier and manifest file.
+     *
+     * @param store the data store that contains the chunks
+     * @param identifier data identifier
+     * @param manifest the manifest file
+     */
+    public ChunkedDataRecord(
+            ChunkedFileDataStore store, DataIdentifier identifier, File manifest) {
+        super(identifier);
+        this.store = store;
+        this.manifest = manifest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getLength() throws DataStoreException {
+        if (length < 0) {
+            length = ChunkedFileDataStore.readManifest(manifest, null);
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream getStream() throws DataStoreException {
+        List<DataIdentifier> chunks = new ArrayList<DataIdentifier>();
+        length = ChunkedFileDataStore.readManifest(manifest, chunks);
+        // chunk streams are lazy, files are only opened when read
+        Vector<InputStream> streams = new Vector<InputStream>(chunks.size());
+        for (DataIdentifier chunk : chunks) {
+            streams.add(store.getChunkStream(chunk));
+        }
+        return new SequenceInputStream(streams.elements());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getLastModified() {
+        return manifest.lastModified();
+    }
+
+}
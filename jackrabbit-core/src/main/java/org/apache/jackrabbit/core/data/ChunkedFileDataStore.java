@@ -0,0 +1,679 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File based data store that splits binaries into content-defined chunks.
+ * Each chunk is stored only once (in a nested {@link FileDataStore}), and a
+ * data record is represented by a small manifest file that lists the chunks
+ * of the binary. Binaries that share large parts of their content (for
+ * example multiple renditions of the same asset, or a file with a modified
+ * header) therefore share most of their chunks.
+ * <p>
+ * Chunk boundaries are found using a rolling "gear" hash over the content,
+ * so that an insertion or modification only affects the chunks around the
+ * modified region. The identifier of a record is the SHA-1 digest of the
+ * whole binary, the same as used by the {@link FileDataStore}.
+ *
+ * Configuration:
+ * <pre>
+ * &lt;DataStore class="org.apache.jackrabbit.core.data.ChunkedFileDataStore">
+ *     &lt;param name="{@link #setPath(String) path}" value="/data/datastore"/>
+ *     &lt;param name="{@link #setMinRecordLength(int) minRecordLength}" value="1024"/>
+ *     &lt;param name="{@link #setAverageChunkSize(int) averageChunkSize}" value="65536"/>
+ *     &lt;param name="{@link #setMinChunkSize(int) minChunkSize}" value="16384"/>
+ *     &lt;param name="{@link #setMaxChunkSize(int) maxChunkSize}" value="262144"/>
+ * &lt/DataStore>
+ * </pre>
+ * <p>
+ * If the directory is not set, the directory &lt;repository home&gt;/repository/datastore is used.
+ * Manifests are kept in the <code>manifests</code> and chunks in the
+ * <code>chunks</code> subdirectory.
+ * <p>
+ * Garbage collection is aware of shared chunks: a chunk is only deleted if
+ * no remaining manifest references it.
+ */
+public class ChunkedFileDataStore implements DataStore {
+
+    /**
+     * Logger instance
+     */
+    private static Logger log = LoggerFactory.getLogger(ChunkedFileDataStore.class);
+
+    /**
+     * The digest algorithm used to uniquely identify records.
+     */
+    private static final String DIGEST = "SHA-1";
+
+    /**
+     * The default value for the minimum object size.
+     */
+    private static final int DEFAULT_MIN_RECORD_LENGTH = 100;
+
+    /**
+     * The default average chunk size.
+     */
+    private static final int DEFAULT_AVERAGE_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The default minimum chunk size.
+     */
+    private static final int DEFAULT_MIN_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * The default maximum chunk size.
+     */
+    private static final int DEFAULT_MAX_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * The maximum last modified time resolution of the file system.
+     */
+    private static final int ACCESS_TIME_RESOLUTION = 2000;
+
+    /**
+     * Name of the directory used for temporary files.
+     * Must be at least 3 characters.
+     */
+    private static final String TMP = "tmp";
+
+    /**
+     * Magic number at the start of each manifest file.
+     */
+    private static final int MANIFEST_MAGIC = 0x4a52434d;
+
+    /**
+     * Random values used by the rolling hash, one per byte value. The seed
+     * is fixed so that chunk boundaries are stable across restarts.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * The minimum modified date. If a manifest is accessed with a modified date
+     * older than this value, the modified date is updated to the current time.
+     */
+    private long minModifiedDate;
+
+    /**
+     * The directory that contains the manifest files.
+     */
+    private File manifestDirectory;
+
+    /**
+     * The name of the root directory of this data store.
+     */
+    private String path;
+
+    /**
+     * The data store that holds the distinct chunks.
+     */
+    private final FileDataStore chunkStore = new FileDataStore();
+
+    /**
+     * The minimum size of an object that should be stored in this data store.
+     */
+    private int minRecordLength = DEFAULT_MIN_RECORD_LENGTH;
+
+    /**
+     * The average chunk size; must be a power of two.
+     */
+    private int averageChunkSize = DEFAULT_AVERAGE_CHUNK_SIZE;
+
+    /**
+     * The minimum chunk size (except for the last chunk of a binary).
+     */
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
+    /**
+     * The maximum chunk size.
+     */
+    private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+
+    /**
+     * The bit mask that is applied to the rolling hash to detect a chunk boundary.
+     */
+    private long boundaryMask;
+
+    /**
+     * All data identifiers that are currently in use are in this set until they are garbage collected.
+     */
+    protected Map<DataIdentifier, WeakReference<DataIdentifier>> inUse =
+        Collections.synchronizedMap(new WeakHashMap<DataIdentifier, WeakReference<DataIdentifier>>());
+
+    /**
+     * Initialized the data store.
+     * If the path is not set, &lt;repository home&gt;/repository/datastore is used.
+     * This directory is automatically created if it does not yet exist.
+     *
+     * @param homeDir the home directory of the repository
+     * @throws DataStoreException if the chunk size settings are invalid
+     */
+    public void init(String homeDir) throws DataStoreException {
+        if (Integer.bitCount(averageChunkSize) != 1) {
+            throw new DataStoreException(
+                    "averageChunkSize must be a power of two: " + averageChunkSize);
+        }
+        if (minChunkSize <= 0 || minChunkSize > averageChunkSize
+                || maxChunkSize < averageChunkSize) {
+            throw new DataStoreException("Invalid chunk sizes: min=" + minChunkSize
+                    + " average=" + averageChunkSize + " max=" + maxChunkSize);
+        }
+        if (path == null) {
+            path = homeDir + "/repository/datastore";
+        }
+        File directory = new File(path);
+        manifestDirectory = new File(directory, "manifests");
+        manifestDirectory.mkdirs();
+        chunkStore.setPath(new File(directory, "chunks").getPath());
+        chunkStore.setMinRecordLength(0);
+        chunkStore.init(homeDir);
+        // use the high bits of the hash, which depend on the last 64 bytes
+        int bits = Integer.numberOfTrailingZeros(averageChunkSize);
+        boundaryMask = bits == 0 ? 0 : (-1L) << (64 - bits);
+    }
+
+    public DataRecord getRecordIfStored(DataIdentifier identifier) throws DataStoreException {
+        return getRecord(identifier, true);
+    }
+
+    public DataRecord getRecord(DataIdentifier identifier) throws DataStoreException {
+        return getRecord(identifier, false);
+    }
+
+    /**
+     * Get a data record for the given identifier.
+     * This method only checks if the manifest exists if the verify flag is set.
+     * If the verify flag is set and the manifest doesn't exist, the method returns null.
+     *
+     * @param identifier the identifier
+     * @param verify whether to check if the manifest exists
+     * @return the data record or null
+     */
+    private DataRecord getRecord(DataIdentifier identifier, boolean verify) throws DataStoreException {
+        File file = getManifestFile(identifier);
+        synchronized (this) {
+            if (verify && !file.exists()) {
+                return null;
+            }
+            if (minModifiedDate != 0) {
+                // only check when running garbage collection
+                if (getLastModified(file) < minModifiedDate) {
+                    setLastModified(file, System.currentTimeMillis() + ACCESS_TIME_RESOLUTION);
+                }
+                // mark the chunks as well, they may be shared with
+                // records that are no longer in use
+                touchChunks(file);
+            }
+            usesIdentifier(identifier);
+            return new ChunkedDataRecord(this, identifier, file);
+        }
+    }
+
+    private void usesIdentifier(DataIdentifier identifier) {
+        inUse.put(identifier, new WeakReference<DataIdentifier>(identifier));
+    }
+
+    /**
+     * Creates a new data record.
+     * The stream is split into content-defined chunks while the SHA-1
+     * message digest of the whole stream is calculated. Each chunk is
+     * added to the chunk store (where identical chunks are stored only
+     * once), and a manifest listing the chunks is written. If a manifest
+     * with the same digest already exists, it is returned instead.
+     *
+     * @param input binary stream
+     * @return data record that contains the given stream
+     * @throws DataStoreException if the record could not be created
+     */
+    public DataRecord addRecord(InputStream input) throws DataStoreException {
+        File temporary = null;
+        // keep references to the chunk identifiers, so that they
+        // are not garbage collected before the manifest is written
+        List<DataIdentifier> chunks = new ArrayList<DataIdentifier>();
+        try {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST);
+            long length = 0;
+            byte[] buffer = new byte[maxChunkSize];
+            // the boundary detection reads single bytes
+            InputStream in = new BufferedInputStream(input);
+            while (true) {
+                int len = readChunk(in, buffer);
+                if (len <= 0) {
+                    break;
+                }
+                digest.update(buffer, 0, len);
+                length += len;
+                DataRecord chunk = chunkStore.addRecord(
+                        new ByteArrayInputStream(buffer, 0, len));
+                chunks.add(chunk.getIdentifier());
+            }
+            DataIdentifier identifier = new DataIdentifier(digest.digest());
+            temporary = File.createTempFile(TMP, null, manifestDirectory);
+            writeManifest(temporary, length, chunks);
+
+            File file;
+            synchronized (this) {
+                usesIdentifier(identifier);
+                file = getManifestFile(identifier);
+                if (!file.exists()) {
+                    file.getParentFile().mkdirs();
+                    if (temporary.renameTo(file)) {
+                        // no longer need to delete the temporary file
+                        temporary = null;
+                    } else {
+                        throw new IOException(
+                                "Can not rename " + temporary.getAbsolutePath()
+                                + " to " + file.getAbsolutePath()
+                                + " (media read only?)");
+                    }
+                } else {
+                    long now = System.currentTimeMillis();
+                    if (getLastModified(file) < now + ACCESS_TIME_RESOLUTION) {
+                        setLastModified(file, now + ACCESS_TIME_RESOLUTION);
+                    }
+                }
+            }
+            return new ChunkedDataRecord(this, identifier, file);
+        } catch (NoSuchAlgorithmException e) {
+            throw new DataStoreException(DIGEST + " not available", e);
+        } catch (IOException e) {
+            throw new DataStoreException("Could not add record", e);
+        } finally {
+            if (temporary != null) {
+                temporary.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the next chunk of the given stream into the buffer. A chunk ends
+     * where the rolling hash of the content matches the boundary mask, but
+     * is never shorter than the minimum or longer than the maximum chunk size.
+     *
+     * @param in the input stream
+     * @param buffer the buffer, at least as large as the maximum chunk size
+     * @return the length of the chunk, or 0 at the end of the stream
+     * @throws IOException if reading from the stream fails
+     */
+    int readChunk(InputStream in, byte[] buffer) throws IOException {
+        // fill at least the minimum chunk size
+        int len = 0;
+        while (len < minChunkSize) {
+            int l = in.read(buffer, len, minChunkSize - len);
+            if (l < 0) {
+                return len;
+            }
+            len += l;
+        }
+        long hash = 0;
+        while (len < maxChunkSize) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            buffer[len++] = (byte) b;
+            hash = (hash << 1) + GEAR[b];
+            if ((hash & boundaryMask) == 0) {
+                break;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Returns the manifest file of the given identifier. The same three
+     * level directory structure as in the {@link FileDataStore} is used.
+     *
+     * @param identifier data identifier
+     * @return the manifest file
+     */
+    private File getManifestFile(DataIdentifier identifier) {
+        usesIdentifier(identifier);
+        String string = identifier.toString();
+        File file = manifestDirectory;
+        file = new File(file, string.substring(0, 2));
+        file = new File(file, string.substring(2, 4));
+        file = new File(file, string.substring(4, 6));
+        return new File(file, string);
+    }
+
+    private static void writeManifest(File file, long length, List<DataIdentifier> chunks)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeLong(length);
+            out.writeInt(chunks.size());
+            for (DataIdentifier id : chunks) {
+                out.writeUTF(id.toString());
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the manifest file and adds the chunk identifiers to the given list.
+     *
+     * @param file the manifest file
+     * @param chunks the list to which the chunk identifiers are added
+     *              (may be null)
+     * @return the length of the binary
+     * @throws DataStoreException if the manifest could not be read
+     */
+    static long readManifest(File file, List<DataIdentifier> chunks)
+            throws DataStoreException {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MANIFEST_MAGIC) {
+                    throw new DataStoreException("Not a manifest: " + file.getAbsolutePath());
+                }
+                long length = in.readLong();
+                if (chunks != null) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        chunks.add(new DataIdentifier(in.readUTF()));
+                    }
+                }
+                return length;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new DataStoreException(
+                    "Could not read manifest " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Returns the stream of the given chunk.
+     *
+     * @param chunk chunk identifier
+     * @return the chunk content
+     * @throws DataStoreException if the chunk could not be accessed
+     */
+    InputStream getChunkStream(DataIdentifier chunk) throws DataStoreException {
+        DataRecord record = chunkStore.getRecordIfStored(chunk);
+        if (record == null) {
+            throw new DataStoreException("Missing chunk " + chunk);
+        }
+        return record.getStream();
+    }
+
+    /**
+     * Updates the modified date of all chunks of the given manifest, if
+     * the garbage collection is running.
+     *
+     * @param manifest the manifest file
+     */
+    private void touchChunks(File manifest) throws DataStoreException {
+        List<DataIdentifier> chunks = new ArrayList<DataIdentifier>();
+        readManifest(manifest, chunks);
+        for (DataIdentifier chunk : chunks) {
+            chunkStore.getRecordIfStored(chunk);
+        }
+    }
+
+    public void updateModifiedDateOnAccess(long before) {
+        minModifiedDate = before;
+        chunkStore.updateModifiedDateOnAccess(before);
+    }
+
+    /**
+     * Deletes the manifests that are older than the given date, and then
+     * all chunks that are no longer referenced by any remaining manifest.
+     *
+     * @param min the minimum time
+     * @return the number of data records (manifests) deleted
+     */
+    public int deleteAllOlderThan(long min) throws DataStoreException {
+        int count = deleteOlderRecursive(manifestDirectory, min);
+        // chunks of the remaining manifests must survive, even if they were
+        // not accessed during the mark phase (new records deduplicated
+        // against existing chunks update the date of those chunks as well,
+        // but better safe than sorry)
+        long before = minModifiedDate;
+        chunkStore.updateModifiedDateOnAccess(min);
+        try {
+            ArrayList<File> manifests = new ArrayList<File>();
+            listRecursive(manifests, manifestDirectory);
+            for (File f : manifests) {
+                if (!f.getName().startsWith(TMP) && f.exists()) {
+                    touchChunks(f);
+                }
+            }
+        } finally {
+            chunkStore.updateModifiedDateOnAccess(before);
+        }
+        int chunks = chunkStore.deleteAllOlderThan(min);
+        log.info("Deleted " + count + " manifests and " + chunks + " unreferenced chunks");
+        return count;
+    }
+
+    private int deleteOlderRecursive(File file, long min) {
+        int count = 0;
+        if (file.isFile() && file.exists() && file.canWrite()) {
+            synchronized (this) {
+                long lastModified;
+                try {
+                    lastModified = getLastModified(file);
+                } catch (DataStoreException e) {
+                    log.warn("Failed to read modification date; manifest not deleted", e);
+                    lastModified = min;
+                }
+                if (lastModified < min) {
+                    DataIdentifier id = new DataIdentifier(file.getName());
+                    if (!inUse.containsKey(id)) {
+                        if (log.isInfoEnabled()) {
+                            log.info("Deleting old manifest " + file.getAbsolutePath() +
+                                    " modified: " + new Timestamp(lastModified).toString());
+                        }
+                        if (!file.delete()) {
+                            log.warn("Failed to delete old manifest " + file.getAbsolutePath());
+                        }
+                        count++;
+                    }
+                }
+            }
+        } else if (file.isDirectory()) {
+            File[] list = file.listFiles();
+            if (list != null) {
+                for (File f: list) {
+                    count += deleteOlderRecursive(f, min);
+                }
+            }
+            synchronized (this) {
+                if (file != manifestDirectory) {
+                    list = file.listFiles();
+                    if (list != null && list.length == 0) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private void listRecursive(List<File> list, File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    listRecursive(list, f);
+                } else {
+                    list.add(f);
+                }
+            }
+        }
+    }
+
+    public Iterator<DataIdentifier> getAllIdentifiers() {
+        ArrayList<File> files = new ArrayList<File>();
+        listRecursive(files, manifestDirectory);
+        ArrayList<DataIdentifier> identifiers = new ArrayList<DataIdentifier>();
+        for (File f: files) {
+            String name = f.getName();
+            if (!name.startsWith(TMP)) {
+                identifiers.add(new DataIdentifier(name));
+            }
+        }
+        return identifiers.iterator();
+    }
+
+    /**
+     * Returns the number of distinct chunks in this data store.
+     *
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        int count = 0;
+        Iterator<DataIdentifier> it = chunkStore.getAllIdentifiers();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    public void clearInUse() {
+        inUse.clear();
+        chunkStore.clearInUse();
+    }
+
+    /**
+     * Get the name of the root directory of this data store.
+     *
+     * @return the full path name
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Set the name of the root directory of this data store.
+     *
+     * @param directoryName the path name
+     */
+    public void setPath(String directoryName) {
+        this.path = directoryName;
+    }
+
+    public int getMinRecordLength() {
+        return minRecordLength;
+    }
+
+    /**
+     * Set the minimum object length.
+     *
+     * @param minRecordLength the length
+     */
+    public void setMinRecordLength(int minRecordLength) {
+        this.minRecordLength = minRecordLength;
+    }
+
+    public int getAverageChunkSize() {
+        return averageChunkSize;
+    }
+
+    /**
+     * Set the average chunk size. Must be a power of two.
+     *
+     * @param averageChunkSize the size in bytes
+     */
+    public void setAverageChunkSize(int averageChunkSize) {
+        this.averageChunkSize = averageChunkSize;
+    }
+
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    /**
+     * Set the minimum chunk size.
+     *
+     * @param minChunkSize the size in bytes
+     */
+    public void setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = minChunkSize;
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Set the maximum chunk size.
+     *
+     * @param maxChunkSize the size in bytes
+     */
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public void close() {
+        chunkStore.close();
+    }
+
+    private static long getLastModified(File file) throws DataStoreException {
+        long lastModified = file.lastModified();
+        if (lastModified == 0) {
+            throw new DataStoreException("Failed to read manifest modified date: " + file.getAbsolutePath());
+        }
+        return lastModified;
+    }
+
+    private static void setLastModified(File file, long time) {
+        if (!file.setLastModified(time) && file.canWrite()) {
+            log.warn("Failed to set the modified date of " + file.getAbsolutePath());
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.data;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.RepositoryException;
+
+import org.apache.jackrabbit.api.stats.RepositoryStatistics.Type;
+import org.apache.jackrabbit.core.stats.DataStoreStatCore;
+import org.apache.jackrabbit.core.stats.RepositoryStatisticsImpl;
+
+/**
+ * A data store that records access statistics and delegates all operations
+ * to another data store. The number of records read and added, the number of
+ * bytes streamed and the time spent doing so are recorded in the
+ * {@link RepositoryStatisticsImpl repository statistics}. Reads are also
+ * passed to the {@link DataStoreStatCore} that keeps track of the most
+ * frequently read binaries.
+ * <p>
+ * The read duration only includes the time spent inside the
+ * <code>read</code> methods of the stream, so that slow consumers do not
+ * distort the numbers.
+ */
+public class InstrumentedDataStore implements DataStore {
+
+    /**
+     * The data store that does the actual work.
+     */
+    private final DataStore delegate;
+
+    private final DataStoreStatCore dataStoreStat;
+
+    private final AtomicLong readCounter;
+
+    private final AtomicLong readBytes;
+
+    private final AtomicLong readDuration;
+
+    private final AtomicLong writeCounter;
+
+    private final AtomicLong writeBytes;
+
+    private final AtomicLong writeDuration;
+
+    /**
+     * Creates an instrumented data store.
+     *
+     * @param delegate the (already initialized) data store to instrument
+     * @param statistics the repository statistics
+     * @param dataStoreStat the hot binaries statistics
+     */
+    public InstrumentedDataStore(
+            DataStore delegate, RepositoryStatisticsImpl statistics,
+            DataStoreStatCore dataStoreStat) {
+        this.delegate = delegate;
+        this.dataStoreStat = dataStoreStat;
+        readCounter = statistics.getCounter(Type.DATASTORE_READ_COUNTER);
+        readBytes = statistics.getCounter(Type.DATASTORE_READ_BYTES);
+        readDuration = statistics.getCounter(Type.DATASTORE_READ_DURATION);
+        writeCounter = statistics.getCounter(Type.DATASTORE_WRITE_COUNTER);
+        writeBytes = statistics.getCounter(Type.DATASTORE_WRITE_BYTES);
+        writeDuration = statistics.getCounter(Type.DATASTORE_WRITE_DURATION);
+    }
+
+    /**
+     * Returns the data store that does the actual work.
+     *
+     * @return the underlying data store
+     */
+    public DataStore getDelegate() {
+        return delegate;
+    }
+
+    public DataRecord getRecordIfStored(DataIdentifier identifier)
+            throws DataStoreException {
+        DataRecord record = delegate.getRecordIfStored(identifier);
+        if (record == null) {
+            return null;
+        }
+        return new InstrumentedDataRecord(record);
+    }
+
+    public DataRecord getRecord(DataIdentifier identifier)
+            throws DataStoreException {
+        return new InstrumentedDataRecord(delegate.getRecord(identifier));
+    }
+
+    public DataRecord addRecord(InputStream stream) throws DataStoreException {
+        long time = System.nanoTime();
+        DataRecord record = delegate.addRecord(stream);
+        writeDuration.addAndGet(System.nanoTime() - time);
+        writeCounter.incrementAndGet();
+        writeBytes.addAndGet(record.getLength());
+        return new InstrumentedDataRecord(record);
+    }
+
+    public void updateModifiedDateOnAccess(long before) {
+        delegate.updateModifiedDateOnAccess(before);
+    }
+
+    public int deleteAllOlderThan(long min) throws DataStoreException {
+        return delegate.deleteAllOlderThan(min);
+    }
+
+    public Iterator<DataIdentifier> getAllIdentifiers()
+            throws DataStoreException {
+        return delegate.getAllIdentifiers();
+    }
+
+    public void init(String homeDir) throws RepositoryException {
+        delegate.init(homeDir);
+    }
+
+    public int getMinRecordLength() {
+        return delegate.getMinRecordLength();
+    }
+
+    public void close() throws DataStoreException {
+        delegate.close();
+    }
+
+    public void clearInUse() {
+        delegate.clearInUse();
+    }
+
+    /**
+     * Data record whose streams are counted.
+     */
+    private class InstrumentedDataRecord extends AbstractDataRecord {
+
+        private final DataRecord record;
+
+        InstrumentedDataRecord(DataRecord record) {
+            super(record.getIdentifier());
+            this.record = record;
+        }
+
+        public long getLength() throws DataStoreException {
+            return record.getLength();
+        }
+
+        public InputStream getStream() throws DataStoreException {
+            readCounter.incrementAndGet();
+            // the length may require a database query, so it is only
+            // read for sampled reads
+            if (dataStoreStat.sampleRead()) {
+                dataStoreStat.logRead(
+                        getIdentifier().toString(), record.getLength());
+            }
+            return new InstrumentedInputStream(record.getStream());
+        }
+
+        public long getLastModified() {
+            return record.getLastModified();
+        }
+
+    }
+
+    /**
+     * Input stream that counts the bytes read and the time spent reading.
+     */
+    private class InstrumentedInputStream extends FilterInputStream {
+
+        InstrumentedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long time = System.nanoTime();
+            int b = in.read();
+            readDuration.addAndGet(System.nanoTime() - time);
+            if (b >= 0) {
+                readBytes.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long time = System.nanoTime();
+            int n = in.read(b, off, len);
+            readDuration.addAndGet(System.nanoTime() - time);
+            if (n > 0) {
+                readBytes.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return in.skip(n);
+        }
+
+    }
+
+}
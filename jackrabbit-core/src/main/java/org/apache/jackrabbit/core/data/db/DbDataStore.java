@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.core.data.db;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
 import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.data.DataRecord;
@@ -34,22 +35,36 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.jcr.RepositoryException;
 import javax.sql.DataSource;
@@ -71,6 +86,9 @@ import javax.sql.DataSource;
  *     &lt;param name="{@link #setTablePrefix(String) tablePrefix}" value=""/>
  *     &lt;param name="{@link #setSchemaObjectPrefix(String) schemaObjectPrefix}" value=""/>
  *     &lt;param name="{@link #setSchemaCheckEnabled(String) schemaCheckEnabled}" value="true"/>
+ *     &lt;param name="{@link #setAsyncUploadThreads(int) asyncUploadThreads}" value="0"/>
+ *     &lt;param name="{@link #setAsyncUploadQueueSize(int) asyncUploadQueueSize}" value="16"/>
+ *     &lt;param name="{@link #setPendingUploadPath(String) pendingUploadPath}" value=""/>
  * &lt/DataStore>
  * </pre>
  * <p>
@@ -96,6 +114,18 @@ import javax.sql.DataSource;
  * <p>
  * The tablePrefix can be used to specify a schema and / or catalog name:
  * &lt;param name="tablePrefix" value="ds.">
+ * <p>
+ * If asyncUploadThreads is set to a positive value, new records are first
+ * spooled to a local directory (while the message digest is calculated)
+ * and then inserted into the database by a pool of background threads.
+ * The caller does not hold a database connection while the binary is
+ * uploaded, and pending records are read from the local file until they are
+ * stored in the database. If more than asyncUploadQueueSize records are
+ * waiting, the caller inserts the record itself. Pending records that were
+ * not yet stored when the repository was stopped are uploaded at the next
+ * start. The directory for pending records defaults to
+ * &lt;repository home&gt;/repository/datastore-pending and should be
+ * on a local disk that is not shared between cluster nodes.
  */
 public class DbDataStore implements DataStore, DatabaseAware {
 
@@ -130,6 +160,11 @@ public class DbDataStore implements DataStore, DatabaseAware {
      */
     protected static final String TEMP_PREFIX = "TEMP_";
 
+    /**
+     * The default number of records that may be waiting for an asynchronous upload.
+     */
+    public static final int DEFAULT_ASYNC_UPLOAD_QUEUE_SIZE = 16;
+
     /**
      * Logger instance
      */
@@ -290,6 +325,38 @@ public class DbDataStore implements DataStore, DatabaseAware {
      */
     protected List<String> temporaryInUse = Collections.synchronizedList(new ArrayList<String>());
 
+    /**
+     * The number of threads that upload records asynchronously
+     * (0 to store records in the caller thread).
+     */
+    protected int asyncUploadThreads;
+
+    /**
+     * The maximum number of records waiting for an asynchronous upload.
+     */
+    protected int asyncUploadQueueSize = DEFAULT_ASYNC_UPLOAD_QUEUE_SIZE;
+
+    /**
+     * The directory name for records waiting for an asynchronous upload.
+     */
+    protected String pendingUploadPath;
+
+    /**
+     * The directory for records waiting for an asynchronous upload.
+     */
+    private File pendingDirectory;
+
+    /**
+     * The records waiting for an asynchronous upload, and their local files.
+     */
+    private final Map<DataIdentifier, File> pendingUploads =
+        new ConcurrentHashMap<DataIdentifier, File>();
+
+    /**
+     * The executor for asynchronous uploads, or null if disabled.
+     */
+    private volatile ThreadPoolExecutor uploadExecutor;
+
     /**
      * The {@link ConnectionHelper} set in the {@link #init(String)} method.
      * */
@@ -305,6 +372,24 @@ public class DbDataStore implements DataStore, DatabaseAware {
     }
 
     public DataRecord addRecord(InputStream stream) throws DataStoreException {
+        ThreadPoolExecutor executor = uploadExecutor;
+        if (executor != null) {
+            return addRecordAsync(stream, executor);
+        }
+        return addRecord(stream, -1);
+    }
+
+    /**
+     * Stores a record in the database.
+     *
+     * @param stream the binary stream
+     * @param knownLength the length of the stream if known (the stream is
+     *          then passed to the database directly), or -1
+     * @return the data record
+     * @throws DataStoreException if the record could not be stored
+     */
+    private DbDataRecord addRecord(InputStream stream, long knownLength)
+            throws DataStoreException {
         InputStream fileInput = null;
         String tempId = null;
         ResultSet rs = null;
@@ -340,7 +425,9 @@ public class DbDataStore implements DataStore, DatabaseAware {
             DigestInputStream dIn = new DigestInputStream(stream, digest);
             CountingInputStream in = new CountingInputStream(dIn);
             StreamWrapper wrapper;
-            if (STORE_SIZE_MINUS_ONE.equals(storeStream)) {
+            if (knownLength >= 0) {
+                wrapper = new StreamWrapper(in, knownLength);
+            } else if (STORE_SIZE_MINUS_ONE.equals(storeStream)) {
                 wrapper = new StreamWrapper(in, -1);
             } else if (STORE_SIZE_MAX.equals(storeStream)) {
                 wrapper = new StreamWrapper(in, Integer.MAX_VALUE);
@@ -423,6 +510,152 @@ public class DbDataStore implements DataStore, DatabaseAware {
         }
     }
 
+    /**
+     * Spools the stream to a local file and schedules the upload of the
+     * record. The returned record is read from the local file until the
+     * upload is complete.
+     *
+     * @param stream the binary stream
+     * @param executor the executor for the upload
+     * @return the data record
+     * @throws DataStoreException if the stream could not be spooled, or
+     *          the data store is closed
+     */
+    private DataRecord addRecordAsync(InputStream stream, ThreadPoolExecutor executor)
+            throws DataStoreException {
+        if (executor.isShutdown()) {
+            throw new DataStoreException("The data store is closed");
+        }
+        File temp = null;
+        try {
+            temp = File.createTempFile(TEMP_PREFIX, null, pendingDirectory);
+            MessageDigest digest = getDigest();
+            FileOutputStream fileOutput = new FileOutputStream(temp);
+            OutputStream out = new DigestOutputStream(fileOutput, digest);
+            long length;
+            try {
+                length = IOUtils.copyLarge(stream, out);
+                // the file must be on disk before it is renamed, as
+                // recovery trusts the file name
+                out.flush();
+                fileOutput.getFD().sync();
+            } finally {
+                out.close();
+            }
+            DataIdentifier identifier = new DataIdentifier(digest.digest());
+            usesIdentifier(identifier);
+            File file = new File(pendingDirectory, identifier.toString());
+            boolean schedule = false;
+            synchronized (pendingUploads) {
+                // the same record may already be waiting for its upload
+                if (!pendingUploads.containsKey(identifier)) {
+                    if (!temp.renameTo(file)) {
+                        throw new IOException("Can not rename " + temp.getAbsolutePath()
+                                + " to " + file.getAbsolutePath());
+                    }
+                    temp = null;
+                    pendingUploads.put(identifier, file);
+                    schedule = true;
+                }
+            }
+            if (schedule) {
+                try {
+                    // if the queue is full, the upload is run in this thread
+                    executor.execute(new PendingUpload(identifier, file));
+                } catch (RejectedExecutionException e) {
+                    // closed meanwhile, the record is not stored
+                    synchronized (pendingUploads) {
+                        if (pendingUploads.get(identifier) == file) {
+                            pendingUploads.remove(identifier);
+                            file.delete();
+                        }
+                    }
+                    throw new DataStoreException("The data store is closed", e);
+                }
+            }
+            return new DbDataRecord(this, identifier, length, System.currentTimeMillis());
+        } catch (Exception e) {
+            throw convert("Can not add pending record", e);
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Schedules the upload of all pending records that are left over from
+     * the last run, and removes incomplete temporary files.
+     */
+    private void recoverPendingUploads() {
+        File[] files = pendingDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(TEMP_PREFIX)) {
+                file.delete();
+            } else if (file.isFile()) {
+                DataIdentifier identifier = new DataIdentifier(file.getName());
+                log.info("Recovering pending upload of record " + identifier);
+                pendingUploads.put(identifier, file);
+                uploadExecutor.execute(new PendingUpload(identifier, file));
+            }
+        }
+    }
+
+    /**
+     * Get the number of records that are waiting for an asynchronous upload.
+     *
+     * @return the number of pending records
+     */
+    public int getPendingUploadCount() {
+        return pendingUploads.size();
+    }
+
+    /**
+     * Uploads a record from a local file to the database, and removes the
+     * file afterwards. If the upload fails, the file is kept and the
+     * upload is retried at the next start of the data store.
+     */
+    private class PendingUpload implements Runnable {
+
+        private final DataIdentifier identifier;
+
+        private final File file;
+
+        PendingUpload(DataIdentifier identifier, File file) {
+            this.identifier = identifier;
+            this.file = file;
+        }
+
+        public void run() {
+            try {
+                InputStream in = new BufferedInputStream(new FileInputStream(file));
+                try {
+                    DataRecord record = addRecord(in, file.length());
+                    if (!identifier.equals(record.getIdentifier())) {
+                        throw new DataStoreException("Pending record " + identifier
+                                + " was stored as " + record.getIdentifier());
+                    }
+                } finally {
+                    in.close();
+                }
+                synchronized (pendingUploads) {
+                    // the same content may have been spooled again meanwhile
+                    if (pendingUploads.get(identifier) == file) {
+                        pendingUploads.remove(identifier);
+                        file.delete();
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Could not upload pending record " + identifier
+                        + ", it is uploaded again at the next start", e);
+            }
+        }
+
+    }
+
     /**
      * Check if a row with this ID already exists.
      *
@@ -481,6 +714,9 @@ public class DbDataStore implements DataStore, DatabaseAware {
                 }
             }
             touch.addAll(temporaryInUse);
+            for (DataIdentifier identifier : pendingUploads.keySet()) {
+                touch.add(identifier.toString());
+            }
             for (String key : touch) {
                 updateLastModifiedDate(key, 0);
             }
@@ -504,6 +740,14 @@ public class DbDataStore implements DataStore, DatabaseAware {
                     list.add(identifier);
                 }
             }
+            if (!pendingUploads.isEmpty()) {
+                Set<DataIdentifier> stored = new HashSet<DataIdentifier>(list);
+                for (DataIdentifier identifier : pendingUploads.keySet()) {
+                    if (!stored.contains(identifier)) {
+                        list.add(identifier);
+                    }
+                }
+            }
             return list.iterator();
         } catch (Exception e) {
             throw convert("Can not read records", e);
@@ -528,6 +772,10 @@ public class DbDataStore implements DataStore, DatabaseAware {
 
     public DataRecord getRecordIfStored(DataIdentifier identifier) throws DataStoreException {
         usesIdentifier(identifier);
+        File pending = pendingUploads.get(identifier);
+        if (pending != null) {
+            return new DbDataRecord(this, identifier, pending.length(), pending.lastModified());
+        }
         ResultSet rs = null;
         try {
             String id = identifier.toString();
@@ -565,6 +813,14 @@ public class DbDataStore implements DataStore, DatabaseAware {
      *          or if the given identifier is invalid
      */
     InputStream openStream(DbInputStream inputStream, DataIdentifier identifier) throws DataStoreException {
+        File pending = pendingUploads.get(identifier);
+        if (pending != null) {
+            try {
+                return new BufferedInputStream(new FileInputStream(pending));
+            } catch (FileNotFoundException e) {
+                // the upload completed in the meantime
+            }
+        }
         ResultSet rs = null;
         try {
             // SELECT ID, DATA FROM DATASTORE WHERE ID = ?
@@ -601,12 +857,47 @@ public class DbDataStore implements DataStore, DatabaseAware {
             if (isSchemaCheckEnabled()) {
                 createCheckSchemaOperation().run();
             }
+
+            if (asyncUploadThreads > 0) {
+                initAsyncUpload(homeDir);
+            }
         } catch (Exception e) {
             throw convert("Can not init data store, driver=" + driver + " url=" + url + " user=" + user +
                     " schemaObjectPrefix=" + schemaObjectPrefix + " tableSQL=" + tableSQL + " createTableSQL=" + createTableSQL, e);
         }
     }
 
+    private void initAsyncUpload(String homeDir) {
+        if (pendingUploadPath == null || "".equals(pendingUploadPath)) {
+            pendingDirectory = new File(homeDir, "repository/datastore-pending");
+        } else {
+            pendingDirectory = new File(pendingUploadPath);
+        }
+        pendingDirectory.mkdirs();
+        ThreadFactory f = new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DbDataStore-upload");
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        uploadExecutor = new ThreadPoolExecutor(
+                asyncUploadThreads, asyncUploadThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, asyncUploadQueueSize)),
+                f, new RejectedExecutionHandler() {
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                        if (e.isShutdown()) {
+                            throw new RejectedExecutionException(
+                                    "The data store is closed");
+                        }
+                        // the queue is full, upload in the calling thread
+                        r.run();
+                    }
+                });
+        recoverPendingUploads();
+    }
+
     private DataSource getDataSource() throws Exception {
         if (getDataSourceName() == null || "".equals(getDataSourceName())) {
             return connectionFactory.getDataSource(getDriver(), getUrl(), getUser(), getPassword());
@@ -883,8 +1174,27 @@ public class DbDataStore implements DataStore, DatabaseAware {
         schemaCheckEnabled = enabled;
     }
 
-    public synchronized void close() throws DataStoreException {
-        // nothing to do
+    public void close() throws DataStoreException {
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = uploadExecutor;
+            uploadExecutor = null;
+        }
+        if (executor != null) {
+            // wait for the pending uploads, without holding the lock of
+            // this data store, so that the uploads are not blocked
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    log.warn(pendingUploads.size()
+                            + " pending records are uploaded at the next start");
+                }
+            } catch (InterruptedException e) {
+                log.warn(pendingUploads.size()
+                        + " pending records are uploaded at the next start");
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     protected void usesIdentifier(DataIdentifier identifier) {
@@ -895,7 +1205,7 @@ public class DbDataStore implements DataStore, DatabaseAware {
         inUse.clear();
     }
 
-    protected synchronized MessageDigest getDigest() throws DataStoreException {
+    protected MessageDigest getDigest() throws DataStoreException {
         try {
             return MessageDigest.getInstance(DIGEST);
         } catch (NoSuchAlgorithmException e) {
@@ -983,6 +1293,63 @@ public class DbDataStore implements DataStore, DatabaseAware {
         this.schemaObjectPrefix = schemaObjectPrefix;
     }
 
+    /**
+     * Get the number of threads used for asynchronous uploads.
+     *
+     * @return the number of threads, 0 if disabled
+     */
+    public int getAsyncUploadThreads() {
+        return asyncUploadThreads;
+    }
+
+    /**
+     * Set the number of threads used for asynchronous uploads.
+     * The default is 0, which means records are stored in the caller thread.
+     *
+     * @param asyncUploadThreads the new value
+     */
+    public void setAsyncUploadThreads(int asyncUploadThreads) {
+        this.asyncUploadThreads = asyncUploadThreads;
+    }
+
+    /**
+     * Get the maximum number of records waiting for an asynchronous upload.
+     *
+     * @return the queue size
+     */
+    public int getAsyncUploadQueueSize() {
+        return asyncUploadQueueSize;
+    }
+
+    /**
+     * Set the maximum number of records waiting for an asynchronous upload.
+     * If more records are waiting, new records are stored in the caller thread.
+     *
+     * @param asyncUploadQueueSize the new value
+     */
+    public void setAsyncUploadQueueSize(int asyncUploadQueueSize) {
+        this.asyncUploadQueueSize = asyncUploadQueueSize;
+    }
+
+    /**
+     * Get the directory name for records waiting for an asynchronous upload.
+     *
+     * @return the path name
+     */
+    public String getPendingUploadPath() {
+        return pendingUploadPath;
+    }
+
+    /**
+     * Set the directory name for records waiting for an asynchronous upload.
+     * By default &lt;repository home&gt;/repository/datastore-pending is used.
+     *
+     * @param pendingUploadPath the path name
+     */
+    public void setPendingUploadPath(String pendingUploadPath) {
+        this.pendingUploadPath = pendingUploadPath;
+    }
+
     public String getDataSourceName() {
         return dataSourceName;
     }
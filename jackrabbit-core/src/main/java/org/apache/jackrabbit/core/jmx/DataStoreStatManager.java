@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.jmx;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.jackrabbit.api.jmx.DataStoreStatManagerMBean;
+import org.apache.jackrabbit.api.stats.DataStoreStat;
+import org.apache.jackrabbit.api.stats.DataStoreStatDto;
+
+/**
+ * The DataStoreStatManagerMBean default implementation
+ * 
+ */
+public class DataStoreStatManager implements DataStoreStatManagerMBean {
+
+    private final DataStoreStat dataStoreStat;
+
+    public DataStoreStatManager(final DataStoreStat dataStoreStat) {
+        this.dataStoreStat = dataStoreStat;
+    }
+
+    public boolean isEnabled() {
+        return this.dataStoreStat.isEnabled();
+    }
+
+    public void enable() {
+        this.dataStoreStat.setEnabled(true);
+    }
+
+    public void disable() {
+        this.dataStoreStat.setEnabled(false);
+    }
+
+    public void reset() {
+        this.dataStoreStat.reset();
+    }
+
+    public int getHotBinariesQueueSize() {
+        return dataStoreStat.getHotBinariesQueueSize();
+    }
+
+    public void setHotBinariesQueueSize(int size) {
+        dataStoreStat.setHotBinariesQueueSize(size);
+    }
+
+    public void clearHotBinariesQueue() {
+        dataStoreStat.clearHotBinariesQueue();
+    }
+
+    public int getSampleRate() {
+        return dataStoreStat.getSampleRate();
+    }
+
+    public void setSampleRate(int rate) {
+        dataStoreStat.setSampleRate(rate);
+    }
+
+    public TabularData getHotBinaries() {
+        return asTabularData(dataStoreStat.getHotBinaries());
+    }
+
+    private TabularData asTabularData(DataStoreStatDto[] data) {
+        TabularDataSupport tds = null;
+        try {
+            CompositeType ct = DataStoreStatCompositeTypeFactory.getCompositeType();
+
+            TabularType tt = new TabularType(DataStoreStatDto.class.getName(),
+                    "Hot Binaries", ct, DataStoreStatCompositeTypeFactory.index);
+            tds = new TabularDataSupport(tt);
+
+            for (DataStoreStatDto b : data) {
+                tds.put(new CompositeDataSupport(ct,
+                        DataStoreStatCompositeTypeFactory.names,
+                        DataStoreStatCompositeTypeFactory.getValues(b)));
+            }
+            return tds;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static class DataStoreStatCompositeTypeFactory {
+
+        private final static String[] index = { "position" };
+
+        private final static String[] names = { "position", "readCount",
+                "length", "identifier", "lastAccessTime" };
+
+        private final static String[] descriptions = { "position",
+                "readCount", "length", "identifier", "lastAccessTime" };
+
+        private final static OpenType[] types = { SimpleType.LONG,
+                SimpleType.LONG, SimpleType.LONG, SimpleType.STRING,
+                SimpleType.STRING };
+
+        public static CompositeType getCompositeType() throws OpenDataException {
+            return new CompositeType(DataStoreStat.class.getName(),
+                    DataStoreStat.class.getName(), names, descriptions, types);
+        }
+
+        public static Object[] getValues(DataStoreStatDto b) {
+            return new Object[] { b.getPosition(), b.getReadCount(),
+                    b.getLength(), b.getIdentifier(), b.getLastAccessTime() };
+        }
+    }
+
+}
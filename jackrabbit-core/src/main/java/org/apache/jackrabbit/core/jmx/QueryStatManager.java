@@ -81,6 +81,14 @@ public class QueryStatManager implements QueryStatManagerMBean {
         queryStat.clearPopularQueriesQueue();
     }
 
+    public long getPlanCacheHitCount() {
+        return queryStat.getPlanCacheHitCount();
+    }
+
+    public long getPlanCacheMissCount() {
+        return queryStat.getPlanCacheMissCount();
+    }
+
     public TabularData getSlowQueries() {
         return asTabularData(queryStat.getSlowQueries());
     }
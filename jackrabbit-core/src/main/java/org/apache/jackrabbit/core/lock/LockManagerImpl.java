@@ -19,14 +19,19 @@ package org.apache.jackrabbit.core.lock;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.PropertyType;
@@ -87,6 +92,26 @@ public class LockManagerImpl
      */
     private static final String LOCKS_FILE = "locks";
 
+    /**
+     * Name of the folder containing the lock journal. Every entry of the
+     * journal is a small file named after its sequence number, containing
+     * lines of the form <code>+token[,timeoutHint]</code> for added and
+     * <code>-token</code> for removed open-scoped locks.
+     */
+    private static final String JOURNAL_FOLDER = "locks.journal";
+
+    /**
+     * Number of journal entries after which the locks file is rewritten
+     * and the journal is truncated.
+     */
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    /**
+     * Minimum number of milliseconds between two compactions triggered by
+     * the timeout handler.
+     */
+    private static final long COMPACTION_INTERVAL = 60 * 1000;
+
     /**
      * Path map containing all locks at the leaves.
      */
@@ -175,11 +200,69 @@ public class LockManagerImpl
      */
     private final FileSystemResource locksFile;
 
+    /**
+     * File system containing the locks file and the lock journal
+     */
+    private final FileSystem fs;
+
+    /**
+     * Path of the lock journal folder
+     */
+    private final String journalPath;
+
+    /**
+     * Guards the journal state and serializes writing the journal and the
+     * locks file. The lock map may be modified by a transaction holding the
+     * Xid aware lock while the locks file is written, so both lock map locks
+     * are not sufficient.
+     */
+    private final Object journalLock = new Object();
+
+    /**
+     * Sequence number of the next journal entry.
+     */
+    private long journalSequence;
+
+    /**
+     * Number of journal entries written since the last compaction.
+     */
+    private int journalSize;
+
+    /**
+     * Time of the last compaction.
+     */
+    private long lastCompaction = System.currentTimeMillis();
+
+    /**
+     * Journal lines collected during an update operation.
+     */
+    private final StringBuilder pendingJournal = new StringBuilder();
+
     /**
      * Flag indicating whether automatic saving is disabled.
      */
     private boolean savingDisabled;
 
+    /**
+     * Number of locks created.
+     */
+    private final AtomicLong lockCount = new AtomicLong();
+
+    /**
+     * Total time spent creating locks, in nanoseconds.
+     */
+    private final AtomicLong lockTime = new AtomicLong();
+
+    /**
+     * Number of locks removed.
+     */
+    private final AtomicLong unlockCount = new AtomicLong();
+
+    /**
+     * Total time spent removing locks, in nanoseconds.
+     */
+    private final AtomicLong unlockTime = new AtomicLong();
+
     /**
      * Lock event channel.
      */
@@ -199,15 +282,18 @@ public class LockManagerImpl
 
         this.sysSession = session;
         this.locksFile = new FileSystemResource(fs, FileSystem.SEPARATOR + LOCKS_FILE);
+        this.fs = fs;
+        this.journalPath = FileSystem.SEPARATOR + JOURNAL_FOLDER;
 
         session.getWorkspace().getObservationManager().
                 addEventListener(this, Event.NODE_ADDED | Event.NODE_REMOVED,
                         "/", true, null, null, true);
 
         try {
-            if (locksFile.exists()) {
-                load();
+            if (!fs.exists(journalPath)) {
+                fs.createFolder(journalPath);
             }
+            load();
         } catch (FileSystemException e) {
             throw new RepositoryException("I/O error while reading locks from '"
                     + locksFile.getPath() + "'", e);
@@ -237,6 +323,7 @@ public class LockManagerImpl
 
         public void run() {
             lockMap.traverse(visitor, false);
+            compact();
         }
     }
 
@@ -262,20 +349,59 @@ public class LockManagerImpl
     }
 
     /**
-     * Read locks from locks file and populate path map
+     * Read locks from locks file, replay the lock journal on top of them
+     * and populate path map. A non-empty journal is compacted afterwards.
      */
     private void load() throws FileSystemException {
+        Map<String, String> locks = new LinkedHashMap<String, String>();
+        if (locksFile.exists()) {
+            read(locksFile.getInputStream(), locks);
+        }
+
+        String[] entries = getJournalEntries();
+        for (String entry : entries) {
+            read(fs.getInputStream(journalPath + FileSystem.SEPARATOR + entry), locks);
+        }
+        if (entries.length > 0) {
+            journalSequence = Long.parseLong(entries[entries.length - 1]) + 1;
+            journalSize = entries.length;
+        }
+
+        for (String line : locks.values()) {
+            reapplyLock(line);
+        }
+        if (journalSize > 0) {
+            save();
+        }
+    }
+
+    /**
+     * Read lines from the locks file or a journal entry into a map of
+     * lock token lines, keyed by lock token. Lines starting with a
+     * <code>-</code> remove a previously read lock token.
+     *
+     * @param in input stream, closed by this method
+     * @param locks map of lock token lines
+     */
+    private void read(InputStream in, Map<String, String> locks)
+            throws FileSystemException {
         BufferedReader reader = null;
 
         try {
-            reader = new BufferedReader(
-                    new InputStreamReader(locksFile.getInputStream()));
+            reader = new BufferedReader(new InputStreamReader(in));
             while (true) {
                 String s = reader.readLine();
                 if (s == null || s.equals("")) {
                     break;
                 }
-                reapplyLock(s);
+                if (s.charAt(0) == '-') {
+                    locks.remove(s.substring(1));
+                } else {
+                    if (s.charAt(0) == '+') {
+                        s = s.substring(1);
+                    }
+                    locks.put(s.split(",")[0], s);
+                }
             }
         } catch (IOException e) {
             throw new FileSystemException("error while reading locks file", e);
@@ -284,6 +410,18 @@ public class LockManagerImpl
         }
     }
 
+    /**
+     * Return the names of all journal entries, in sequence order.
+     *
+     * @return names of journal entries
+     */
+    private String[] getJournalEntries() throws FileSystemException {
+        String[] entries = fs.listFiles(journalPath);
+        // names are zero padded, so lexical order is sequence order
+        Arrays.sort(entries);
+        return entries;
+    }
+
     /**
      * Reapply a lock given a lock token that was read from the locks file
      *
@@ -321,13 +459,29 @@ public class LockManagerImpl
     }
 
     /**
-     * Write locks to locks file
+     * Write locks to locks file and truncate the lock journal
      */
     private void save() {
         if (savingDisabled) {
             return;
         }
 
+        synchronized (journalLock) {
+            // journal entries written from now on may contain changes
+            // that are not in the snapshot of the lock map
+            long sequence = journalSequence;
+            if (writeLocksFile()) {
+                truncateJournal(sequence);
+            }
+        }
+    }
+
+    /**
+     * Write the open-scoped locks of the lock map to the locks file.
+     *
+     * @return <code>true</code> if the locks file was written
+     */
+    private boolean writeLocksFile() {
         final ArrayList<LockInfo> list = new ArrayList<LockInfo>();
 
         lockMap.traverse(new PathMap.ElementVisitor<LockInfo>() {
@@ -341,21 +495,17 @@ public class LockManagerImpl
 
 
         BufferedWriter writer = null;
+        boolean saved = false;
 
         try {
             writer = new BufferedWriter(
                     new OutputStreamWriter(locksFile.getOutputStream()));
             for (LockInfo info : list) {
-                writer.write(info.getLockToken());
-
-                // Store the timeout hint, if one is specified
-                if (info.getTimeoutHint() != Long.MAX_VALUE) {
-                    writer.write(',');
-                    writer.write(Long.toString(info.getTimeoutHint()));
-                }
-
+                writer.write(getLockTokenLine(info));
                 writer.newLine();
             }
+            writer.close();
+            saved = true;
         } catch (FileSystemException fse) {
             log.warn("I/O error while saving locks to '"
                     + locksFile.getPath() + "': " + fse.getMessage());
@@ -367,6 +517,193 @@ public class LockManagerImpl
         } finally {
             IOUtils.closeQuietly(writer);
         }
+        return saved;
+    }
+
+    /**
+     * Remove the entries before the given sequence number from the lock
+     * journal, as they are contained in the locks file. Entries are removed
+     * in sequence order, so that the entries left behind by a failure still
+     * replay correctly.
+     *
+     * @param sequence sequence number of the first entry to keep
+     */
+    private void truncateJournal(long sequence) {
+        try {
+            int remaining = 0;
+            for (String entry : getJournalEntries()) {
+                if (Long.parseLong(entry) < sequence) {
+                    fs.deleteFile(journalPath + FileSystem.SEPARATOR + entry);
+                } else {
+                    remaining++;
+                }
+            }
+            journalSize = remaining;
+            lastCompaction = System.currentTimeMillis();
+        } catch (FileSystemException e) {
+            log.warn("I/O error while truncating lock journal '"
+                    + journalPath + "': " + e.getMessage());
+            log.debug("Root cause: ", e);
+        }
+    }
+
+    /**
+     * Return the line representing an open-scoped lock in the locks file.
+     *
+     * @param info lock info
+     * @return lock token, followed by the timeout hint if one is specified
+     */
+    private static String getLockTokenLine(LockInfo info) {
+        if (info.getTimeoutHint() != Long.MAX_VALUE) {
+            return info.getLockToken() + "," + info.getTimeoutHint();
+        } else {
+            return info.getLockToken();
+        }
+    }
+
+    /**
+     * Record the addition or removal of an open-scoped lock in the lock
+     * journal. Within an update operation, the lines are collected and
+     * written as one entry when the update ends.
+     *
+     * @param info lock info
+     * @param added <code>true</code> if the lock was added,
+     *              <code>false</code> if it was removed
+     */
+    private void journal(LockInfo info, boolean added) {
+        String line;
+        if (added) {
+            line = "+" + getLockTokenLine(info);
+        } else {
+            line = "-" + info.getLockToken();
+        }
+        if (savingDisabled) {
+            pendingJournal.append(line).append('\n');
+        } else {
+            writeJournal(line + '\n');
+        }
+    }
+
+    /**
+     * Write a journal entry, or rewrite the locks file if the journal has
+     * grown too large or can not be written.
+     *
+     * @param lines journal lines
+     */
+    private void writeJournal(String lines) {
+        synchronized (journalLock) {
+            if (journalSize >= COMPACTION_THRESHOLD) {
+                save();
+            } else {
+                writeJournalEntry(lines);
+            }
+        }
+    }
+
+    /**
+     * Write a journal entry, or rewrite the locks file if the entry can not
+     * be written. Must be called while holding the journal lock.
+     *
+     * @param lines journal lines
+     */
+    private void writeJournalEntry(String lines) {
+        String entry = journalPath + FileSystem.SEPARATOR
+                + String.format("%019d", journalSequence++);
+        Writer writer = null;
+
+        try {
+            writer = new OutputStreamWriter(fs.getOutputStream(entry));
+            writer.write(lines);
+            writer.close();
+            journalSize++;
+        } catch (FileSystemException fse) {
+            log.warn("I/O error while writing lock journal entry '"
+                    + entry + "': " + fse.getMessage());
+            log.debug("Root cause: ", fse);
+            save();
+        } catch (IOException ioe) {
+            log.warn("I/O error while writing lock journal entry '"
+                    + entry + "': " + ioe.getMessage());
+            log.debug("Root cause: ", ioe);
+            save();
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    /**
+     * Compact the lock journal if it is not empty and was not compacted
+     * recently. Invoked by the timeout handler, skipped if the lock map
+     * is currently in use.
+     */
+    private void compact() {
+        try {
+            if (lockMapLock.attempt(0)) {
+                try {
+                    synchronized (journalLock) {
+                        if (!savingDisabled && journalSize > 0
+                                && System.currentTimeMillis() - lastCompaction
+                                    > COMPACTION_INTERVAL) {
+                            save();
+                        }
+                    }
+                } finally {
+                    lockMapLock.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Return the number of locks created by this lock manager.
+     *
+     * @return number of locks created
+     */
+    public long getLockCount() {
+        return lockCount.get();
+    }
+
+    /**
+     * Return the total time spent creating locks, including the time
+     * spent waiting for the lock map.
+     *
+     * @return time in milliseconds
+     */
+    public long getLockTime() {
+        return TimeUnit.NANOSECONDS.toMillis(lockTime.get());
+    }
+
+    /**
+     * Return the number of locks removed by this lock manager.
+     *
+     * @return number of locks removed
+     */
+    public long getUnlockCount() {
+        return unlockCount.get();
+    }
+
+    /**
+     * Return the total time spent removing locks, including the time
+     * spent waiting for the lock map.
+     *
+     * @return time in milliseconds
+     */
+    public long getUnlockTime() {
+        return TimeUnit.NANOSECONDS.toMillis(unlockTime.get());
+    }
+
+    /**
+     * Return the number of lock journal entries written since the locks
+     * file was last rewritten.
+     *
+     * @return number of journal entries
+     */
+    public int getJournalSize() {
+        synchronized (journalLock) {
+            return journalSize;
+        }
     }
 
     static SessionLockManager getSessionLockManager(SessionImpl session) throws RepositoryException {
@@ -405,6 +742,7 @@ public class LockManagerImpl
             operation = eventChannel.create(node.getNodeId(), isDeep, lockOwner);
         }
 
+        long start = System.nanoTime();
         acquire();
 
         try {
@@ -437,9 +775,11 @@ public class LockManagerImpl
             lockMap.put(path, info);
 
             if (!info.isSessionScoped()) {
-                save();
+                journal(info, true);
                 successful = true;
             }
+            lockCount.incrementAndGet();
+            lockTime.addAndGet(System.nanoTime() - start);
             return info;
 
         } finally {
@@ -466,6 +806,7 @@ public class LockManagerImpl
             operation = eventChannel.create(node.getNodeId());
         }
 
+        long start = System.nanoTime();
         acquire();
 
         try {
@@ -488,9 +829,11 @@ public class LockManagerImpl
             info.setLive(false);
 
             if (!info.isSessionScoped()) {
-                save();
+                journal(info, false);
                 successful = true;
             }
+            unlockCount.incrementAndGet();
+            unlockTime.addAndGet(System.nanoTime() - start);
             return true;
         } finally {
             release();
@@ -901,12 +1244,15 @@ public class LockManagerImpl
     }
 
     /**
-     * End an update operation. This will save the lock map file and release
-     * the lock on the lock map.
+     * End an update operation. This will write the changes made during the
+     * update to the lock journal and release the lock on the lock map.
      */
     public void endUpdate() {
         savingDisabled = false;
-        save();
+        if (pendingJournal.length() > 0) {
+            writeJournal(pendingJournal.toString());
+            pendingJournal.setLength(0);
+        }
         release();
     }
 
@@ -915,6 +1261,7 @@ public class LockManagerImpl
      */
     public void cancelUpdate() {
         savingDisabled = false;
+        pendingJournal.setLength(0);
         release();
     }
 
@@ -1370,7 +1717,7 @@ public class LockManagerImpl
             info.setLive(true);
             lockMap.put(path, info);
 
-            save();
+            journal(info, true);
         } finally {
             release();
         }
@@ -1395,7 +1742,7 @@ public class LockManagerImpl
             element.set(null);
             info.setLive(false);
 
-            save();
+            journal(info, false);
 
         } finally {
             release();
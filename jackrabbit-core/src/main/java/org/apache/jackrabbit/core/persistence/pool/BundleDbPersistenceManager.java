@@ -44,6 +44,7 @@ import org.apache.jackrabbit.core.persistence.util.BundleBinding;
 import org.apache.jackrabbit.core.persistence.util.ErrorHandling;
 import org.apache.jackrabbit.core.persistence.util.FileSystemBLOBStore;
 import org.apache.jackrabbit.core.persistence.util.NodePropBundle;
+import org.apache.jackrabbit.core.persistence.util.SegmentFileBLOBStore;
 import org.apache.jackrabbit.core.persistence.util.Serializer;
 import org.apache.jackrabbit.core.state.ChangeLog;
 import org.apache.jackrabbit.core.state.ItemStateException;
@@ -78,7 +79,15 @@ import org.slf4j.LoggerFactory;
  * <li>&lt;param name="{@link #setErrorHandling(String) errorHandling}" value=""/>
  * <li>&lt;param name="{@link #setBlockOnConnectionLoss(String) blockOnConnectionLoss}" value="false"/>
  * <li>&lt;param name="{@link #setSchemaCheckEnabled(String) schemaCheckEnabled}" value="true"/>
+ * <li>&lt;param name="{@link #setExternalBLOBs(boolean) externalBLOBs}" value="false"/>
+ * <li>&lt;param name="{@link #setSegmentedBLOBs(String) segmentedBLOBs}" value="false"/>
  * </ul>
+ * <p>
+ * If <code>externalBLOBs</code> and <code>segmentedBLOBs</code> are both
+ * enabled, the binary values are appended to a few large segment files
+ * (see {@link SegmentFileBLOBStore}) instead of being stored in one file
+ * each. Existing BLOB files are still read, so the setting can be enabled
+ * for an existing workspace.
  */
 public class BundleDbPersistenceManager
         extends AbstractBundlePersistenceManager implements DatabaseAware {
@@ -131,6 +140,9 @@ public class BundleDbPersistenceManager
     /** indicates if uses (filesystem) blob store */
     protected boolean externalBLOBs;
 
+    /** indicates if the (filesystem) blob store uses segment files */
+    protected boolean segmentedBLOBs;
+
     /** indicates whether to block if the database connection is lost */
     protected boolean blockOnConnectionLoss;
 
@@ -352,6 +364,24 @@ public class BundleDbPersistenceManager
         this.externalBLOBs = externalBLOBs;
     }
 
+    /**
+     * Returns if the external blob store uses segment files.
+     * @return if the external blob store uses segment files.
+     */
+    public String getSegmentedBLOBs() {
+        return Boolean.toString(segmentedBLOBs);
+    }
+
+    /**
+     * Sets the flag for storing external blobs in segment files rather than
+     * one file per blob. Only used if external blobs are enabled.
+     * @param segmentedBLOBs a value of "true" indicates that the segment
+     *        file blob store is to be used.
+     */
+    public void setSegmentedBLOBs(String segmentedBLOBs) {
+        this.segmentedBLOBs = Boolean.valueOf(segmentedBLOBs).booleanValue();
+    }
+
     /**
      * Checks if consistency check is enabled.
      * @return <code>true</code> if consistency check is enabled.
@@ -679,6 +709,13 @@ public class BundleDbPersistenceManager
         LocalFileSystem blobFS = new LocalFileSystem();
         blobFS.setRoot(new File(context.getHomeDir(), "blobs"));
         blobFS.init();
+        if (segmentedBLOBs) {
+            // blob files written before are still read
+            SegmentBlobStore store = new SegmentBlobStore(
+                    new File(context.getHomeDir(), "blobs"), new FSBlobStore(blobFS));
+            store.init();
+            return store;
+        }
         return new FSBlobStore(blobFS);
     }
 
@@ -1121,6 +1158,29 @@ public class BundleDbPersistenceManager
         }
     }
 
+    /**
+     * Blob store that appends the data to segment files, using the same
+     * blob-id scheme as the {@link FSBlobStore}.
+     */
+    protected class SegmentBlobStore extends SegmentFileBLOBStore implements CloseableBLOBStore {
+
+        private final FSBlobStore fallback;
+
+        public SegmentBlobStore(File directory, FSBlobStore fallback) {
+            super(directory, fallback);
+            this.fallback = fallback;
+        }
+
+        public String createId(PropertyId id, int index) {
+            return buildBlobFilePath(null, id, index).toString();
+        }
+
+        public void close() {
+            super.close();
+            fallback.close();
+        }
+    }
+
     /**
      * Implementation of a blob store that stores the data inside the database
      */
@@ -18,6 +18,7 @@ package org.apache.jackrabbit.core.persistence.util;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -234,14 +235,24 @@ class BundleWriter {
                             if (blobId == null) {
                                 BLOBStore blobStore = binding.getBlobStore();
                                 try {
-                                    InputStream in = val.getStream();
-                                    try {
-                                        blobId = blobStore.createId(state.getId(), i);
-                                        blobStore.put(blobId, in, size);
-                                        state.setBlobId(blobId, i);
-                                    } finally {
-                                        IOUtils.closeQuietly(in);
+                                    blobId = blobStore.createId(state.getId(), i);
+                                    File file = null;
+                                    if (blobStore instanceof FileSystemBLOBStore) {
+                                        file = val.getExclusiveTemporaryFile();
                                     }
+                                    if (file != null) {
+                                        // move the temp file into place instead
+                                        // of writing the binary a second time
+                                        ((FileSystemBLOBStore) blobStore).put(blobId, file);
+                                    } else {
+                                        InputStream in = val.getStream();
+                                        try {
+                                            blobStore.put(blobId, in, size);
+                                        } finally {
+                                            IOUtils.closeQuietly(in);
+                                        }
+                                    }
+                                    state.setBlobId(blobId, i);
                                 } catch (Exception e) {
                                     String msg = "Error while storing blob. id="
                                             + state.getId() + " idx=" + i + " size=" + size;
@@ -21,7 +21,10 @@ import org.apache.jackrabbit.core.id.PropertyId;
 import org.apache.jackrabbit.core.fs.FileSystem;
 import org.apache.jackrabbit.core.fs.FileSystemPathUtil;
 import org.apache.jackrabbit.core.fs.FileSystemResource;
+import org.apache.jackrabbit.core.fs.local.LocalFileSystem;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -98,6 +101,39 @@ public class FileSystemBLOBStore implements ResourceBasedBLOBStore {
         }
     }
 
+    /**
+     * Stores the given file under the given blob id. If this blob store is
+     * backed by a local file system, the file is moved into place so that
+     * the binary is written only once; otherwise the file is copied and
+     * left for the caller to delete.
+     *
+     * @param blobId identifier of the blob
+     * @param file the file to store
+     * @throws Exception if an error occurred
+     */
+    public void put(String blobId, File file) throws Exception {
+        if (fs instanceof LocalFileSystem) {
+            String root = ((LocalFileSystem) fs).getPath();
+            if (root != null) {
+                // the blobId is an absolute file system path
+                File target = new File(root, blobId.replace(
+                        FileSystem.SEPARATOR_CHAR, File.separatorChar));
+                File parent = target.getParentFile();
+                parent.mkdirs();
+                if (file.renameTo(target)) {
+                    return;
+                }
+                // e.g. a different volume: fall back to copying
+            }
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            put(blobId, in, file.length());
+        } finally {
+            in.close();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,903 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.persistence.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.core.fs.FileSystem;
+import org.apache.jackrabbit.core.fs.FileSystemException;
+import org.apache.jackrabbit.core.fs.FileSystemResource;
+import org.apache.jackrabbit.core.id.PropertyId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>SegmentFileBLOBStore</code> is a <code>ResourceBasedBLOBStore</code>
+ * that appends BLOB data to a small number of large segment files in a
+ * local directory, instead of storing each BLOB in a file of its own.
+ * An in-memory index maps BLOB ids to their location; it is rebuilt from
+ * the segment files when the store is initialized. Reads do not acquire any
+ * lock and use memory-mapped segments, so reading many small BLOBs does not
+ * require any open or close system calls.
+ * <p>
+ * Removed or overwritten BLOBs stay in their segment until the segment is
+ * compacted: once the share of unused bytes in a (no longer written) segment
+ * reaches the compaction threshold, the remaining BLOBs are copied to the
+ * current segment by a background thread and the old segment is deleted.
+ * The store is locked only while a single BLOB is copied.
+ * <p>
+ * An optional fallback store can be given to switch an existing workspace to
+ * this store: BLOBs that are not found in the segments are read from (and
+ * removed in) the fallback store, while new BLOBs are always written to the
+ * segments.
+ * <p>
+ * Note that The DataStore should nowadays be used instead of the BLOBStore.
+ */
+public class SegmentFileBLOBStore implements ResourceBasedBLOBStore {
+
+    /**
+     * the default logger
+     */
+    private static Logger log = LoggerFactory.getLogger(SegmentFileBLOBStore.class);
+
+    /**
+     * The default maximum segment size (64 MB).
+     */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The default compaction threshold, in percent of unused bytes.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 50;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    /**
+     * Marker at the start of each record.
+     */
+    private static final int RECORD_MAGIC = 0x424c4f42;
+
+    /**
+     * The size of the fixed part of a record header: magic, id length
+     * and data length.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * The minimum size of the mapping of the segment that is written. The
+     * mapping of that segment only grows geometrically; records beyond it
+     * are read from the channel.
+     */
+    private static final long MIN_MAP_SIZE = 1024 * 1024;
+
+    /**
+     * The directory that contains the segment files.
+     */
+    private final File directory;
+
+    /**
+     * The store to read BLOBs from that are not in the segments, or null.
+     */
+    private final ResourceBasedBLOBStore fallback;
+
+    /**
+     * The location of each BLOB.
+     */
+    private final Map<String, Location> index = new ConcurrentHashMap<String, Location>();
+
+    /**
+     * All segments, oldest first. Guarded by this store.
+     */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /**
+     * The segment new BLOBs are appended to. Changed while holding the lock
+     * of this store.
+     */
+    private volatile Segment current;
+
+    /**
+     * Serializes the compaction of segments.
+     */
+    private final Object compactionLock = new Object();
+
+    /**
+     * The background thread that compacts segments.
+     */
+    private ExecutorService compactor;
+
+    /**
+     * The read-only file system view used for resources.
+     */
+    private final FileSystem view = new SegmentFileSystem();
+
+    private long maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * Creates a new <code>SegmentFileBLOBStore</code> instance.
+     *
+     * @param directory the directory for the segment files
+     */
+    public SegmentFileBLOBStore(File directory) {
+        this(directory, null);
+    }
+
+    /**
+     * Creates a new <code>SegmentFileBLOBStore</code> instance.
+     *
+     * @param directory the directory for the segment files
+     * @param fallback the store for BLOBs that are not in the segments,
+     *                 or <code>null</code>
+     */
+    public SegmentFileBLOBStore(File directory, ResourceBasedBLOBStore fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Sets the size after which a new segment is started.
+     *
+     * @param maxSegmentSize the size in bytes
+     */
+    public void setMaxSegmentSize(long maxSegmentSize) {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Sets the share of unused bytes in percent after which a segment is
+     * compacted.
+     *
+     * @param compactionThreshold the threshold (1 - 100)
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Opens the segment files and builds the index.
+     *
+     * @throws IOException if the segments can not be read
+     */
+    public synchronized void init() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory.getAbsolutePath());
+        }
+        String[] names = directory.list();
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                numbers.add(Integer.valueOf(name.substring(
+                        SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Integer[] sorted = numbers.toArray(new Integer[numbers.size()]);
+        Arrays.sort(sorted);
+        for (Integer number : sorted) {
+            Segment segment = new Segment(number.intValue());
+            segments.add(segment);
+            segment.scan();
+        }
+        if (segments.isEmpty()) {
+            newSegment();
+        } else {
+            current = segments.get(segments.size() - 1);
+        }
+        compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SegmentFileBLOBStore-compaction");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Closes all segment files.
+     */
+    public void close() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = compactor;
+            compactor = null;
+        }
+        if (executor != null) {
+            // let a running compaction finish
+            executor.shutdown();
+            try {
+                executor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            closeSegments();
+        }
+    }
+
+    /**
+     * Closes all segment files. Must be called while holding the lock of
+     * this store.
+     */
+    private void closeSegments() {
+        try {
+            if (current != null) {
+                current.channel.force(false);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to flush " + current.file, e);
+        }
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        index.clear();
+        current = null;
+    }
+
+    //------------------------------------------------------------< BLOBStore >
+    /**
+     * {@inheritDoc}
+     */
+    public String createId(PropertyId id, int index) {
+        return id.toString() + "." + index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public InputStream get(String blobId) throws Exception {
+        Location location = index.get(blobId);
+        if (location == null) {
+            if (fallback != null) {
+                return fallback.get(blobId);
+            }
+            throw new IOException("BLOB not found: " + blobId);
+        }
+        return location.getInputStream();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void put(String blobId, InputStream in, long size) throws Exception {
+        synchronized (this) {
+            Location location = append(blobId, in, size);
+            release(index.put(blobId, location));
+        }
+        if (fallback != null && fallback.getResource(blobId).exists()) {
+            // the old value is no longer visible
+            fallback.remove(blobId);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean remove(String blobId) throws Exception {
+        synchronized (this) {
+            Location location = index.remove(blobId);
+            if (location != null) {
+                append(blobId, null, -1);
+                release(location);
+                return true;
+            }
+        }
+        return fallback != null && fallback.remove(blobId);
+    }
+
+    //-----------------------------------------------< ResourceBasedBLOBStore >
+    /**
+     * {@inheritDoc}
+     */
+    public FileSystemResource getResource(String blobId) throws Exception {
+        if (fallback != null && !index.containsKey(blobId)) {
+            return fallback.getResource(blobId);
+        }
+        return new FileSystemResource(view, blobId);
+    }
+
+    //-------------------------------------------------------------< internal >
+
+    /**
+     * Compacts all segments that have reached the compaction threshold.
+     *
+     * @throws IOException if compacting failed
+     */
+    public void compact() throws IOException {
+        List<Segment> candidates = new ArrayList<Segment>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (segment.needsCompaction()) {
+                    candidates.add(segment);
+                }
+            }
+        }
+        for (Segment segment : candidates) {
+            compact(segment);
+        }
+    }
+
+    /**
+     * Appends a record to the current segment. Must be called while holding
+     * the lock of this store.
+     *
+     * @param blobId the BLOB id
+     * @param in the data, or <code>null</code> to append a removal marker
+     * @param size the expected size of the data
+     * @return the location of the data, or <code>null</code> for a removal
+     * @throws IOException if writing failed
+     */
+    private Location append(String blobId, InputStream in, long size) throws IOException {
+        byte[] name = blobId.getBytes("UTF-8");
+        Segment segment = current;
+        if (segment.size > 0 && segment.size + size > maxSegmentSize) {
+            segment = newSegment();
+        }
+        long start = segment.size;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + name.length);
+        header.putInt(RECORD_MAGIC).putInt(name.length).put(name);
+        header.putLong(in == null ? -1 : size);
+        header.flip();
+        long pos = start + write(segment.channel, header, start);
+        long length = -1;
+        if (in != null) {
+            length = 0;
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                pos += write(segment.channel, ByteBuffer.wrap(buffer, 0, n), pos);
+                length += n;
+            }
+            if (length != size) {
+                ByteBuffer l = ByteBuffer.allocate(8);
+                l.putLong(length).flip();
+                write(segment.channel, l, start + HEADER_SIZE - 8 + name.length);
+            }
+        }
+        segment.size = pos;
+        if (in == null) {
+            // a removal marker is never used by itself
+            segment.unused += pos - start;
+            segment.removed.add(blobId);
+            return null;
+        }
+        segment.ids.add(blobId);
+        return new Location(segment, start + HEADER_SIZE + name.length, length, pos - start);
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            count += channel.write(buffer, position + count);
+        }
+        return count;
+    }
+
+    /**
+     * Marks the given record as unused, and schedules the compaction of its
+     * segment if needed. Must be called while holding the lock of this
+     * store.
+     *
+     * @param location the location of the record, or <code>null</code>
+     */
+    private void release(Location location) {
+        if (location != null) {
+            final Segment segment = location.segment;
+            segment.unused += location.recordSize;
+            if (segment.needsCompaction() && !segment.compactionScheduled
+                    && compactor != null) {
+                segment.compactionScheduled = true;
+                compactor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            compact(segment);
+                        } catch (IOException e) {
+                            log.warn("Failed to compact " + segment.file, e);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Copies the used records of the given segment to the current segment,
+     * and deletes the segment. The lock of this store is only held while a
+     * single record is copied, so that writers are not blocked for the
+     * whole compaction.
+     *
+     * @param segment the segment
+     */
+    private void compact(Segment segment) throws IOException {
+        synchronized (compactionLock) {
+            synchronized (this) {
+                if (!segments.contains(segment) || segment == current) {
+                    // already compacted, or the store is closed
+                    return;
+                }
+            }
+            log.debug("Compacting {}", segment.file);
+            // no records are added to a segment that is not written anymore
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.segment == segment) {
+                    synchronized (this) {
+                        String blobId = entry.getKey();
+                        // the BLOB may have been changed meanwhile
+                        if (index.get(blobId) == location) {
+                            InputStream in = location.getInputStream();
+                            try {
+                                index.put(blobId, append(blobId, in, location.length));
+                            } finally {
+                                in.close();
+                            }
+                        }
+                    }
+                }
+            }
+            synchronized (this) {
+                for (String blobId : segment.removed) {
+                    // the marker is still needed if an older segment
+                    // contains a record of the removed BLOB
+                    if (!index.containsKey(blobId) && hasOlderRecord(segment, blobId)) {
+                        append(blobId, null, -1);
+                    }
+                }
+                segments.remove(segment);
+                // concurrent readers keep using the mapped buffer
+                segment.close();
+                if (!segment.file.delete()) {
+                    log.warn("Failed to delete compacted segment " + segment.file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a segment older than the given one contains a record
+     * of the given BLOB. Must be called while holding the lock of this store.
+     *
+     * @param segment the segment
+     * @param blobId the BLOB id
+     * @return <code>true</code> if an older segment contains a record
+     */
+    private boolean hasOlderRecord(Segment segment, String blobId) {
+        for (Segment s : segments) {
+            if (s == segment) {
+                return false;
+            }
+            if (s.ids.contains(blobId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a new segment. Must be called while holding the lock of this
+     * store.
+     *
+     * @return the new segment
+     */
+    private Segment newSegment() throws IOException {
+        int number = current == null ? 1 : current.number + 1;
+        current = new Segment(number);
+        segments.add(current);
+        return current;
+    }
+
+    /**
+     * The location of a BLOB within a segment.
+     */
+    private static final class Location {
+
+        final Segment segment;
+
+        final long offset;
+
+        final long length;
+
+        /**
+         * The size of the whole record, including the header.
+         */
+        final long recordSize;
+
+        Location(Segment segment, long offset, long length, long recordSize) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordSize = recordSize;
+        }
+
+        InputStream getInputStream() throws IOException {
+            long end = offset + length;
+            ByteBuffer buffer = null;
+            if (end <= Integer.MAX_VALUE) {
+                buffer = segment.map(end);
+            }
+            if (buffer == null) {
+                return new ChannelInputStream(segment.channel, offset, end);
+            }
+            buffer = buffer.duplicate();
+            buffer.limit((int) end);
+            buffer.position((int) offset);
+            return new BufferInputStream(buffer.slice());
+        }
+
+    }
+
+    /**
+     * A segment file.
+     */
+    private final class Segment {
+
+        final int number;
+
+        final File file;
+
+        final RandomAccessFile raf;
+
+        final FileChannel channel;
+
+        /**
+         * The number of bytes written to this segment.
+         */
+        volatile long size;
+
+        /**
+         * The number of bytes used by removed or overwritten records.
+         * Guarded by the store.
+         */
+        long unused;
+
+        /**
+         * The ids of the BLOBs that were removed in this segment.
+         * Guarded by the store.
+         */
+        final Set<String> removed = new HashSet<String>();
+
+        /**
+         * The ids of the BLOBs with a (used or unused) record in this
+         * segment. Guarded by the store.
+         */
+        final Set<String> ids = new HashSet<String>();
+
+        /**
+         * Whether the compaction of this segment was scheduled. Guarded by
+         * the store.
+         */
+        boolean compactionScheduled;
+
+        /**
+         * The read-only mapping of the segment.
+         */
+        private volatile MappedByteBuffer map;
+
+        Segment(int number) throws IOException {
+            this.number = number;
+            this.file = new File(directory, SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+        }
+
+        /**
+         * Returns a mapping of this segment that covers at least the given
+         * number of bytes. While the segment is written, it is only mapped
+         * again once it has at least doubled in size; until then
+         * <code>null</code> is returned and the caller reads from the
+         * channel.
+         *
+         * @param end the number of bytes to map
+         * @return the mapped buffer, or <code>null</code>
+         */
+        ByteBuffer map(long end) throws IOException {
+            MappedByteBuffer m = map;
+            if (m == null || m.capacity() < end) {
+                synchronized (this) {
+                    m = map;
+                    if (m == null || m.capacity() < end) {
+                        long available = Math.min(size, Integer.MAX_VALUE);
+                        long mapped = m == null ? 0 : m.capacity();
+                        if (this == current
+                                && available < Math.max(2 * mapped, MIN_MAP_SIZE)) {
+                            return null;
+                        }
+                        m = channel.map(FileChannel.MapMode.READ_ONLY, 0, available);
+                        map = m;
+                    }
+                }
+            }
+            return m;
+        }
+
+        boolean needsCompaction() {
+            return this != current && size > 0
+                    && unused * 100 >= size * compactionThreshold;
+        }
+
+        /**
+         * Reads the records of this segment and adds them to the index.
+         * An incomplete record at the end (after a crash) is truncated.
+         */
+        void scan() throws IOException {
+            long fileLength = raf.length();
+            long pos = 0;
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)));
+            try {
+                while (pos + HEADER_SIZE <= fileLength) {
+                    if (in.readInt() != RECORD_MAGIC) {
+                        break;
+                    }
+                    int n = in.readInt();
+                    if (n < 0 || pos + HEADER_SIZE + n > fileLength) {
+                        break;
+                    }
+                    byte[] name = new byte[n];
+                    in.readFully(name);
+                    long length = in.readLong();
+                    long offset = pos + HEADER_SIZE + n;
+                    if (length > fileLength - offset) {
+                        break;
+                    }
+                    String blobId = new String(name, "UTF-8");
+                    long end = offset + Math.max(0, length);
+                    Location previous;
+                    if (length < 0) {
+                        previous = index.remove(blobId);
+                        unused += end - pos;
+                        removed.add(blobId);
+                    } else {
+                        previous = index.put(blobId,
+                                new Location(this, offset, length, end - pos));
+                        ids.add(blobId);
+                        for (long skip = length; skip > 0; ) {
+                            skip -= in.skip(skip);
+                        }
+                    }
+                    if (previous != null) {
+                        previous.segment.unused += previous.recordSize;
+                    }
+                    pos = end;
+                }
+            } finally {
+                in.close();
+            }
+            if (pos < fileLength) {
+                log.warn("Truncating incomplete record at " + pos + " in " + file);
+                raf.setLength(pos);
+            }
+            size = pos;
+        }
+
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                log.warn("Failed to close " + file, e);
+            }
+        }
+
+    }
+
+    /**
+     * An input stream that reads from a (mapped) byte buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        public long skip(long n) {
+            int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        public int available() {
+            return buffer.remaining();
+        }
+
+        public boolean markSupported() {
+            return true;
+        }
+
+        public void mark(int readlimit) {
+            buffer.mark();
+        }
+
+        public void reset() {
+            buffer.reset();
+        }
+
+    }
+
+    /**
+     * An input stream that uses positional reads on a file channel, for
+     * records that can not be mapped.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long pos;
+
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.pos = start;
+            this.end = end;
+        }
+
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= end) {
+                return -1;
+            }
+            len = (int) Math.min(len, end - pos);
+            int n = channel.read(ByteBuffer.wrap(b, off, len), pos);
+            if (n > 0) {
+                pos += n;
+            }
+            return n;
+        }
+
+        public long skip(long n) {
+            long skip = Math.max(0, Math.min(n, end - pos));
+            pos += skip;
+            return skip;
+        }
+
+    }
+
+    /**
+     * Read-only file system view of the BLOBs, used for the resources
+     * returned by {@link SegmentFileBLOBStore#getResource(String)}.
+     */
+    private final class SegmentFileSystem implements FileSystem {
+
+        public void init() {
+        }
+
+        public void close() {
+        }
+
+        public InputStream getInputStream(String filePath) throws FileSystemException {
+            try {
+                return get(filePath);
+            } catch (Exception e) {
+                throw new FileSystemException("Failed to read " + filePath, e);
+            }
+        }
+
+        public OutputStream getOutputStream(String filePath) throws FileSystemException {
+            throw new FileSystemException("Read-only resource: " + filePath);
+        }
+
+        public void createFolder(String folderPath) {
+        }
+
+        public boolean exists(String path) {
+            return index.containsKey(path);
+        }
+
+        public boolean isFile(String path) {
+            return index.containsKey(path);
+        }
+
+        public boolean isFolder(String path) {
+            return false;
+        }
+
+        public boolean hasChildren(String path) {
+            return false;
+        }
+
+        public long length(String filePath) throws FileSystemException {
+            Location location = index.get(filePath);
+            if (location == null) {
+                throw new FileSystemException("No such BLOB: " + filePath);
+            }
+            return location.length;
+        }
+
+        public long lastModified(String path) throws FileSystemException {
+            Location location = index.get(path);
+            if (location == null) {
+                throw new FileSystemException("No such BLOB: " + path);
+            }
+            return location.segment.file.lastModified();
+        }
+
+        public String[] list(String folderPath) {
+            return new String[0];
+        }
+
+        public String[] listFiles(String folderPath) {
+            return new String[0];
+        }
+
+        public String[] listFolders(String folderPath) {
+            return new String[0];
+        }
+
+        public void deleteFile(String filePath) throws FileSystemException {
+            try {
+                remove(filePath);
+            } catch (Exception e) {
+                throw new FileSystemException("Failed to remove " + filePath, e);
+            }
+        }
+
+        public void deleteFolder(String folderPath) {
+        }
+
+    }
+
+}
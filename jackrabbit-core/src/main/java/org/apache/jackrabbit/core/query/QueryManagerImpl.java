@@ -33,10 +33,17 @@ import javax.jcr.query.QueryManager;
 import javax.jcr.query.qom.QueryObjectModel;
 import javax.jcr.query.qom.QueryObjectModelFactory;
 
+import org.apache.jackrabbit.commons.query.QueryObjectModelBuilderRegistry;
+import org.apache.jackrabbit.core.RepositoryContext;
 import org.apache.jackrabbit.core.SearchManager;
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.session.SessionContext;
 import org.apache.jackrabbit.core.session.SessionOperation;
+import org.apache.jackrabbit.core.stats.QueryStatCore;
+import org.apache.jackrabbit.core.value.ValueFactoryImpl;
+import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
+import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
+import org.apache.jackrabbit.spi.commons.namespace.RegistryNamespaceResolver;
 import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelFactoryImpl;
 import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelTree;
 
@@ -45,6 +52,12 @@ import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelTree;
  */
 public class QueryManagerImpl implements QueryManager {
 
+    /**
+     * The languages that are parsed into a query object model.
+     */
+    private static final List<String> QOM_LANGUAGES = Arrays.asList(
+            QueryObjectModelBuilderRegistry.getSupportedLanguages());
+
     /**
      * Component context of the current session.
      */
@@ -199,6 +212,12 @@ public class QueryManagerImpl implements QueryManager {
 
     private class QueryFactoryImpl extends CompoundQueryFactory {
 
+        /**
+         * The nt:query node where the query was read from or
+         * <code>null</code> if it is not a stored query.
+         */
+        private final Node node;
+
         public QueryFactoryImpl(String language) {
             this(null, language);
         }
@@ -223,6 +242,73 @@ public class QueryManagerImpl implements QueryManager {
                                 sessionContext, statement, language, node);
                     }
                 }));
+            this.node = node;
+        }
+
+        /**
+         * Creates a query from the cached query object model tree of the
+         * statement if there is one. Otherwise the statement is parsed and
+         * its query object model tree is added to the cache. Statements in
+         * the other query languages are cached by the query handler.
+         */
+        @Override
+        public Query createQuery(String statement, String language)
+                throws InvalidQueryException, RepositoryException {
+            QueryPlanCache cache = searchMgr.getQueryPlanCache();
+            if (cache == null
+                    || !QOM_LANGUAGES.contains(language)
+                    || sessionContext.getSessionImpl().hasNamespaceRemappings()) {
+                return super.createQuery(statement, language);
+            }
+
+            QueryStatCore queryStat = sessionContext.getRepositoryContext()
+                    .getStatManager().getQueryStat();
+            Object plan = cache.get(language, statement);
+            if (plan instanceof QueryObjectModelTree) {
+                queryStat.logPlanCacheHit();
+            } else {
+                plan = parse(statement, language);
+                if (plan == null) {
+                    // let the session report the error
+                    return super.createQuery(statement, language);
+                }
+                cache.put(language, statement, plan);
+                queryStat.logPlanCacheMiss();
+            }
+            return searchMgr.createQueryObjectModel(
+                    sessionContext, (QueryObjectModelTree) plan, language, node);
+        }
+
+        /**
+         * Parses the statement into a query object model tree that does not
+         * refer to the current session. Names and paths are resolved with
+         * the global namespace mappings.
+         *
+         * @return the query object model tree or <code>null</code> if the
+         *         statement cannot be parsed without the session.
+         */
+        private QueryObjectModelTree parse(String statement, String language) {
+            RepositoryContext context = sessionContext.getRepositoryContext();
+            NamePathResolver resolver = new DefaultNamePathResolver(
+                    new RegistryNamespaceResolver(context.getNamespaceRegistry()));
+            final QueryObjectModelTree[] tree = new QueryObjectModelTree[1];
+            QueryObjectModelFactory factory =
+                new QueryObjectModelFactoryImpl(resolver) {
+                    @Override
+                    protected QueryObjectModel createQuery(
+                            QueryObjectModelTree qomTree) {
+                        tree[0] = qomTree;
+                        return null;
+                    }
+                };
+            try {
+                QueryObjectModelBuilderRegistry.getQueryObjectModelBuilder(
+                        language).createQueryObjectModel(statement, factory,
+                        new ValueFactoryImpl(resolver, context.getDataStore()));
+            } catch (RepositoryException e) {
+                return null;
+            }
+            return tree[0];
         }
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <code>QueryPlanCache</code> keeps the parsed query trees of recently
+ * created queries, keyed by query language and statement. The cached trees
+ * are shared by all sessions of a workspace and must therefore neither be
+ * modified nor depend on session local state. Bind variables are not part
+ * of a cached tree, their values are kept by the query instance and
+ * substituted when the query is executed.
+ * <p>
+ * The cache is bounded and evicts the least recently used query tree.
+ */
+public class QueryPlanCache {
+
+    /**
+     * The default number of cached query trees.
+     */
+    public static final int DEFAULT_SIZE = 1000;
+
+    /**
+     * The maximum number of cached query trees.
+     */
+    private final int maxSize;
+
+    /**
+     * The cached query trees in access order.
+     */
+    private final Map<String, Object> plans;
+
+    /**
+     * Creates a new query plan cache.
+     *
+     * @param maxSize the maximum number of cached query trees.
+     */
+    public QueryPlanCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.plans = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> e) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached query tree for the given statement.
+     *
+     * @param language  the query language.
+     * @param statement the query statement.
+     * @return the query tree or <code>null</code> if the statement is not
+     *         cached.
+     */
+    public synchronized Object get(String language, String statement) {
+        return plans.get(createKey(language, statement));
+    }
+
+    /**
+     * Adds the query tree of a statement to this cache.
+     *
+     * @param language  the query language.
+     * @param statement the query statement.
+     * @param plan      the parsed query tree.
+     */
+    public synchronized void put(
+            String language, String statement, Object plan) {
+        plans.put(createKey(language, statement), plan);
+    }
+
+    /**
+     * @return the number of cached query trees.
+     */
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    /**
+     * @return the maximum number of cached query trees.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes all query trees from this cache.
+     */
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    private static String createKey(String language, String statement) {
+        // a language name never contains a line break
+        return language + '\n' + statement;
+    }
+
+}
@@ -339,6 +339,7 @@ class CachingIndexReader extends FilterIndexReader {
         } catch (InterruptedException e) {
             // ignore
         }
+        termDocsCache.dispose();
         super.doClose();
     }
 
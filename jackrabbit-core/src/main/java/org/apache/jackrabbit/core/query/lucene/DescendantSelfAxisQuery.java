@@ -428,6 +428,13 @@ class DescendantSelfAxisQuery extends Query implements JackrabbitQuery {
          */
         private boolean contextHitsCalculated = false;
 
+        /**
+         * BitSet storing the id's of documents that are neither context hits
+         * nor descendants of a context hit. Populated during validation to
+         * stop the traversal of the ancestors of later hits early.
+         */
+        private final BitSet nonDescendants;
+
         /**
          * Remember document numbers of ancestors during validation
          */
@@ -462,6 +469,7 @@ class DescendantSelfAxisQuery extends Query implements JackrabbitQuery {
             this.hResolver = hResolver;
             // todo reuse BitSets?
             this.contextHits = new BitSet(reader.maxDoc());
+            this.nonDescendants = new BitSet(reader.maxDoc());
         }
 
         @Override
@@ -570,14 +578,19 @@ class DescendantSelfAxisQuery extends Query implements JackrabbitQuery {
             // traverse
             while (pDocs.length != 0) {
                 boolean valid = false;
+                boolean known = true;
                 for (int pDoc : pDocs) {
                     if (ancestorCount >= minLevels && contextHits.get(pDoc)) {
                         valid = true;
                         break;
                     }
+                    known &= nonDescendants.get(pDoc);
                 }
                 if (valid) {
                     break;
+                } else if (known) {
+                    // all parents are known to be outside of the context
+                    pDocs = new int[0];
                 } else {
                     // load next level
                     pDocs = getParents(pDocs, singleDoc);
@@ -603,6 +616,11 @@ class DescendantSelfAxisQuery extends Query implements JackrabbitQuery {
                 }
                 return true;
             }
+            // none of the ancestors on a level that was checked against the
+            // context hits is a context hit or a descendant of one
+            for (int i = Math.max(0, minLevels - 1); i < ancestorCount; i++) {
+                nonDescendants.set(ancestorDocs[i]);
+            }
             return false;
         }
 
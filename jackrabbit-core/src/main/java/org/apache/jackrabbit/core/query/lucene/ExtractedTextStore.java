@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>ExtractedTextStore</code> persists the text extracted from binaries
+ * in a data store, keyed by their {@link DataIdentifier}. The text is reused
+ * when the same binary is indexed again, for example when the workspace is
+ * re-indexed, a version is created or the same content is uploaded again.
+ * <p/>
+ * The texts are stored in compressed files in a directory tree similar to
+ * the one of the file data store. When the total size of the files exceeds
+ * the configured maximum, the least recently used files are deleted.
+ */
+public class ExtractedTextStore {
+
+    /**
+     * The logger instance for this class.
+     */
+    private static final Logger log =
+        LoggerFactory.getLogger(ExtractedTextStore.class);
+
+    /**
+     * The suffix of extracted text files.
+     */
+    private static final String SUFFIX = ".txt.gz";
+
+    /**
+     * The suffix of files that are being written.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * The directory of this store.
+     */
+    private final File directory;
+
+    /**
+     * The maximum size of the stored files in bytes.
+     */
+    private final long maxSize;
+
+    /**
+     * The current size of the stored files in bytes.
+     */
+    private long size;
+
+    /**
+     * Creates a new store.
+     *
+     * @param directory the directory of the store.
+     * @param maxSize the maximum size of the stored files in bytes.
+     * @throws IOException if the directory cannot be created.
+     */
+    public ExtractedTextStore(File directory, long maxSize)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory: " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        deleteTempFiles(directory);
+        List<File> files = new ArrayList<File>();
+        listFiles(directory, files);
+        for (File file : files) {
+            size += file.length();
+        }
+        log.debug("Extracted text store {} contains {} texts, {} bytes",
+                new Object[]{directory, files.size(), size});
+    }
+
+    /**
+     * Reads the text of a binary.
+     *
+     * @param identifier the identifier of the binary.
+     * @param maxFieldLength the maximum number of characters needed.
+     * @return the text or <code>null</code> if this store does not contain
+     *         the text of the binary, or only a shorter prefix of it.
+     */
+    public String read(DataIdentifier identifier, int maxFieldLength) {
+        File file = getFile(identifier);
+        try {
+            FileInputStream fin;
+            synchronized (this) {
+                // open the file while it can not be evicted, once it is
+                // open the contents remain readable
+                if (!file.exists()) {
+                    return null;
+                }
+                try {
+                    fin = new FileInputStream(file);
+                } catch (FileNotFoundException e) {
+                    return null;
+                }
+            }
+            DataInputStream in;
+            try {
+                in = new DataInputStream(new GZIPInputStream(
+                        new BufferedInputStream(fin)));
+            } catch (IOException e) {
+                fin.close();
+                throw e;
+            }
+            try {
+                if (!identifier.toString().equals(in.readUTF())) {
+                    return null;
+                }
+                int storedMaxLength = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                String text = new String(data, "UTF-8");
+                if (text.length() >= storedMaxLength
+                        && maxFieldLength > storedMaxLength) {
+                    // the stored text was truncated, but more is needed
+                    return null;
+                }
+                file.setLastModified(System.currentTimeMillis());
+                if (text.length() > maxFieldLength) {
+                    text = text.substring(0, maxFieldLength);
+                }
+                return text;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read extracted text: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the text of a binary.
+     *
+     * @param identifier the identifier of the binary.
+     * @param text the extracted text.
+     * @param maxFieldLength the maximum number of characters that were
+     *                       extracted.
+     */
+    public void write(DataIdentifier identifier, String text,
+                      int maxFieldLength) {
+        File file = getFile(identifier);
+        File temp = new File(file.getPath() + TEMP_SUFFIX
+                + Thread.currentThread().getId());
+        try {
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory: " + parent);
+            }
+            byte[] data = text.getBytes("UTF-8");
+            DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp))));
+            try {
+                out.writeUTF(identifier.toString());
+                out.writeInt(maxFieldLength);
+                out.writeInt(data.length);
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            long length = temp.length();
+            synchronized (this) {
+                if (file.exists()) {
+                    size -= file.length();
+                    file.delete();
+                }
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Unable to rename " + temp);
+                }
+                size += length;
+                if (size > maxSize) {
+                    evict();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to store extracted text: " + file, e);
+            temp.delete();
+        }
+    }
+
+    /**
+     * @return the current size of the stored files in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Deletes the least recently used files until the size of the store is
+     * below 90% of the maximum size.
+     */
+    private void evict() {
+        List<File> files = new ArrayList<File>();
+        listFiles(directory, files);
+        Collections.sort(files, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+        size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        long limit = maxSize - maxSize / 10;
+        int deleted = 0;
+        for (File file : files) {
+            if (size <= limit) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                deleted++;
+            }
+        }
+        log.debug("Deleted {} extracted texts, new size {} bytes",
+                deleted, size);
+    }
+
+    /**
+     * Returns the file that contains the text of a binary.
+     *
+     * @param identifier the identifier of the binary.
+     * @return the file.
+     */
+    private File getFile(DataIdentifier identifier) {
+        String name = identifier.toString();
+        if (!isSafeName(name)) {
+            // use a hash instead, the file contains the identifier
+            name = Integer.toHexString(name.hashCode());
+            while (name.length() < 8) {
+                name = "0" + name;
+            }
+        }
+        File file = new File(directory, name.substring(0, 2));
+        file = new File(file, name.substring(2, 4));
+        file = new File(file, name.substring(4, 6));
+        return new File(file, name + SUFFIX);
+    }
+
+    private static boolean isSafeName(String name) {
+        if (name.length() < 6 || name.length() > 128) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'z'
+                    || c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the temporary files that were left behind by writes that did
+     * not complete, for example because the process was killed.
+     *
+     * @param dir the directory to clean up.
+     */
+    private static void deleteTempFiles(File dir) {
+        File[] list = dir.listFiles();
+        if (list == null) {
+            return;
+        }
+        for (File file : list) {
+            if (file.isDirectory()) {
+                deleteTempFiles(file);
+            } else if (file.getName().indexOf(SUFFIX + TEMP_SUFFIX) >= 0) {
+                if (!file.delete()) {
+                    log.warn("Unable to delete temporary file: " + file);
+                }
+            }
+        }
+    }
+
+    private static void listFiles(File dir, List<File> files) {
+        File[] list = dir.listFiles();
+        if (list == null) {
+            return;
+        }
+        for (File file : list) {
+            if (file.isDirectory()) {
+                listFiles(file, files);
+            } else if (file.getName().endsWith(SUFFIX)) {
+                files.add(file);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.core.query.lucene;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.jackrabbit.core.SessionImpl;
 import org.apache.jackrabbit.core.query.lucene.constraint.EvaluationContext;
@@ -51,6 +52,12 @@ public class JackrabbitIndexSearcher
      */
     private final ItemStateManager ism;
 
+    /**
+     * The executor to scan index segments concurrently or <code>null</code>
+     * if segments are scanned with the calling thread.
+     */
+    private ExecutorService segmentExecutor;
+
     /**
      * Creates a new jackrabbit index searcher.
      *
@@ -113,6 +120,25 @@ public class JackrabbitIndexSearcher
         return hits;
     }
 
+    /**
+     * @return the executor to scan index segments concurrently or
+     *         <code>null</code> if segments are scanned with the calling
+     *         thread.
+     */
+    public ExecutorService getSegmentExecutor() {
+        return segmentExecutor;
+    }
+
+    /**
+     * Sets the executor to scan index segments concurrently.
+     *
+     * @param executor the executor or <code>null</code> to scan segments with
+     *                 the calling thread.
+     */
+    public void setSegmentExecutor(ExecutorService executor) {
+        this.segmentExecutor = executor;
+    }
+
     //---------------------------< IndexSearcher >------------------------------
 
     @Override
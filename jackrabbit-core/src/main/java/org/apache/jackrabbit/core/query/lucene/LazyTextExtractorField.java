@@ -16,11 +16,9 @@
  */
 package org.apache.jackrabbit.core.query.lucene;
 
-import java.io.InputStream;
 import java.io.Reader;
 import java.util.concurrent.Executor;
 
-import org.apache.jackrabbit.core.LowPriorityTask;
 import org.apache.jackrabbit.core.value.InternalValue;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.AbstractField;
@@ -28,12 +26,9 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.Field.TermVector;
 import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * <code>LazyTextExtractorField</code> implements a Lucene field with a String
@@ -53,17 +48,14 @@ public class LazyTextExtractorField extends AbstractField {
         LoggerFactory.getLogger(LazyTextExtractorField.class);
 
     /**
-     * The exception used to forcibly terminate the extraction process
-     * when the maximum field length is reached.
+     * The job that extracts the text content of the binary value.
      */
-    private static final SAXException STOP =
-        new SAXException("max field length reached");
+    private final TextExtractionJob job;
 
     /**
-     * The extracted text content of the given binary value.
-     * Set to non-null when the text extraction task finishes.
+     * Set to <code>true</code> when this field is disposed.
      */
-    private volatile String extract = null;
+    private boolean disposed = false;
 
     /**
      * Creates a new <code>LazyTextExtractorField</code> with the given
@@ -77,12 +69,38 @@ public class LazyTextExtractorField extends AbstractField {
     public LazyTextExtractorField(
             Parser parser, InternalValue value, Metadata metadata,
             Executor executor, boolean highlighting, int maxFieldLength) {
+        this(acquire(new TextExtractionJob(
+                null, null, parser, value, metadata, maxFieldLength)),
+                highlighting);
+        executor.execute(job);
+    }
+
+    /**
+     * Creates a new <code>LazyTextExtractorField</code> that takes its value
+     * from a text extraction job. The job must already be acquired for this
+     * field.
+     *
+     * @param job the text extraction job.
+     * @param highlighting set to <code>true</code> to
+     *                     enable result highlighting support
+     */
+    LazyTextExtractorField(TextExtractionJob job, boolean highlighting) {
         super(FieldNames.FULLTEXT,
                 highlighting ? Store.YES : Store.NO,
                 Field.Index.ANALYZED,
                 highlighting ? TermVector.WITH_OFFSETS : TermVector.NO);
-        executor.execute(
-                new ParsingTask(parser, value, metadata, maxFieldLength));
+        this.job = job;
+    }
+
+    /**
+     * Acquires a newly created job.
+     *
+     * @param job the job.
+     * @return the job.
+     */
+    private static TextExtractionJob acquire(TextExtractionJob job) {
+        job.acquire();
+        return job;
     }
 
     /**
@@ -91,12 +109,9 @@ public class LazyTextExtractorField extends AbstractField {
      *
      * @return the string value of this field
      */
-    public synchronized String stringValue() {
+    public String stringValue() {
         try {
-            while (!isExtractorFinished()) {
-                wait();
-            }
-            return extract;
+            return job.getText();
         } catch (InterruptedException e) {
             log.error("Text extraction thread was interrupted", e);
             return "";
@@ -130,91 +145,18 @@ public class LazyTextExtractorField extends AbstractField {
      * @return <code>true</code> if the extracted text is available
      */
     public boolean isExtractorFinished() {
-        return extract != null;
-    }
-
-    private synchronized void setExtractedText(String value) {
-        extract = value;
-        notify();
+        return job.isFinished();
     }
 
     /**
-     * Releases all resources associated with this field.
+     * Releases all resources associated with this field. The text extraction
+     * is stopped unless other fields use the same extraction job.
      */
-    public void dispose() {
-        // TODO: Cause the ContentHandler below to throw an exception
-    }
-
-    /**
-     * The background task for extracting text from a binary value.
-     */
-    private class ParsingTask extends DefaultHandler implements LowPriorityTask {
-
-        private final Parser parser;
-
-        private final InternalValue value;
-
-        private final Metadata metadata;
-
-        private final int maxFieldLength;
-
-        private final StringBuilder builder = new StringBuilder();
-
-        public ParsingTask(
-                Parser parser, InternalValue value, Metadata metadata,
-                int maxFieldLength) {
-            this.parser = parser;
-            this.value = value;
-            this.metadata = metadata;
-            this.maxFieldLength = maxFieldLength;
+    public synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            job.release();
         }
-
-        public void run() {
-            try {
-                InputStream stream = value.getStream();
-                try {
-                    parser.parse(stream, this, metadata, new ParseContext());
-                } finally {
-                    stream.close();
-                }
-            } catch (LinkageError e) {
-                // Capture and ignore errors caused by extraction libraries
-                // not being present. This is equivalent to disabling
-                // selected media types in configuration, so we can simply
-                // ignore these errors.
-            } catch (Throwable t) {
-                // Capture and report any other full text extraction problems.
-                // The special STOP exception is used for normal termination.
-                if (t != STOP) {
-                    log.debug("Failed to extract text from a binary property."
-                            + " This is a fairly common case, and nothing to"
-                            + " worry about. The stack trace is included to"
-                            + " help improve the text extraction feature.", t);
-                    builder.replace(0, builder.length(), "TextExtractionError");
-                }
-            } finally {
-                value.discard();
-            }
-            setExtractedText(builder.toString());
-        }
-
-        @Override
-        public void characters(char[] ch, int start, int length)
-                throws SAXException {
-            builder.append(
-                    ch, start,
-                    Math.min(length, maxFieldLength - builder.length()));
-            if (builder.length() >= maxFieldLength) {
-                throw STOP;
-            }
-        }
-
-        @Override
-        public void ignorableWhitespace(char[] ch, int start, int length)
-                throws SAXException {
-            characters(ch, start, length);
-        }
-
     }
 
 }
@@ -49,6 +49,7 @@ import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -94,6 +95,7 @@ import org.apache.jackrabbit.commons.predicate.RowPredicate;
 import org.apache.jackrabbit.commons.query.qom.OperandEvaluator;
 import org.apache.jackrabbit.core.SessionImpl;
 import org.apache.jackrabbit.core.query.lucene.join.SelectorRow;
+import org.apache.jackrabbit.core.query.lucene.join.TopRows;
 import org.apache.jackrabbit.core.query.lucene.join.ValueComparator;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.commons.conversion.IllegalNameException;
@@ -187,6 +189,36 @@ public class LuceneQueryFactory {
             Selector selector, Constraint constraint, Sort sort,
             boolean externalSort, long offsetIn, long limitIn)
             throws RepositoryException, IOException {
+        return execute(columns, selector, constraint, sort, externalSort,
+                offsetIn, limitIn, null);
+    }
+
+    /**
+     * Like {@link #execute(Map, Selector, Constraint, Sort, boolean, long, long)},
+     * but if <code>externalSort</code> is <code>true</code> and a comparator
+     * and a limit are given, only the first <code>offset + limit</code> rows
+     * in the order of the comparator are kept while reading the hits. The
+     * QueryEngine still applies the offset and limit to the returned rows.
+     *
+     * @param columns
+     * @param selector
+     * @param constraint
+     * @param externalSort
+     * @param offsetIn
+     *            used in pagination
+     * @param limitIn
+     *            used in pagination
+     * @param comparator
+     *            the order of the rows, or <code>null</code>
+     * @return a list of rows
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    public List<Row> execute(Map<String, PropertyValue> columns,
+            Selector selector, Constraint constraint, Sort sort,
+            boolean externalSort, long offsetIn, long limitIn,
+            Comparator<Row> comparator)
+            throws RepositoryException, IOException {
         final IndexReader reader = index.getIndexReader(true);
         final int offset = offsetIn < 0 ? 0 : (int) offsetIn;
         final int limit = limitIn < 0 ? Integer.MAX_VALUE : (int) limitIn;
@@ -196,6 +228,7 @@ public class LuceneQueryFactory {
             JackrabbitIndexSearcher searcher = new JackrabbitIndexSearcher(
                     session, reader, index.getContext().getItemStateManager());
             searcher.setSimilarity(index.getSimilarity());
+            searcher.setSegmentExecutor(index.getSegmentExecutor());
 
             Predicate filter = Predicate.TRUE;
             BooleanQuery query = new BooleanQuery();
@@ -213,6 +246,11 @@ public class LuceneQueryFactory {
             }
 
             List<Row> rows = new ArrayList<Row>();
+            TopRows top = null;
+            if (externalSort && comparator != null && limitIn >= 0
+                    && (long) offset + limit < Integer.MAX_VALUE) {
+                top = new TopRows(comparator, offset + limit);
+            }
 
             // TODO depending on the filters, we could push the offset info
             // into the searcher
@@ -234,7 +272,11 @@ public class LuceneQueryFactory {
                 if (row != null && filter.evaluate(row)) {
                     if (externalSort) {
                         // return everything and not worry about sort
-                        rows.add(row);
+                        if (top != null) {
+                            top.add(row);
+                        } else {
+                            rows.add(row);
+                        }
                     } else {
                         // apply limit and offset rules locally
                         if (currentNode >= offset
@@ -251,6 +293,9 @@ public class LuceneQueryFactory {
                 }
                 node = hits.nextScoreNode();
             }
+            if (top != null) {
+                return top.getRows();
+            }
             return rows;
         } finally {
             if (hits != null) {
@@ -78,7 +78,9 @@ import org.slf4j.LoggerFactory;
  * Note on implementation: Multiple modifying threads are synchronized on a
  * <code>MultiIndex</code> instance itself. Synchronization between a modifying
  * thread and reader threads is done using {@link #updateMonitor} and
- * {@link #updateInProgress}.
+ * {@link #updateInProgress}. An existing reader is handed out while holding
+ * only the {@link #updateMonitor}, so queries continue to run against the
+ * last committed state while an update is in progress.
  */
 public class MultiIndex {
 
@@ -152,6 +154,13 @@ public class MultiIndex {
      */
     private boolean updateInProgress = false;
 
+    /**
+     * The time when the last update became visible to new readers, or zero
+     * if a reader was opened since. Used to log how long it takes until
+     * an update is seen by queries.
+     */
+    private long lastUpdateTime = 0;
+
     /**
      * If not <code>null</code> points to a valid <code>IndexReader</code> that
      * reads from all indexes, including volatile and persistent indexes.
@@ -428,6 +437,7 @@ public class MultiIndex {
             }
         }
 
+        long time = System.currentTimeMillis();
         synchronized (updateMonitor) {
             updateInProgress = true;
         }
@@ -453,8 +463,12 @@ public class MultiIndex {
                 updateInProgress = false;
                 updateMonitor.notifyAll();
                 releaseMultiReader();
+                lastUpdateTime = System.currentTimeMillis();
             }
         }
+        log.debug("Index update with {} removed and {} added documents took {} ms",
+                new Object[]{remove.size(), add.size(),
+                        System.currentTimeMillis() - time});
     }
 
     /**
@@ -725,38 +739,57 @@ public class MultiIndex {
      * @return an <code>IndexReader</code>.
      * @throws IOException if an error occurs constructing the <code>IndexReader</code>.
      */
-    public synchronized CachingMultiIndexReader getIndexReader(boolean initCache) throws IOException {
+    public CachingMultiIndexReader getIndexReader(boolean initCache) throws IOException {
+        // fast path: hand out the current reader without locking this index,
+        // so that queries are not blocked by an update that is in progress.
+        // they see the index as it was before the update.
         synchronized (updateMonitor) {
             if (multiReader != null) {
                 multiReader.acquire();
                 return multiReader;
             }
-            // no reader available
-            // wait until no update is in progress
-            while (updateInProgress) {
-                try {
-                    updateMonitor.wait();
-                } catch (InterruptedException e) {
-                    throw new IOException("Interrupted while waiting to aquire reader");
+        }
+        synchronized (this) {
+            synchronized (updateMonitor) {
+                if (multiReader != null) {
+                    multiReader.acquire();
+                    return multiReader;
                 }
-            }
-            // some other read thread might have created the reader in the
-            // meantime -> check again
-            if (multiReader == null) {
-                List<ReadOnlyIndexReader> readerList =
-                    new ArrayList<ReadOnlyIndexReader>();
-                for (PersistentIndex pIdx : indexes) {
-                    if (indexNames.contains(pIdx.getName())) {
-                        readerList.add(pIdx.getReadOnlyIndexReader(initCache));
+                // no reader available
+                // wait until no update is in progress
+                while (updateInProgress) {
+                    try {
+                        updateMonitor.wait();
+                    } catch (InterruptedException e) {
+                        throw new IOException("Interrupted while waiting to aquire reader");
                     }
                 }
-                readerList.add(volatileIndex.getReadOnlyIndexReader());
-                ReadOnlyIndexReader[] readers =
-                    readerList.toArray(new ReadOnlyIndexReader[readerList.size()]);
-                multiReader = new CachingMultiIndexReader(readers, cache);
+                // some other read thread might have created the reader in the
+                // meantime -> check again
+                if (multiReader == null) {
+                    long time = System.currentTimeMillis();
+                    List<ReadOnlyIndexReader> readerList =
+                        new ArrayList<ReadOnlyIndexReader>();
+                    for (PersistentIndex pIdx : indexes) {
+                        if (indexNames.contains(pIdx.getName())) {
+                            readerList.add(pIdx.getReadOnlyIndexReader(initCache));
+                        }
+                    }
+                    readerList.add(volatileIndex.getReadOnlyIndexReader());
+                    ReadOnlyIndexReader[] readers =
+                        readerList.toArray(new ReadOnlyIndexReader[readerList.size()]);
+                    multiReader = new CachingMultiIndexReader(readers, cache);
+                    if (lastUpdateTime > 0) {
+                        log.debug("Index reader with {} segments opened in {} ms, {} ms after the last update",
+                                new Object[]{readers.length,
+                                        System.currentTimeMillis() - time,
+                                        System.currentTimeMillis() - lastUpdateTime});
+                        lastUpdateTime = 0;
+                    }
+                }
+                multiReader.acquire();
+                return multiReader;
             }
-            multiReader.acquire();
-            return multiReader;
         }
     }
 
@@ -796,7 +829,9 @@ public class MultiIndex {
 
             // commit / close indexes
             try {
-                releaseMultiReader();
+                synchronized (updateMonitor) {
+                    releaseMultiReader();
+                }
             } catch (IOException e) {
                 log.error("Exception while closing search index.", e);
             }
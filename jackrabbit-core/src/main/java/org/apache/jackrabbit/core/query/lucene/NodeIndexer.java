@@ -123,6 +123,12 @@ public class NodeIndexer {
      */
     private int maxExtractLength = Integer.MAX_VALUE;
 
+    /**
+     * The text extraction pipeline or <code>null</code> if text is extracted
+     * with {@link #executor} directly.
+     */
+    private TextExtractionPipeline extractionPipeline;
+
     /**
      * Creates a new node indexer.
      *
@@ -197,6 +203,16 @@ public class NodeIndexer {
         this.maxExtractLength = length;
     }
 
+    /**
+     * Sets the pipeline that schedules text extraction jobs.
+     *
+     * @param pipeline the text extraction pipeline or <code>null</code> to
+     *                 extract text with the executor of this node indexer.
+     */
+    public void setTextExtractionPipeline(TextExtractionPipeline pipeline) {
+        this.extractionPipeline = pipeline;
+    }
+
     /**
      * Creates a lucene Document.
      *
@@ -847,6 +863,11 @@ public class NodeIndexer {
      */
     protected Fieldable createFulltextField(
             InternalValue value, Metadata metadata) {
+        if (extractionPipeline != null) {
+            return extractionPipeline.createField(
+                    parser, value, metadata,
+                    supportHighlighting, getMaxExtractLength());
+        }
         return new LazyTextExtractorField(
                 parser, value, metadata, executor,
                 supportHighlighting, getMaxExtractLength());
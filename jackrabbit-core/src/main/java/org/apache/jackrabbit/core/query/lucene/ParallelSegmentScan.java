@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Searcher;
+
+/**
+ * <code>ParallelSegmentScan</code> calculates the documents that match a term
+ * based query on each index segment concurrently and merges the per segment
+ * results into a single <code>BitSet</code> in the document number space of
+ * the {@link MultiIndexReader}. If no executor is configured or the reader
+ * does not consist of multiple segments, the scan runs on the calling thread.
+ */
+class ParallelSegmentScan {
+
+    /**
+     * Collects the matching documents of a single index reader.
+     */
+    interface Collector {
+
+        /**
+         * Sets the bits of the documents in <code>reader</code> that match.
+         *
+         * @param reader the index reader to scan.
+         * @param hits   the bit set to collect the matching documents.
+         * @throws IOException if an error occurs while reading from the index.
+         */
+        void collect(IndexReader reader, BitSet hits) throws IOException;
+    }
+
+    /**
+     * Collects the hits of <code>collector</code> on <code>reader</code>.
+     *
+     * @param searcher  the searcher that executes the query.
+     * @param reader    the index reader.
+     * @param collector the collector for a single index reader.
+     * @param hits      the bit set to collect the matching documents.
+     * @throws IOException if an error occurs while reading from the index.
+     */
+    static void collect(Searcher searcher,
+                        IndexReader reader,
+                        Collector collector,
+                        BitSet hits) throws IOException {
+        ExecutorService executor = null;
+        if (searcher instanceof JackrabbitIndexSearcher) {
+            executor = ((JackrabbitIndexSearcher) searcher).getSegmentExecutor();
+        }
+        List<IndexReader> segments = new ArrayList<IndexReader>();
+        if (executor == null || !(reader instanceof MultiIndexReader)
+                || !getSegments(reader, segments) || segments.size() < 2) {
+            collector.collect(reader, hits);
+            return;
+        }
+
+        List<Future<BitSet>> futures = new ArrayList<Future<BitSet>>();
+        for (int i = 1; i < segments.size(); i++) {
+            futures.add(executor.submit(
+                    new SegmentTask(segments.get(i), collector)));
+        }
+        // scan the first segment with the calling thread
+        IndexReader first = segments.get(0);
+        collector.collect(first, hits);
+        int offset = first.maxDoc();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                BitSet segmentHits = futures.get(i).get();
+                for (int doc = segmentHits.nextSetBit(0);
+                     doc >= 0; doc = segmentHits.nextSetBit(doc + 1)) {
+                    hits.set(offset + doc);
+                }
+                offset += segments.get(i + 1).maxDoc();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while waiting for segment scan");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                IOException ex = new IOException(cause.getMessage());
+                ex.initCause(cause);
+                throw ex;
+            }
+        } finally {
+            for (Future<BitSet> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Adds the segment readers of <code>reader</code> to <code>segments</code>
+     * in document number order.
+     *
+     * @param reader   the index reader.
+     * @param segments where the segment readers are added.
+     * @return <code>true</code> if the segments cover the document numbers of
+     *         <code>reader</code> exactly; <code>false</code> otherwise.
+     */
+    private static boolean getSegments(IndexReader reader,
+                                       List<IndexReader> segments) {
+        int maxDoc = 0;
+        for (IndexReader r : ((MultiIndexReader) reader).getIndexReaders()) {
+            if (r instanceof MultiIndexReader) {
+                List<IndexReader> subSegments = new ArrayList<IndexReader>();
+                if (!getSegments(r, subSegments)) {
+                    return false;
+                }
+                segments.addAll(subSegments);
+            } else {
+                segments.add(r);
+            }
+            maxDoc += r.maxDoc();
+        }
+        return maxDoc == reader.maxDoc();
+    }
+
+    /**
+     * Scans a single segment.
+     */
+    private static final class SegmentTask implements Callable<BitSet> {
+
+        private final IndexReader segment;
+
+        private final Collector collector;
+
+        SegmentTask(IndexReader segment, Collector collector) {
+            this.segment = segment;
+            this.collector = collector;
+        }
+
+        public BitSet call() throws IOException {
+            BitSet hits = new BitSet(segment.maxDoc());
+            collector.collect(segment, hits);
+            return hits;
+        }
+    }
+}
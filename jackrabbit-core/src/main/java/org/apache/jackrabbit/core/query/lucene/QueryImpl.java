@@ -92,6 +92,22 @@ public class QueryImpl extends AbstractQueryImpl {
                 statement, language, sessionContext, factory);
     }
 
+    /**
+     * Creates a new query instance from an already parsed query tree. The
+     * query tree is not modified and may be shared with other queries.
+     *
+     * @param sessionContext component context of the current session
+     * @param index     the search index.
+     * @param propReg   the property type registry.
+     * @param root      the root node of the parsed query tree.
+     */
+    public QueryImpl(
+            SessionContext sessionContext, SearchIndex index,
+            PropertyTypeRegistry propReg, QueryRootNode root) {
+        super(sessionContext, index, propReg);
+        this.root = root;
+    }
+
     /**
      * Executes this query and returns a <code>{@link QueryResult}</code>.
      *
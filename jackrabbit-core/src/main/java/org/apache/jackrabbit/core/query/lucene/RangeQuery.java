@@ -25,7 +25,6 @@ import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Searcher;
-import org.apache.lucene.search.Similarity;
 import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.Weight;
 import org.slf4j.Logger;
@@ -242,7 +241,7 @@ public class RangeQuery extends Query implements Transformable {
          */
         protected Scorer createScorer(IndexReader reader, boolean scoreDocsInOrder,
                 boolean topScorer) {
-            return new RangeQueryScorer(searcher.getSimilarity(), reader, cache);
+            return new RangeQueryScorer(searcher, reader, cache);
         }
 
         /**
@@ -289,6 +288,11 @@ public class RangeQuery extends Query implements Transformable {
      */
     private final class RangeQueryScorer extends Scorer {
 
+        /**
+         * The searcher that executes the query.
+         */
+        private final Searcher searcher;
+
         /**
          * The index reader to use for calculating the matching documents.
          */
@@ -321,14 +325,15 @@ public class RangeQuery extends Query implements Transformable {
 
         /**
          * Creates a new RangeQueryScorer.
-         * @param similarity the similarity implementation.
+         * @param searcher the searcher that executes the query.
          * @param reader the index reader to use.
          */
         @SuppressWarnings({"unchecked"})
         RangeQueryScorer(
-                Similarity similarity, IndexReader reader,
+                Searcher searcher, IndexReader reader,
                 PerQueryCache cache) {
-            super(similarity);
+            super(searcher.getSimilarity());
+            this.searcher = searcher;
             this.reader = reader;
             StringBuffer key = new StringBuffer();
             key.append(lowerTerm != null ? lowerTerm.field() : upperTerm.field());
@@ -411,6 +416,30 @@ public class RangeQuery extends Query implements Transformable {
                 return;
             }
 
+            ParallelSegmentScan.collect(searcher, reader,
+                    new ParallelSegmentScan.Collector() {
+                        public void collect(IndexReader segment,
+                                            BitSet segmentHits)
+                                throws IOException {
+                            collectHits(segment, segmentHits);
+                        }
+                    }, hits);
+
+            hitsCalculated = true;
+            // put to cache
+            resultMap.put(cacheKey, hits);
+        }
+
+        /**
+         * Sets the bits of the documents in <code>reader</code> that match
+         * this range query.
+         *
+         * @param reader the index reader to scan.
+         * @param hits   the bit set to collect the matching documents.
+         * @throws IOException if an error occurs while reading from the index.
+         */
+        private void collectHits(IndexReader reader, BitSet hits)
+                throws IOException {
             String testField = getField();
 
             boolean checkLower = false;
@@ -499,10 +528,6 @@ public class RangeQuery extends Query implements Transformable {
                     terms.close();
                 }
             }
-
-            hitsCalculated = true;
-            // put to cache
-            resultMap.put(cacheKey, hits);
         }
 
         /**
@@ -32,6 +32,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.query.InvalidQueryException;
@@ -64,6 +68,7 @@ import org.apache.jackrabbit.core.query.AbstractQueryHandler;
 import org.apache.jackrabbit.core.query.ExecutableQuery;
 import org.apache.jackrabbit.core.query.QueryHandler;
 import org.apache.jackrabbit.core.query.QueryHandlerContext;
+import org.apache.jackrabbit.core.query.QueryPlanCache;
 import org.apache.jackrabbit.core.query.lucene.directory.DirectoryManager;
 import org.apache.jackrabbit.core.query.lucene.directory.FSDirectoryManager;
 import org.apache.jackrabbit.core.query.lucene.hits.AbstractHitCollector;
@@ -74,12 +79,15 @@ import org.apache.jackrabbit.core.state.ItemStateManager;
 import org.apache.jackrabbit.core.state.NoSuchItemStateException;
 import org.apache.jackrabbit.core.state.NodeState;
 import org.apache.jackrabbit.core.state.PropertyState;
+import org.apache.jackrabbit.core.stats.QueryStatCore;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.Path;
 import org.apache.jackrabbit.spi.PathFactory;
 import org.apache.jackrabbit.spi.commons.name.NameConstants;
 import org.apache.jackrabbit.spi.commons.name.PathFactoryImpl;
 import org.apache.jackrabbit.spi.commons.query.DefaultQueryNodeFactory;
+import org.apache.jackrabbit.spi.commons.query.QueryParser;
+import org.apache.jackrabbit.spi.commons.query.QueryRootNode;
 import org.apache.jackrabbit.spi.commons.query.qom.OrderingImpl;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
@@ -189,11 +197,33 @@ public class SearchIndex extends AbstractQueryHandler {
      */
     public static final long DEFAULT_EXTRACTOR_TIMEOUT = 100;
 
+    /**
+     * The default value for {@link #extractedTextCacheSize}.
+     */
+    public static final long DEFAULT_EXTRACTED_TEXT_CACHE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The default value for {@link #extractedTextMaxSize}: 1 GB.
+     */
+    public static final long DEFAULT_EXTRACTED_TEXT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * The default value for {@link #queryPlanCacheSize}.
+     */
+    public static final int DEFAULT_QUERY_PLAN_CACHE_SIZE =
+        QueryPlanCache.DEFAULT_SIZE;
+
     /**
      * The default value for {@link #termInfosIndexDivisor}.
      */
     public static final int DEFAULT_TERM_INFOS_INDEX_DIVISOR = 1;
 
+    /**
+     * The default value for {@link #segmentSearchPoolSize}. Index segments
+     * are scanned with the thread that executes the query.
+     */
+    public static final int DEFAULT_SEGMENT_SEARCH_POOL_SIZE = 0;
+
     /**
      * The path factory.
      */
@@ -318,6 +348,40 @@ public class SearchIndex extends AbstractQueryHandler {
      */
     private long extractorTimeout = DEFAULT_EXTRACTOR_TIMEOUT;
 
+    /**
+     * The maximum number of characters of recently extracted text that is
+     * kept in memory.
+     */
+    private long extractedTextCacheSize = DEFAULT_EXTRACTED_TEXT_CACHE_SIZE;
+
+    /**
+     * The directory where extracted text is persisted, keyed by data store
+     * identifier, or <code>null</code> if extracted text is not persisted.
+     */
+    private String extractedTextPath;
+
+    /**
+     * The maximum size in bytes of the persisted extracted text.
+     */
+    private long extractedTextMaxSize = DEFAULT_EXTRACTED_TEXT_MAX_SIZE;
+
+    /**
+     * The pipeline that schedules text extraction jobs.
+     */
+    private TextExtractionPipeline extractionPipeline;
+
+    /**
+     * The maximum number of parsed query statements that are cached.
+     * A value of zero disables the cache.
+     */
+    private int queryPlanCacheSize = DEFAULT_QUERY_PLAN_CACHE_SIZE;
+
+    /**
+     * The parsed query trees of recently created queries, or
+     * <code>null</code> if the cache is disabled.
+     */
+    private QueryPlanCache queryPlanCache;
+
     /**
      * Number of documents that are buffered before they are added to the index.
      */
@@ -475,6 +539,18 @@ public class SearchIndex extends AbstractQueryHandler {
      */
     private int termInfosIndexDivisor = DEFAULT_TERM_INFOS_INDEX_DIVISOR;
 
+    /**
+     * The number of threads that scan index segments concurrently when
+     * wildcard and range queries are executed.
+     */
+    private int segmentSearchPoolSize = DEFAULT_SEGMENT_SEARCH_POOL_SIZE;
+
+    /**
+     * The executor for concurrent segment scans or <code>null</code> if
+     * {@link #segmentSearchPoolSize} is zero.
+     */
+    private ExecutorService segmentExecutor;
+
     /**
      * The field comparator source for indexed properties.
      */
@@ -523,6 +599,18 @@ public class SearchIndex extends AbstractQueryHandler {
         synProvider = createSynonymProvider();
         directoryManager = createDirectoryManager();
         redoLogFactory = createRedoLogFactory();
+        segmentExecutor = createSegmentExecutor();
+        ExtractedTextStore extractedTextStore = null;
+        if (extractedTextPath != null) {
+            extractedTextStore = new ExtractedTextStore(
+                    new File(extractedTextPath), extractedTextMaxSize);
+        }
+        extractionPipeline = new TextExtractionPipeline(
+                context.getExecutor(), extractorBackLog,
+                extractedTextCacheSize, extractedTextStore);
+        if (queryPlanCacheSize > 0) {
+            queryPlanCache = new QueryPlanCache(queryPlanCacheSize);
+        }
 
         if (context.getParentHandler() instanceof SearchIndex) {
             // use system namespace mappings
@@ -710,9 +798,31 @@ public class SearchIndex extends AbstractQueryHandler {
     public ExecutableQuery createExecutableQuery(
             SessionContext sessionContext, String statement, String language)
             throws InvalidQueryException {
+        // the parsed query tree does not depend on the session unless
+        // the session remapped namespace prefixes
+        boolean cacheable = queryPlanCache != null
+                && !sessionContext.getSessionImpl().hasNamespaceRemappings();
+        QueryStatCore queryStat = sessionContext.getRepositoryContext()
+                .getStatManager().getQueryStat();
+        QueryRootNode root = null;
+        if (cacheable) {
+            Object plan = queryPlanCache.get(language, statement);
+            if (plan instanceof QueryRootNode) {
+                root = (QueryRootNode) plan;
+                queryStat.logPlanCacheHit();
+            }
+        }
+        if (root == null) {
+            root = QueryParser.parse(
+                    statement, language, sessionContext, getQueryNodeFactory());
+            if (cacheable) {
+                queryPlanCache.put(language, statement, root);
+                queryStat.logPlanCacheMiss();
+            }
+        }
         QueryImpl query = new QueryImpl(
                 sessionContext, this, getContext().getPropertyTypeRegistry(),
-                statement, language, getQueryNodeFactory());
+                root);
         query.setRespectDocumentOrder(documentOrder);
         return query;
     }
@@ -792,6 +902,18 @@ public class SearchIndex extends AbstractQueryHandler {
         if (spellChecker != null) {
             spellChecker.close();
         }
+        if (segmentExecutor != null) {
+            segmentExecutor.shutdown();
+        }
+        if (queryPlanCache != null) {
+            queryPlanCache.clear();
+        }
+        if (log.isDebugEnabled() && extractionPipeline != null) {
+            for (TextExtractionPipeline.Statistics stats
+                    : extractionPipeline.getStatistics().values()) {
+                log.debug("Text extraction: {}", stats);
+            }
+        }
         index.close();
         getContext().destroy();
         super.close();
@@ -828,6 +950,7 @@ public class SearchIndex extends AbstractQueryHandler {
         JackrabbitIndexSearcher searcher = new JackrabbitIndexSearcher(
                 session, reader, getContext().getItemStateManager());
         searcher.setSimilarity(getSimilarity());
+        searcher.setSegmentExecutor(getSegmentExecutor());
         return new FilterMultiColumnQueryHits(
                 searcher.execute(query, sort, resultFetchHint,
                         QueryImpl.DEFAULT_SELECTOR_NAME)) {
@@ -862,6 +985,7 @@ public class SearchIndex extends AbstractQueryHandler {
         JackrabbitIndexSearcher searcher = new JackrabbitIndexSearcher(
                 session, reader, getContext().getItemStateManager());
         searcher.setSimilarity(getSimilarity());
+        searcher.setSegmentExecutor(getSegmentExecutor());
         return new FilterMultiColumnQueryHits(
                 query.execute(searcher, orderings, resultFetchHint)) {
             public void close() throws IOException {
@@ -1079,6 +1203,15 @@ public class SearchIndex extends AbstractQueryHandler {
         return indexFormatVersion;
     }
 
+    /**
+     * @return the executor to scan index segments concurrently or
+     *         <code>null</code> if segments are scanned with the thread that
+     *         executes the query.
+     */
+    public ExecutorService getSegmentExecutor() {
+        return segmentExecutor;
+    }
+
     /**
      * @return the directory manager for this search index.
      */
@@ -1205,6 +1338,7 @@ public class SearchIndex extends AbstractQueryHandler {
         indexer.setIndexingConfiguration(indexingConfig);
         indexer.setIndexFormatVersion(indexFormatVersion);
         indexer.setMaxExtractLength(getMaxExtractLength());
+        indexer.setTextExtractionPipeline(extractionPipeline);
         Document doc = indexer.createDoc();
         mergeAggregatedNodeIndexes(node, doc, indexFormatVersion);
         return doc;
@@ -1314,6 +1448,29 @@ public class SearchIndex extends AbstractQueryHandler {
         }
     }
 
+    /**
+     * Creates the executor for concurrent segment scans based on
+     * {@link #getSegmentSearchPoolSize()}.
+     *
+     * @return the executor or <code>null</code> if segments are scanned with
+     *         the thread that executes the query.
+     */
+    protected ExecutorService createSegmentExecutor() {
+        if (segmentSearchPoolSize == 0) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(segmentSearchPoolSize,
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "SegmentSearch-"
+                                + count.incrementAndGet() + " (" + path + ")");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
     /**
      * Creates a file system resource to the synonym provider configuration.
      *
@@ -2169,6 +2326,97 @@ public class SearchIndex extends AbstractQueryHandler {
         return extractorTimeout;
     }
 
+    /**
+     * Sets the maximum number of characters of recently extracted text that
+     * is kept in memory. The text is reused when the same binary is indexed
+     * again.
+     *
+     * @param size the maximum number of characters.
+     */
+    public void setExtractedTextCacheSize(long size) {
+        extractedTextCacheSize = size;
+    }
+
+    /**
+     * @return the maximum number of characters of recently extracted text
+     *         that is kept in memory.
+     */
+    public long getExtractedTextCacheSize() {
+        return extractedTextCacheSize;
+    }
+
+    /**
+     * Sets the directory where extracted text is persisted. The text of a
+     * binary in the data store is then extracted only once, even when the
+     * workspace is re-indexed. The directory may be shared by the workspaces
+     * of a repository, but should not be inside the index directory.
+     *
+     * @param path the directory or <code>null</code> to disable the
+     *             persistent store.
+     */
+    public void setExtractedTextPath(String path) {
+        extractedTextPath = path;
+    }
+
+    /**
+     * @return the directory where extracted text is persisted or
+     *         <code>null</code> if extracted text is not persisted.
+     */
+    public String getExtractedTextPath() {
+        return extractedTextPath;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the persisted extracted text. Least
+     * recently used texts are deleted when the size is exceeded.
+     *
+     * @param size the maximum size in bytes.
+     */
+    public void setExtractedTextMaxSize(long size) {
+        extractedTextMaxSize = size;
+    }
+
+    /**
+     * @return the maximum size in bytes of the persisted extracted text.
+     */
+    public long getExtractedTextMaxSize() {
+        return extractedTextMaxSize;
+    }
+
+    /**
+     * @return the pipeline that schedules text extraction jobs.
+     */
+    public TextExtractionPipeline getTextExtractionPipeline() {
+        return extractionPipeline;
+    }
+
+    /**
+     * Sets the maximum number of parsed query statements that are kept in
+     * memory and shared by the sessions of the workspace. Queries created
+     * again from a cached statement skip parsing. A value of zero disables
+     * the cache.
+     *
+     * @param size the maximum number of cached query statements.
+     */
+    public void setQueryPlanCacheSize(int size) {
+        queryPlanCacheSize = size;
+    }
+
+    /**
+     * @return the maximum number of cached query statements.
+     */
+    public int getQueryPlanCacheSize() {
+        return queryPlanCacheSize;
+    }
+
+    /**
+     * @return the cache of parsed query statements or <code>null</code> if
+     *         the cache is disabled.
+     */
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
     /**
      * If set to <code>true</code> additional information is stored in the index
      * to support highlighting using the rep:excerpt pseudo property.
@@ -2436,6 +2684,27 @@ public class SearchIndex extends AbstractQueryHandler {
         this.termInfosIndexDivisor = termInfosIndexDivisor;
     }
 
+    /**
+     * @return the number of threads that scan index segments concurrently.
+     */
+    public int getSegmentSearchPoolSize() {
+        return segmentSearchPoolSize;
+    }
+
+    /**
+     * Sets the number of threads that scan index segments concurrently when
+     * wildcard and range queries are executed. A value of zero disables
+     * concurrent scans.
+     *
+     * @param poolSize the number of threads.
+     */
+    public void setSegmentSearchPoolSize(int poolSize) {
+        if (poolSize < 0) {
+            poolSize = 0;
+        }
+        this.segmentSearchPoolSize = poolSize;
+    }
+
     /**
      * @return <code>true</code> if the hierarchy cache should be initialized
      *         immediately on startup.
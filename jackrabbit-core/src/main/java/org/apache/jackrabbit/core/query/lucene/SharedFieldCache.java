@@ -18,6 +18,7 @@ package org.apache.jackrabbit.core.query.lucene;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -136,6 +137,16 @@ public class SharedFieldCache {
             return offset;
         }
 
+        /**
+         * @return a copy of this array, which can be modified independently.
+         */
+        public ComparableArray copy() {
+            ComparableArray copy = new ComparableArray(null, 0);
+            copy.offset = offset;
+            copy.c = c.clone();
+            return copy;
+        }
+
         public ComparableArray insert(Comparable<?> item, int index) {
             // optimize for most common scenario
             if (c.length == 0) {
@@ -229,6 +240,10 @@ public class SharedFieldCache {
         if (ret == null) {
             final int maxDocs = reader.maxDoc();
             ComparableArray[] retArray = new ComparableArray[maxDocs];
+            // documents with an array of their own. all other documents
+            // share the array of the term with the other documents that
+            // have a single value for the property
+            BitSet ownArrays = new BitSet();
             int setValues = 0;
             if (maxDocs > 0) {
                 IndexFormatVersion version = IndexFormatVersion.getVersion(reader);
@@ -253,6 +268,9 @@ public class SharedFieldCache {
                             break;
                         }
                         final String value = termValueAsString(term, prefix);
+                        // shared array for the documents with a single value
+                        ComparableArray shared = null;
+                        int sharedType = PropertyType.UNDEFINED;
                         termDocs.seek(term);
                         while (termDocs.next()) {
                             int termPosition = 0;
@@ -266,14 +284,27 @@ public class SharedFieldCache {
                                 }
                             }
                             setValues++;
-                            Comparable<?> v = getValue(value, type);
                             int doc = termDocs.doc();
                             ComparableArray ca = retArray[doc];
+                            if (ca == null && termPosition == 0) {
+                                if (shared == null || sharedType != type) {
+                                    shared = new ComparableArray(
+                                            getValue(value, type), 0);
+                                    sharedType = type;
+                                }
+                                retArray[doc] = shared;
+                                continue;
+                            }
+                            Comparable<?> v = getValue(value, type);
                             if (ca == null) {
                                 retArray[doc] = new ComparableArray(v, termPosition);
                             } else {
+                                if (!ownArrays.get(doc)) {
+                                    ca = ca.copy();
+                                }
                                 retArray[doc] = ca.insert(v, termPosition);
                             }
+                            ownArrays.set(doc);
                         }
                     } while (termEnum.next());
                 } finally {
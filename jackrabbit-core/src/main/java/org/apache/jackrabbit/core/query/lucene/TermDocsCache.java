@@ -17,23 +17,37 @@
 package org.apache.jackrabbit.core.query.lucene;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.Collections;
-import java.util.BitSet;
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.SortedVIntList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * <code>TermDocsCache</code> implements a cache for frequently read
  * {@link TermDocs}.
+ * <p>
+ * A cache instance belongs to the reader of a single index segment and is
+ * therefore kept as long as that segment is unchanged, even when the
+ * {@link MultiIndex} reader is re-opened. The cached documents are stored
+ * either as a bit set or, for sparse terms, as a compressed list of document
+ * numbers, whichever is smaller. The memory used by all caches together is
+ * limited by the system property
+ * <code>org.apache.jackrabbit.core.query.lucene.TermDocsCache.maxMemory</code>
+ * (in bytes, 32MB by default); beyond that TermDocs are read from the index
+ * again.
  */
 public class TermDocsCache {
 
@@ -47,6 +61,51 @@ public class TermDocsCache {
      */
     private static final int CACHE_SIZE = 10;
 
+    /**
+     * The maximum number of unknown term texts to remember.
+     */
+    private static final int UNKNOWN_VALUES_SIZE = 100;
+
+    /**
+     * The maximum amount of memory used by all caches together.
+     */
+    private static final long MAX_MEMORY = Long.getLong(
+            "org.apache.jackrabbit.core.query.lucene.TermDocsCache.maxMemory",
+            32 * 1024 * 1024);
+
+    /**
+     * The amount of memory currently used by all caches. This and the
+     * following counters are shared by all instances in the JVM, and
+     * therefore by all repositories in it, like {@link #MAX_MEMORY}.
+     */
+    private static final AtomicLong memoryUsed = new AtomicLong();
+
+    /**
+     * The number of requests served from the cached docs.
+     */
+    private static final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The number of cached docs removed from a cache while the index
+     * segment was still in use.
+     */
+    private static final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * The number of docs not cached because the memory limit was reached.
+     */
+    private static final AtomicLong rejectCount = new AtomicLong();
+
+    /**
+     * Marker for docs that are not cached because of the memory limit.
+     */
+    private static final DocIdSet NOT_CACHED = new SortedVIntList(new int[0]);
+
+    /**
+     * Marker for docs that are not collected yet.
+     */
+    private static final DocIdSet NOT_COLLECTED = new SortedVIntList(new int[0]);
+
     /**
      * The underlying index reader.
      */
@@ -58,21 +117,15 @@ public class TermDocsCache {
     private final String field;
 
     /**
-     * Map of {@link Term#text()} that are unknown to the underlying index.
+     * Set of {@link Term#text()} that are unknown to the underlying index.
      */
-    private final Map<String, String> unknownValues = Collections.synchronizedMap(new LinkedHashMap<String, String>() {
-        private static final long serialVersionUID = 1443679637070403838L;
-
-        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
-            return size() > 100;
-        }
-    });
+    private final Map<String, Boolean> unknownValues = new ConcurrentHashMap<String, Boolean>();
 
     /**
      * The cache of the {@link #CACHE_SIZE} most frequently requested TermDocs.
      * Maps term text <code>String</code> to {@link CacheEntry}.
      */
-    private final Map<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>();
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
 
     /**
      * Creates a new cache for the given <code>reader</code> and
@@ -99,45 +152,32 @@ public class TermDocsCache {
         }
 
         String text = t.text();
-        if (unknownValues.get(text) != null) {
+        if (unknownValues.containsKey(text)) {
             log.debug("EmptyTermDocs({},{})", field, text);
             return EmptyTermDocs.INSTANCE;
         }
 
         // maintain cache
-        CacheEntry entry;
-        synchronized (cache) {
-            entry = cache.get(text);
-            if (entry == null) {
-                // check space
-                if (cache.size() >= CACHE_SIZE) {
-                    // prune half of them and adjust the rest
-                    CacheEntry[] entries = cache.values().toArray(
-                            new CacheEntry[cache.size()]);
-                    Arrays.sort(entries);
-                    int threshold = entries[CACHE_SIZE / 2].numAccessed;
-                    for (Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator(); it.hasNext(); ) {
-                        Map.Entry<String, CacheEntry> e = it.next();
-                        if (e.getValue().numAccessed <= threshold) {
-                            // prune
-                            it.remove();
-                        } else {
-                            // adjust
-                            CacheEntry ce = e.getValue();
-                            ce.numAccessed = (int) Math.sqrt(ce.numAccessed);
-                        }
+        CacheEntry entry = cache.get(text);
+        if (entry == null) {
+            synchronized (cache) {
+                entry = cache.get(text);
+                if (entry == null) {
+                    // check space
+                    if (cache.size() >= CACHE_SIZE) {
+                        prune();
                     }
+                    entry = new CacheEntry();
+                    cache.put(text, entry);
                 }
-                entry = new CacheEntry();
-                cache.put(text, entry);
-            } else {
-                entry.numAccessed++;
             }
+        } else {
+            entry.numAccessed.incrementAndGet();
         }
 
         // this is a threshold to prevent caching of TermDocs
         // that are read only irregularly.
-        if (entry.numAccessed < 10) {
+        if (entry.numAccessed.get() < 10) {
             if (log.isDebugEnabled()) {
                 log.debug("#{} TermDocs({},{})",
                         new Object[]{entry.numAccessed, field, text});
@@ -145,47 +185,111 @@ public class TermDocsCache {
             return reader.termDocs(t);
         }
 
-        if (entry.bits == null) {
-            // collect bits
-            BitSet bits = null;
-            TermDocs tDocs = reader.termDocs(t);
-            try {
-                while (tDocs.next()) {
-                    if (bits == null) {
-                        bits = new BitSet(reader.maxDoc());
-                    }
-                    bits.set(tDocs.doc());
+        DocIdSet docs = entry.getDocs(t);
+        if (docs == NOT_CACHED) {
+            return reader.termDocs(t);
+        } else if (docs == null) {
+            // none collected
+            if (unknownValues.size() >= UNKNOWN_VALUES_SIZE) {
+                // forget an arbitrary one
+                Iterator<String> it = unknownValues.keySet().iterator();
+                if (it.hasNext()) {
+                    unknownValues.remove(it.next());
                 }
-            } finally {
-                tDocs.close();
-            }
-            if (bits != null) {
-                entry.bits = bits;
             }
-        }
-
-        if (entry.bits == null) {
-            // none collected
-            unknownValues.put(text, text);
+            unknownValues.put(text, Boolean.TRUE);
             return EmptyTermDocs.INSTANCE;
         } else {
+            hitCount.incrementAndGet();
             if (log.isDebugEnabled()) {
-                log.debug("CachedTermDocs({},{},{}/{})", new Object[]{
-                        field, text, entry.bits.cardinality(), reader.maxDoc()});
+                log.debug("CachedTermDocs({},{},{} bytes)", new Object[]{
+                        field, text, entry.size});
             }
-            return new CachedTermDocs(entry.bits);
+            return new CachedTermDocs(docs.iterator());
         }
     }
 
     /**
-     * Implements a {@link TermDocs} base on a {@link BitSet}.
+     * Releases the memory accounted for the docs cached by this instance.
+     * Must be called when the underlying reader is closed.
+     */
+    public void dispose() {
+        synchronized (cache) {
+            for (CacheEntry entry : cache.values()) {
+                entry.release();
+            }
+            cache.clear();
+        }
+        unknownValues.clear();
+    }
+
+    /**
+     * @return the number of bytes currently used by all caches in the JVM.
+     */
+    public static long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    /**
+     * @return the number of TermDocs served from a cache in the JVM.
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of cached TermDocs that were evicted in the JVM.
+     */
+    public static long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return the number of TermDocs in the JVM that were not cached
+     *         because the memory limit was reached.
+     */
+    public static long getRejectCount() {
+        return rejectCount.get();
+    }
+
+    /**
+     * Prunes half of the cache entries and adjusts the access count of the
+     * rest. The caller must synchronize on {@link #cache}.
+     */
+    private void prune() {
+        CacheEntry[] entries = cache.values().toArray(
+                new CacheEntry[cache.size()]);
+        int[] accessed = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            accessed[i] = entries[i].numAccessed.get();
+        }
+        Arrays.sort(accessed);
+        int threshold = accessed[CACHE_SIZE / 2];
+        for (Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, CacheEntry> e = it.next();
+            CacheEntry ce = e.getValue();
+            if (ce.numAccessed.get() <= threshold) {
+                // prune
+                it.remove();
+                if (ce.release()) {
+                    evictionCount.incrementAndGet();
+                }
+            } else {
+                // adjust
+                ce.numAccessed.set((int) Math.sqrt(ce.numAccessed.get()));
+            }
+        }
+    }
+
+    /**
+     * Implements a {@link TermDocs} based on a {@link DocIdSetIterator}.
      */
     private static final class CachedTermDocs implements TermDocs {
 
         /**
          * The cached docs for this term.
          */
-        private final BitSet docs;
+        private final DocIdSetIterator docs;
 
         /**
          * The current position into the {@link #docs}.
@@ -197,7 +301,7 @@ public class TermDocsCache {
          */
         private boolean moreDocs = true;
 
-        public CachedTermDocs(BitSet docs) {
+        public CachedTermDocs(DocIdSetIterator docs) {
             this.docs = docs;
         }
 
@@ -234,8 +338,8 @@ public class TermDocsCache {
          */
         public boolean next() throws IOException {
             if (moreDocs) {
-                position = docs.nextSetBit(position + 1);
-                moreDocs = position != -1;
+                position = docs.nextDoc();
+                moreDocs = position != DocIdSetIterator.NO_MORE_DOCS;
             }
             return moreDocs;
         }
@@ -256,9 +360,9 @@ public class TermDocsCache {
          * {@inheritDoc}
          */
         public boolean skipTo(int target) throws IOException {
-            if (moreDocs) {
-                position = docs.nextSetBit(target);
-                moreDocs = position != -1;
+            if (moreDocs && (position < 0 || position < target)) {
+                position = docs.advance(target);
+                moreDocs = position != DocIdSetIterator.NO_MORE_DOCS;
             }
             return moreDocs;
         }
@@ -270,14 +374,111 @@ public class TermDocsCache {
         }
     }
 
-    private static final class CacheEntry implements Comparable<CacheEntry> {
+    private final class CacheEntry {
+
+        private final AtomicInteger numAccessed = new AtomicInteger(1);
+
+        /**
+         * The cached docs, <code>null</code> if there are none,
+         * {@link TermDocsCache#NOT_CACHED} if they are not cached or this
+         * entry was removed from the cache, or
+         * {@link TermDocsCache#NOT_COLLECTED}. Only changed while
+         * synchronized on this entry, so that cache hits need no lock.
+         */
+        private volatile DocIdSet docs = NOT_COLLECTED;
+
+        /**
+         * The memory used by {@link #docs}, in bytes.
+         */
+        private volatile long size;
 
-        private volatile int numAccessed = 1;
+        /**
+         * Returns the cached docs, collecting them on first access.
+         *
+         * @param t the term.
+         * @return the docs, <code>null</code> if there are none, or
+         *         {@link TermDocsCache#NOT_CACHED} if they are not cached.
+         * @throws IOException if an error occurs while reading from the index.
+         */
+        DocIdSet getDocs(Term t) throws IOException {
+            DocIdSet d = docs;
+            if (d != NOT_COLLECTED) {
+                return d;
+            }
+            synchronized (this) {
+                if (docs == NOT_COLLECTED) {
+                    docs = collect(t);
+                }
+                return docs;
+            }
+        }
 
-        private volatile BitSet bits;
+        /**
+         * Collects the docs of a term and accounts for their memory. The
+         * caller must synchronize on this entry.
+         *
+         * @param t the term.
+         * @return the docs, <code>null</code> if there are none, or
+         *         {@link TermDocsCache#NOT_CACHED} if the memory limit is
+         *         reached.
+         * @throws IOException if an error occurs while reading from the index.
+         */
+        private DocIdSet collect(Term t) throws IOException {
+            OpenBitSet bits = null;
+            TermDocs tDocs = reader.termDocs(t);
+            try {
+                while (tDocs.next()) {
+                    if (bits == null) {
+                        bits = new OpenBitSet(reader.maxDoc());
+                    }
+                    bits.fastSet(tDocs.doc());
+                }
+            } finally {
+                tDocs.close();
+            }
+            if (bits == null) {
+                return null;
+            }
+            // use the compressed representation if it is smaller
+            DocIdSet result;
+            long bitsSize = bits.getNumWords() * 8L;
+            SortedVIntList list = new SortedVIntList(bits);
+            if (list.getByteSize() < bitsSize) {
+                result = list;
+                size = list.getByteSize();
+            } else {
+                result = bits;
+                size = bitsSize;
+            }
+            if (memoryUsed.addAndGet(size) > MAX_MEMORY) {
+                // over budget: read from the index until this
+                // entry is pruned and the docs are collected again
+                memoryUsed.addAndGet(-size);
+                rejectCount.incrementAndGet();
+                log.debug("TermDocsCache memory limit of {} bytes reached", MAX_MEMORY);
+                result = NOT_CACHED;
+                size = 0;
+            }
+            return result;
+        }
 
-        public int compareTo(CacheEntry other) {
-            return (numAccessed < other.numAccessed ? -1 : (numAccessed == other.numAccessed ? 0 : 1));
+        /**
+         * Releases the memory accounted for the cached docs. The entry must
+         * not be used for caching afterwards.
+         *
+         * @return <code>true</code> if docs were cached.
+         */
+        synchronized boolean release() {
+            DocIdSet d = docs;
+            boolean cached = d != null && d != NOT_CACHED && d != NOT_COLLECTED;
+            if (cached) {
+                memoryUsed.addAndGet(-size);
+            }
+            // a thread that still holds this entry must not collect
+            // (and account) the docs again
+            docs = NOT_CACHED;
+            size = 0;
+            return cached;
         }
     }
 }
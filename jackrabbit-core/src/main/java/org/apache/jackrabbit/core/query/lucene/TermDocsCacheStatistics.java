@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.api.stats.RepositoryStatistics.Type;
+import org.apache.jackrabbit.core.stats.RepositoryStatisticsImpl;
+
+/**
+ * Copies the counters shared by all {@link TermDocsCache} instances to the
+ * statistics of a repository. Must be run once per second, the hit,
+ * eviction and reject counters are recorded as the change since the
+ * previous run. The counters are JVM-wide, if several repositories run in
+ * the same JVM, each of them reports the totals of all.
+ */
+public class TermDocsCacheStatistics implements Runnable {
+
+    private final AtomicLong hitCounter;
+
+    private final AtomicLong evictionCounter;
+
+    private final AtomicLong rejectCounter;
+
+    private final AtomicLong memoryUsed;
+
+    private long lastHitCount = TermDocsCache.getHitCount();
+
+    private long lastEvictionCount = TermDocsCache.getEvictionCount();
+
+    private long lastRejectCount = TermDocsCache.getRejectCount();
+
+    /**
+     * Creates a new recorder for the given repository statistics.
+     *
+     * @param statistics the repository statistics.
+     */
+    public TermDocsCacheStatistics(RepositoryStatisticsImpl statistics) {
+        hitCounter = statistics.getCounter(Type.TERM_DOCS_CACHE_HIT_COUNTER);
+        evictionCounter = statistics.getCounter(Type.TERM_DOCS_CACHE_EVICTION_COUNTER);
+        rejectCounter = statistics.getCounter(Type.TERM_DOCS_CACHE_REJECT_COUNTER);
+        memoryUsed = statistics.getCounter(Type.TERM_DOCS_CACHE_MEMORY_USED);
+    }
+
+    public synchronized void run() {
+        long hits = TermDocsCache.getHitCount();
+        hitCounter.addAndGet(hits - lastHitCount);
+        lastHitCount = hits;
+
+        long evictions = TermDocsCache.getEvictionCount();
+        evictionCounter.addAndGet(evictions - lastEvictionCount);
+        lastEvictionCount = evictions;
+
+        long rejects = TermDocsCache.getRejectCount();
+        rejectCounter.addAndGet(rejects - lastRejectCount);
+        lastRejectCount = rejects;
+
+        memoryUsed.set(TermDocsCache.getMemoryUsed());
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.io.InputStream;
+
+import org.apache.jackrabbit.core.LowPriorityTask;
+import org.apache.jackrabbit.core.value.InternalValue;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <code>TextExtractionJob</code> extracts the text of a binary value. A job
+ * may be shared by multiple {@link LazyTextExtractorField}s that index the
+ * same binary. A job that is not used by any field anymore stops the
+ * extraction at the next chunk of text.
+ */
+class TextExtractionJob extends DefaultHandler implements LowPriorityTask {
+
+    /**
+     * The logger instance for this class.
+     */
+    private static final Logger log =
+        LoggerFactory.getLogger(TextExtractionJob.class);
+
+    /**
+     * The exception used to forcibly terminate the extraction process
+     * when the maximum field length is reached or the job is cancelled.
+     */
+    private static final SAXException STOP =
+        new SAXException("max field length reached");
+
+    /**
+     * The text used when the extraction fails.
+     */
+    static final String ERROR_TEXT = "TextExtractionError";
+
+    private final TextExtractionPipeline pipeline;
+
+    private final Object key;
+
+    private final Parser parser;
+
+    private final InternalValue value;
+
+    private final Metadata metadata;
+
+    private final int maxFieldLength;
+
+    private final StringBuilder builder = new StringBuilder();
+
+    /**
+     * The extracted text. Set to non-null when the job finishes.
+     */
+    private volatile String extract;
+
+    /**
+     * Number of fields that use this job.
+     */
+    private int references = 0;
+
+    /**
+     * Set to <code>true</code> when the last field released this job before
+     * the extraction finished.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Set to <code>true</code> when the text was loaded from the extracted
+     * text store of the pipeline instead of being parsed.
+     */
+    private boolean loaded = false;
+
+    /**
+     * Creates a new text extraction job.
+     *
+     * @param pipeline the pipeline that coordinates this job or
+     *                 <code>null</code>.
+     * @param key the key of this job in the pipeline or <code>null</code>.
+     * @param parser the parser.
+     * @param value the binary value.
+     * @param metadata the metadata of the binary.
+     * @param maxFieldLength the maximum number of characters to extract.
+     */
+    TextExtractionJob(TextExtractionPipeline pipeline, Object key,
+                      Parser parser, InternalValue value, Metadata metadata,
+                      int maxFieldLength) {
+        this.pipeline = pipeline;
+        this.key = key;
+        this.parser = parser;
+        this.value = value;
+        this.metadata = metadata;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /**
+     * Creates a job that is already finished.
+     *
+     * @param text the extracted text.
+     */
+    TextExtractionJob(String text) {
+        this(null, null, null, null, null, 0);
+        this.extract = text;
+    }
+
+    /**
+     * @return the key of this job in the pipeline or <code>null</code>.
+     */
+    Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return the metadata of the binary.
+     */
+    Metadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Adds a reference to this job.
+     *
+     * @return <code>false</code> if this job was cancelled already and cannot
+     *         be used anymore; <code>true</code> otherwise.
+     */
+    synchronized boolean acquire() {
+        if (cancelled) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    /**
+     * Removes a reference from this job. The extraction is cancelled when
+     * the last reference is removed before the job finished.
+     */
+    synchronized void release() {
+        references--;
+        if (references <= 0 && extract == null) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the job was cancelled.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return <code>true</code> if the text was loaded from the extracted
+     *         text store instead of being parsed.
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return <code>true</code> if the extracted text is available.
+     */
+    boolean isFinished() {
+        return extract != null;
+    }
+
+    /**
+     * Returns the extracted text. This method blocks until the job finished.
+     *
+     * @return the extracted text.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    synchronized String getText() throws InterruptedException {
+        while (extract == null) {
+            wait();
+        }
+        return extract;
+    }
+
+    public void run() {
+        long time = System.currentTimeMillis();
+        boolean error = false;
+        try {
+            String stored = null;
+            if (!cancelled && pipeline != null) {
+                stored = pipeline.load(this);
+            }
+            if (stored != null) {
+                builder.append(stored);
+                loaded = true;
+            } else if (!cancelled) {
+                InputStream stream = value.getStream();
+                try {
+                    parser.parse(stream, this, metadata, new ParseContext());
+                } finally {
+                    stream.close();
+                }
+            }
+        } catch (LinkageError e) {
+            // Capture and ignore errors caused by extraction libraries
+            // not being present. This is equivalent to disabling
+            // selected media types in configuration, so we can simply
+            // ignore these errors.
+        } catch (Throwable t) {
+            // Capture and report any other full text extraction problems.
+            // The special STOP exception is used for normal termination.
+            if (t != STOP) {
+                log.debug("Failed to extract text from a binary property."
+                        + " This is a fairly common case, and nothing to"
+                        + " worry about. The stack trace is included to"
+                        + " help improve the text extraction feature.", t);
+                builder.replace(0, builder.length(), ERROR_TEXT);
+                error = true;
+            }
+        } finally {
+            value.discard();
+        }
+        String text = builder.toString();
+        synchronized (this) {
+            extract = text;
+            notifyAll();
+        }
+        if (pipeline != null) {
+            pipeline.finished(this, text, error,
+                    System.currentTimeMillis() - time);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        if (cancelled) {
+            throw STOP;
+        }
+        builder.append(
+                ch, start,
+                Math.min(length, maxFieldLength - builder.length()));
+        if (builder.length() >= maxFieldLength) {
+            throw STOP;
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length)
+            throws SAXException {
+        characters(ch, start, length);
+    }
+
+}
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.core.data.DataIdentifier;
+import org.apache.jackrabbit.core.value.InternalValue;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <code>TextExtractionPipeline</code> schedules the text extraction jobs of a
+ * search index. Binaries in a data store are identified by their content
+ * hash:
+ * <ul>
+ * <li>a binary that is currently extracted is not extracted a second time,
+ * the new field waits for the running job instead. This is the case when
+ * the same node is re-indexed while its text is still extracted.</li>
+ * <li>the text of recently extracted binaries is kept in memory, up to a
+ * configured number of characters.</li>
+ * <li>if an {@link ExtractedTextStore} is configured, extracted text is
+ * persisted and loaded from there before a binary is parsed.</li>
+ * </ul>
+ * If more than <code>backLog</code> jobs are pending, a new job is executed
+ * with the current thread instead of the executor. Extraction statistics are
+ * collected per MIME type.
+ */
+public class TextExtractionPipeline {
+
+    /**
+     * The logger instance for this class.
+     */
+    private static final Logger log =
+        LoggerFactory.getLogger(TextExtractionPipeline.class);
+
+    /**
+     * The executor for extraction jobs.
+     */
+    private final Executor executor;
+
+    /**
+     * The number of pending jobs until new jobs are executed with the
+     * current thread.
+     */
+    private final int backLog;
+
+    /**
+     * The maximum number of characters in {@link #recent}.
+     */
+    private final long maxCacheSize;
+
+    /**
+     * The persistent store of extracted text or <code>null</code>.
+     */
+    private final ExtractedTextStore store;
+
+    /**
+     * Jobs that are running or waiting for execution, keyed by binary.
+     */
+    private final Map<Key, TextExtractionJob> running =
+        new HashMap<Key, TextExtractionJob>();
+
+    /**
+     * Recently extracted text, keyed by binary.
+     */
+    private final LinkedHashMap<Key, String> recent =
+        new LinkedHashMap<Key, String>(16, 0.75f, true);
+
+    /**
+     * The number of characters in {@link #recent}.
+     */
+    private long cacheSize = 0;
+
+    /**
+     * The number of pending jobs.
+     */
+    private int pending = 0;
+
+    /**
+     * Statistics per MIME type.
+     */
+    private final Map<String, Statistics> statistics =
+        new TreeMap<String, Statistics>();
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param executor the executor for extraction jobs.
+     * @param backLog the number of pending jobs until new jobs are executed
+     *                with the current thread.
+     * @param maxCacheSize the maximum number of characters of recently
+     *                     extracted text kept in memory.
+     */
+    public TextExtractionPipeline(
+            Executor executor, int backLog, long maxCacheSize) {
+        this(executor, backLog, maxCacheSize, null);
+    }
+
+    /**
+     * Creates a new pipeline with a persistent store of extracted text.
+     *
+     * @param executor the executor for extraction jobs.
+     * @param backLog the number of pending jobs until new jobs are executed
+     *                with the current thread.
+     * @param maxCacheSize the maximum number of characters of recently
+     *                     extracted text kept in memory.
+     * @param store the persistent store of extracted text or
+     *              <code>null</code>.
+     */
+    public TextExtractionPipeline(
+            Executor executor, int backLog, long maxCacheSize,
+            ExtractedTextStore store) {
+        this.executor = executor;
+        this.backLog = backLog;
+        this.maxCacheSize = maxCacheSize;
+        this.store = store;
+    }
+
+    /**
+     * Creates a fulltext field for a binary value.
+     *
+     * @param parser the parser.
+     * @param value the binary value.
+     * @param metadata the metadata of the binary.
+     * @param highlighting whether highlighting is supported.
+     * @param maxFieldLength the maximum number of characters to extract.
+     * @return the field.
+     */
+    public LazyTextExtractorField createField(
+            Parser parser, InternalValue value, Metadata metadata,
+            boolean highlighting, int maxFieldLength) {
+        DataIdentifier identifier = value.getDataIdentifier();
+        Key key = null;
+        if (identifier != null) {
+            key = new Key(identifier, maxFieldLength);
+        }
+        TextExtractionJob job = null;
+        boolean execute = false;
+        boolean runNow = false;
+        synchronized (this) {
+            if (key != null) {
+                String text = recent.get(key);
+                if (text != null) {
+                    getStatistics(metadata).cacheHits.incrementAndGet();
+                    job = new TextExtractionJob(text);
+                    job.acquire();
+                } else {
+                    job = running.get(key);
+                    if (job != null && job.acquire()) {
+                        getStatistics(metadata).cacheHits.incrementAndGet();
+                    } else {
+                        job = null;
+                    }
+                }
+            }
+            if (job == null) {
+                job = new TextExtractionJob(
+                        this, key, parser, value, metadata, maxFieldLength);
+                job.acquire();
+                if (key != null) {
+                    running.put(key, job);
+                }
+                execute = true;
+                runNow = pending >= backLog;
+                pending++;
+            }
+        }
+        if (!execute) {
+            value.discard();
+        } else if (runNow) {
+            log.debug("Extraction back log full, extracting with current thread");
+            job.run();
+        } else {
+            executor.execute(job);
+        }
+        return new LazyTextExtractorField(job, highlighting);
+    }
+
+    /**
+     * Called by a job before it parses the binary.
+     *
+     * @param job the job.
+     * @return the text from the persistent store or <code>null</code> if
+     *         the binary must be parsed.
+     */
+    String load(TextExtractionJob job) {
+        Key key = (Key) job.getKey();
+        if (store == null || key == null) {
+            return null;
+        }
+        return store.read(key.identifier, key.maxFieldLength);
+    }
+
+    /**
+     * Called by a job when it finished.
+     *
+     * @param job the job.
+     * @param text the extracted text.
+     * @param error <code>true</code> if the extraction failed.
+     * @param time the time in milliseconds the extraction took.
+     */
+    void finished(TextExtractionJob job, String text,
+                  boolean error, long time) {
+        Key key = (Key) job.getKey();
+        if (store != null && key != null && !error
+                && !job.isCancelled() && !job.isLoaded()) {
+            store.write(key.identifier, text, key.maxFieldLength);
+        }
+        synchronized (this) {
+            finished(key, job, text, error, time);
+        }
+    }
+
+    private void finished(Key key, TextExtractionJob job, String text,
+                          boolean error, long time) {
+        pending--;
+        Statistics stats = getStatistics(job.getMetadata());
+        if (job.isCancelled()) {
+            stats.cancelled.incrementAndGet();
+        } else if (error) {
+            stats.errors.incrementAndGet();
+        } else if (job.isLoaded()) {
+            stats.storeHits.incrementAndGet();
+        } else {
+            stats.extractions.incrementAndGet();
+            stats.characters.addAndGet(text.length());
+            stats.time.addAndGet(time);
+        }
+        log.debug("Extracted {} characters from {} binary in {} ms",
+                new Object[]{text.length(), stats.mimeType, time});
+
+        if (key == null) {
+            return;
+        }
+        if (running.get(key) == job) {
+            running.remove(key);
+        }
+        if (!error && !job.isCancelled() && text.length() <= maxCacheSize) {
+            String previous = recent.put(key, text);
+            if (previous != null) {
+                cacheSize -= previous.length();
+            }
+            cacheSize += text.length();
+            Iterator<String> it = recent.values().iterator();
+            while (cacheSize > maxCacheSize && it.hasNext()) {
+                cacheSize -= it.next().length();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs that are running or waiting for execution.
+     */
+    public synchronized int getPendingJobs() {
+        return pending;
+    }
+
+    /**
+     * @return the extraction statistics, keyed by MIME type.
+     */
+    public synchronized Map<String, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(
+                new TreeMap<String, Statistics>(statistics));
+    }
+
+    private Statistics getStatistics(Metadata metadata) {
+        String mimeType = metadata.get(Metadata.CONTENT_TYPE);
+        if (mimeType == null) {
+            mimeType = "application/octet-stream";
+        }
+        Statistics stats = statistics.get(mimeType);
+        if (stats == null) {
+            stats = new Statistics(mimeType);
+            statistics.put(mimeType, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Text extraction statistics of a MIME type.
+     */
+    public static final class Statistics {
+
+        private final String mimeType;
+
+        private final AtomicLong extractions = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private final AtomicLong cancelled = new AtomicLong();
+
+        private final AtomicLong cacheHits = new AtomicLong();
+
+        private final AtomicLong storeHits = new AtomicLong();
+
+        private final AtomicLong characters = new AtomicLong();
+
+        private final AtomicLong time = new AtomicLong();
+
+        private Statistics(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        /**
+         * @return the MIME type.
+         */
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        /**
+         * @return the number of successful extractions.
+         */
+        public long getExtractions() {
+            return extractions.get();
+        }
+
+        /**
+         * @return the number of failed extractions.
+         */
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * @return the number of extractions that were stopped because the
+         *         text was not needed anymore.
+         */
+        public long getCancelled() {
+            return cancelled.get();
+        }
+
+        /**
+         * @return the number of binaries that were not extracted because
+         *         the text was in memory or extracted at the same time.
+         */
+        public long getCacheHits() {
+            return cacheHits.get();
+        }
+
+        /**
+         * @return the number of binaries whose text was loaded from the
+         *         extracted text store.
+         */
+        public long getStoreHits() {
+            return storeHits.get();
+        }
+
+        /**
+         * @return the number of extracted characters.
+         */
+        public long getCharacters() {
+            return characters.get();
+        }
+
+        /**
+         * @return the time in milliseconds spent parsing binaries.
+         */
+        public long getTime() {
+            return time.get();
+        }
+
+        /**
+         * @return the number of extracted characters per second.
+         */
+        public long getThroughput() {
+            long t = time.get();
+            return t == 0 ? 0 : characters.get() * 1000 / t;
+        }
+
+        public String toString() {
+            return mimeType + ": " + getExtractions() + " extractions, "
+                    + getErrors() + " errors, " + getCancelled()
+                    + " cancelled, " + getCacheHits() + " cache hits, "
+                    + getStoreHits() + " store hits, "
+                    + getThroughput() + " chars/s";
+        }
+    }
+
+    /**
+     * Identifies the extracted text of a binary.
+     */
+    private static final class Key {
+
+        private final DataIdentifier identifier;
+
+        private final int maxFieldLength;
+
+        Key(DataIdentifier identifier, int maxFieldLength) {
+            this.identifier = identifier;
+            this.maxFieldLength = maxFieldLength;
+        }
+
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return identifier.equals(other.identifier)
+                        && maxFieldLength == other.maxFieldLength;
+            }
+            return false;
+        }
+
+        public int hashCode() {
+            return identifier.hashCode() ^ maxFieldLength;
+        }
+    }
+}
@@ -28,7 +28,6 @@ import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Explanation;
-import org.apache.lucene.search.Similarity;
 import org.apache.lucene.util.ToStringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -224,7 +223,7 @@ public class WildcardQuery extends Query implements Transformable {
          */
         protected Scorer createScorer(IndexReader reader, boolean scoreDocsInOrder,
                 boolean topScorer) {
-            return new WildcardQueryScorer(searcher.getSimilarity(), reader, cache);
+            return new WildcardQueryScorer(searcher, reader, cache);
         }
 
         /**
@@ -262,6 +261,11 @@ public class WildcardQuery extends Query implements Transformable {
      */
     private final class WildcardQueryScorer extends Scorer {
 
+        /**
+         * The searcher that executes the query.
+         */
+        private final Searcher searcher;
+
         /**
          * The index reader to use for calculating the matching documents.
          */
@@ -295,14 +299,15 @@ public class WildcardQuery extends Query implements Transformable {
         /**
          * Creates a new WildcardQueryScorer.
          *
-         * @param similarity the similarity implementation.
+         * @param searcher   the searcher that executes the query.
          * @param reader     the index reader to use.
          */
         @SuppressWarnings({"unchecked"})
         WildcardQueryScorer(
-                Similarity similarity, IndexReader reader,
+                Searcher searcher, IndexReader reader,
                 PerQueryCache cache) {
-            super(similarity);
+            super(searcher.getSimilarity());
+            this.searcher = searcher;
             this.reader = reader;
             this.cacheKey = field + '\uFFFF' + tvf.createValue('\uFFFF' + pattern) + '\uFFFF' + transform;
             // check cache
@@ -374,6 +379,29 @@ public class WildcardQuery extends Query implements Transformable {
             if (hitsCalculated) {
                 return;
             }
+            ParallelSegmentScan.collect(searcher, reader,
+                    new ParallelSegmentScan.Collector() {
+                        public void collect(IndexReader segment,
+                                            BitSet segmentHits)
+                                throws IOException {
+                            collectHits(segment, segmentHits);
+                        }
+                    }, hits);
+            hitsCalculated = true;
+            // put to cache
+            resultMap.put(cacheKey, hits);
+        }
+
+        /**
+         * Sets the bits of the documents in <code>reader</code> that match
+         * this wildcard query.
+         *
+         * @param reader the index reader to scan.
+         * @param hits   the bit set to collect the matching documents.
+         * @throws IOException if an error occurs while reading from the index.
+         */
+        private void collectHits(IndexReader reader, BitSet hits)
+                throws IOException {
             TermEnum terms = new WildcardTermEnum(reader, field, tvf, pattern, transform);
             try {
                 // use unpositioned TermDocs
@@ -394,9 +422,6 @@ public class WildcardQuery extends Query implements Transformable {
             } finally {
                 terms.close();
             }
-            hitsCalculated = true;
-            // put to cache
-            resultMap.put(cacheKey, hits);
         }
 
     }
@@ -24,9 +24,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import javax.jcr.RepositoryException;
@@ -197,18 +200,8 @@ abstract class JoinMerger {
         Map<String, List<Row>> map = buildRightRowValues(rightRows);
 
         if (JCR_JOIN_TYPE_INNER.equals(type) && !map.isEmpty()) {
-            List<Row> rows = new ArrayList<Row>();
-            for (Row leftRow : new RowIterable(leftRows)) {
-                for (String value : getLeftValues(leftRow)) {
-                    List<Row> matchingRows = map.get(value);
-                    if (matchingRows != null) {
-                        for (Row rightRow : matchingRows) {
-                            rows.add(mergeRow(leftRow, rightRow));
-                        }
-                    }
-                }
-            }
-            return asQueryResult(new RowIteratorAdapter(rows));
+            return asQueryResult(new RowIteratorAdapter(new JoinRowIterator(
+                    leftRows, map, false, null, rowComparator)));
         }
 
         if (JCR_JOIN_TYPE_LEFT_OUTER.equals(type)) {
@@ -227,47 +220,9 @@ abstract class JoinMerger {
                 return asQueryResult(new RowIteratorAdapter(
                         Collections.emptySet()));
             }
-
-            List<Row> rows = new ArrayList<Row>();
-            for (Row leftRow : new RowIterable(leftRows)) {
-                for (String value : getLeftValues(leftRow)) {
-                    List<Row> matchingRows = map.get(value);
-                    if (matchingRows != null) {
-                        for (Row rightRow : matchingRows) {
-                            // I have possible WHERE clauses on the join that I
-                            // need to look at for each rightRow
-                            if (excludingOuterJoinRowsSet == null) {
-                                rows.add(mergeRow(leftRow, rightRow));
-                            } else {
-                                boolean isIncluded = false;
-                                // apparently
-                                // 'excludingOuterJoinRowsSet.contains' fails to
-                                // match rows
-
-                                // TODO can 'rightRow.getNode()' break because
-                                // of joins that are bigger than 2 way?
-                                // how does this perform for 3 way joins ?
-                                for (Row r : excludingOuterJoinRowsSet) {
-                                    if(rowComparator.compare(rightRow, r) == 0){
-                                        isIncluded = true;
-                                        break;
-                                    }
-                                }
-                                if (isIncluded) {
-                                    rows.add(mergeRow(leftRow, rightRow));
-                                }
-                            }
-                        }
-                    } else {
-                        // No matches in an outer join -> add a null row, if
-                        // there are no 'WHERE' conditions
-                        if (excludingOuterJoinRowsSet == null) {
-                            rows.add(mergeRow(leftRow, null));
-                        }
-                    }
-                }
-            }
-            return asQueryResult(new RowIteratorAdapter(rows));
+            return asQueryResult(new RowIteratorAdapter(new JoinRowIterator(
+                    leftRows, map, true, excludingOuterJoinRowsSet,
+                    rowComparator)));
         }
         return asQueryResult(new RowIteratorAdapter(Collections.emptySet()));
     }
@@ -305,6 +260,104 @@ abstract class JoinMerger {
                 left, leftSelectors, right, rightSelectors);
     }
 
+    /**
+     * Iterator that produces the joined rows lazily, one left row at a time,
+     * so that the complete join result never needs to be held in memory.
+     */
+    private class JoinRowIterator implements Iterator<Row> {
+
+        private final RowIterator leftRows;
+
+        private final Map<String, List<Row>> rightRows;
+
+        private final boolean isOuterJoin;
+
+        private final Set<Row> excludingOuterJoinRowsSet;
+
+        private final Comparator<Row> rowComparator;
+
+        /**
+         * Joined rows of the current left row that were not returned yet.
+         */
+        private final LinkedList<Row> pending = new LinkedList<Row>();
+
+        public JoinRowIterator(
+                RowIterator leftRows, Map<String, List<Row>> rightRows,
+                boolean isOuterJoin, Set<Row> excludingOuterJoinRowsSet,
+                Comparator<Row> rowComparator) {
+            this.leftRows = leftRows;
+            this.rightRows = rightRows;
+            this.isOuterJoin = isOuterJoin;
+            this.excludingOuterJoinRowsSet = excludingOuterJoinRowsSet;
+            this.rowComparator = rowComparator;
+        }
+
+        public boolean hasNext() {
+            while (pending.isEmpty() && leftRows.hasNext()) {
+                Row leftRow = leftRows.nextRow();
+                try {
+                    join(leftRow);
+                } catch (RepositoryException e) {
+                    // do not silently return fewer rows, the iterator
+                    // methods can not throw a checked exception
+                    throw new RuntimeException(
+                            "Failed to join row " + leftRow, e);
+                }
+            }
+            return !pending.isEmpty();
+        }
+
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.removeFirst();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void join(Row leftRow) throws RepositoryException {
+            for (String value : getLeftValues(leftRow)) {
+                List<Row> matchingRows = rightRows.get(value);
+                if (matchingRows != null) {
+                    for (Row rightRow : matchingRows) {
+                        if (isIncluded(rightRow)) {
+                            pending.add(mergeRow(leftRow, rightRow));
+                        }
+                    }
+                } else if (isOuterJoin && excludingOuterJoinRowsSet == null) {
+                    // No matches in an outer join -> add a null row, if
+                    // there are no 'WHERE' conditions
+                    pending.add(mergeRow(leftRow, null));
+                }
+            }
+        }
+
+        private boolean isIncluded(Row rightRow) {
+            // I have possible WHERE clauses on the join that I
+            // need to look at for each rightRow
+            if (!isOuterJoin || excludingOuterJoinRowsSet == null) {
+                return true;
+            }
+            // apparently
+            // 'excludingOuterJoinRowsSet.contains' fails to
+            // match rows
+
+            // TODO can 'rightRow.getNode()' break because
+            // of joins that are bigger than 2 way?
+            // how does this perform for 3 way joins ?
+            for (Row r : excludingOuterJoinRowsSet) {
+                if (rowComparator.compare(rightRow, r) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
     public abstract Set<String> getLeftValues(Row row)
             throws RepositoryException;
 
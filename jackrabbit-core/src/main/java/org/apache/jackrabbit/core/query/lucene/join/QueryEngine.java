@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -458,12 +459,19 @@ public class QueryEngine {
 
         // if true it means that the LuceneQueryFactory should just let the
         // QueryEngine take care of sorting and applying offset and limit
-        // constraints
-        boolean externalSort = !NATIVE_SORT;
+        // constraints. Without orderings the offset and limit are applied
+        // while reading the hits, and with a limit only the top rows are
+        // kept.
+        boolean externalSort = !NATIVE_SORT
+                && orderings != null && orderings.length > 0;
+        Comparator<Row> comparator = null;
+        if (externalSort) {
+            comparator = new RowComparator(orderings, evaluator);
+        }
         RowIterator rows = null;
         try {
             rows = new RowIteratorAdapter(lqf.execute(columnMap, selector,
-                    constraint, sort, externalSort, offset, limit));
+                    constraint, sort, externalSort, offset, limit, comparator));
         } catch (IOException e) {
             throw new RepositoryException("Failed to access the query index", e);
         } finally {
@@ -476,7 +484,7 @@ public class QueryEngine {
         }
         QueryResult result = new SimpleQueryResult(columnNames, selectorNames,
                 rows);
-        if (NATIVE_SORT) {
+        if (!externalSort) {
             return result;
         }
 
@@ -595,7 +603,10 @@ public class QueryEngine {
      * Sorts the given query results according to the given QOM orderings. If
      * one or more orderings have been specified, this method will iterate
      * through the entire original result set, order the collected rows, and
-     * return a new result set based on the sorted collection of rows.
+     * return a new result set based on the sorted collection of rows. If a
+     * limit is given, only the top <code>offset + limit</code> rows are kept
+     * in memory while iterating. Without orderings the offset and limit are
+     * applied lazily on the original rows.
      * 
      * @param result
      *            original query results
@@ -612,17 +623,19 @@ public class QueryEngine {
     protected static QueryResult sort(QueryResult result,
             final Ordering[] orderings, OperandEvaluator evaluator,
             long offset, long limit) throws RepositoryException {
-        if ((orderings != null && orderings.length > 0) || offset != 0
-                || limit >= 0) {
-            List<Row> rows = new ArrayList<Row>();
-
-            RowIterator iterator = result.getRows();
-            while (iterator.hasNext()) {
-                rows.add(iterator.nextRow());
-            }
-
-            if (orderings != null && orderings.length > 0) {
-                Collections.sort(rows, new RowComparator(orderings, evaluator));
+        if (orderings != null && orderings.length > 0) {
+            Comparator<Row> comparator = new RowComparator(orderings, evaluator);
+            List<Row> rows;
+            if (limit >= 0 && offset + limit < Integer.MAX_VALUE) {
+                rows = getTopRows(result.getRows(), comparator,
+                        (int) (offset + limit));
+            } else {
+                rows = new ArrayList<Row>();
+                RowIterator iterator = result.getRows();
+                while (iterator.hasNext()) {
+                    rows.add(iterator.nextRow());
+                }
+                Collections.sort(rows, comparator);
             }
 
             if (offset > 0) {
@@ -636,9 +649,100 @@ public class QueryEngine {
 
             return new SimpleQueryResult(result.getColumnNames(),
                     result.getSelectorNames(), new RowIteratorAdapter(rows));
+        } else if (offset != 0 || limit >= 0) {
+            RowIterator iterator = result.getRows();
+            // the size of the window, if the size of the result is known
+            long size = iterator.getSize();
+            if (size >= 0) {
+                size = Math.max(0, size - offset);
+                if (limit >= 0) {
+                    size = Math.min(size, limit);
+                }
+            }
+            try {
+                iterator.skip(offset);
+            } catch (NoSuchElementException e) {
+                // the offset is beyond the last row
+                iterator = RowIteratorAdapter.EMPTY;
+            }
+            return new SimpleQueryResult(result.getColumnNames(),
+                    result.getSelectorNames(), new LimitedRowIterator(
+                            iterator, limit, size));
         } else {
             return result;
         }
     }
 
+    /**
+     * Returns the first <code>n</code> rows of the given rows in the order
+     * of the given comparator. Only <code>n</code> rows are kept in memory at
+     * any time.
+     * 
+     * @param iterator
+     *            the rows
+     * @param comparator
+     *            row comparator
+     * @param n
+     *            number of rows to return
+     * @return the first <code>n</code> sorted rows
+     */
+    private static List<Row> getTopRows(RowIterator iterator,
+            Comparator<Row> comparator, int n) {
+        TopRows top = new TopRows(comparator, n);
+        while (iterator.hasNext()) {
+            top.add(iterator.nextRow());
+        }
+        return top.getRows();
+    }
+
+    /**
+     * Row iterator that stops after a given number of rows.
+     */
+    private static class LimitedRowIterator extends RowIteratorAdapter {
+
+        private final long limit;
+
+        private final long size;
+
+        private long count = 0;
+
+        public LimitedRowIterator(RowIterator iterator, long limit, long size) {
+            super(iterator);
+            this.limit = limit;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (limit < 0 || count < limit) && super.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            count++;
+            return super.next();
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getPosition() {
+            return count;
+        }
+
+        @Override
+        public void skip(long skipNum) {
+            for (long i = 0; i < skipNum; i++) {
+                next();
+            }
+        }
+
+    }
+
 }
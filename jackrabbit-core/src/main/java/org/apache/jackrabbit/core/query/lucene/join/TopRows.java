@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene.join;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import javax.jcr.query.Row;
+
+/**
+ * Keeps the first <code>n</code> of the added rows in the order of a given
+ * comparator. Only <code>n</code> rows are kept in memory at any time; rows
+ * that compare equal keep the order in which they were added, like with a
+ * full stable sort.
+ */
+public class TopRows {
+
+    /**
+     * The number of rows to keep.
+     */
+    private final int n;
+
+    /**
+     * The kept rows, the head of the queue is the row that is dropped next.
+     */
+    private final PriorityQueue<IndexedRow> queue;
+
+    /**
+     * The number of rows added so far.
+     */
+    private long count = 0;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param comparator row comparator
+     * @param n number of rows to keep
+     */
+    public TopRows(final Comparator<Row> comparator, int n) {
+        this.n = n;
+        this.queue = new PriorityQueue<IndexedRow>(
+                Math.max(1, Math.min(n + 1, 1024)),
+                new Comparator<IndexedRow>() {
+                    public int compare(IndexedRow a, IndexedRow b) {
+                        int c = comparator.compare(b.row, a.row);
+                        if (c == 0) {
+                            c = a.index > b.index ? -1 : (a.index < b.index ? 1 : 0);
+                        }
+                        return c;
+                    }
+                });
+    }
+
+    /**
+     * Adds a row. If more than <code>n</code> rows were added, the last row
+     * in the order of the comparator is dropped.
+     *
+     * @param row the row
+     */
+    public void add(Row row) {
+        queue.add(new IndexedRow(row, count++));
+        if (queue.size() > n) {
+            queue.poll();
+        }
+    }
+
+    /**
+     * Returns the kept rows in the order of the comparator. Must only be
+     * called once.
+     *
+     * @return the sorted rows
+     */
+    public List<Row> getRows() {
+        Row[] rows = new Row[queue.size()];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = queue.poll().row;
+        }
+        return Arrays.asList(rows);
+    }
+
+    /**
+     * A row together with its position in the unsorted rows.
+     */
+    private static class IndexedRow {
+
+        private final Row row;
+
+        private final long index;
+
+        public IndexedRow(Row row, long index) {
+            this.row = row;
+            this.index = index;
+        }
+
+    }
+
+}
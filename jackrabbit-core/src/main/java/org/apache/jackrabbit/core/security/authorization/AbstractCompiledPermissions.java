@@ -16,12 +16,13 @@
  */
 package org.apache.jackrabbit.core.security.authorization;
 
-import org.apache.commons.collections.map.LRUMap;
+import org.apache.jackrabbit.core.cache.ClockCache;
 import org.apache.jackrabbit.spi.Path;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.security.Privilege;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -29,13 +30,28 @@ import java.util.Set;
  */
 public abstract class AbstractCompiledPermissions implements CompiledPermissions {
 
+    /**
+     * The default maximum number of cached results.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
     // cache mapping a Path to a 'Result' containing permissions and privileges.
-    private final Map<Path, Result> cache;
-    private final Object monitor = new Object();
+    // lookups never block, concurrent evaluations of the same path may both
+    // build the result.
+    private final ClockCache<Path, Result> cache;
+
+    // the result for repository level operations, which are not bound to a path.
+    private volatile Result repositoryResult;
 
-    @SuppressWarnings("unchecked")
     protected AbstractCompiledPermissions() {
-        cache = new LRUMap(1000);
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize The maximum number of cached results.
+     */
+    protected AbstractCompiledPermissions(int cacheSize) {
+        cache = new ClockCache<Path, Result>(16, cacheSize);
     }
 
     /**
@@ -45,16 +61,23 @@ public abstract class AbstractCompiledPermissions implements CompiledPermissions
      * @throws RepositoryException if an error occurs.
      */
     public Result getResult(Path absPath) throws RepositoryException {
+        // remember the generation to detect a clearCache() while evaluating
+        long generation = cache.getGeneration();
         Result result;
-        synchronized (monitor) {
-            result = cache.get(absPath);
+        if (absPath == null) {
+            result = repositoryResult;
             if (result == null) {
-                if (absPath == null) {
-                    result = buildRepositoryResult();
-                } else {
-                    result = buildResult(absPath);
+                result = buildRepositoryResult();
+                repositoryResult = result;
+                if (cache.getGeneration() != generation) {
+                    repositoryResult = null;
                 }
-                cache.put(absPath, result);
+            }
+        } else {
+            result = cache.get(absPath);
+            if (result == null) {
+                result = buildResult(absPath);
+                cache.put(absPath, result, generation);
             }
         }
         return result;
@@ -90,9 +113,31 @@ public abstract class AbstractCompiledPermissions implements CompiledPermissions
      * Removes all entries from the cache.
      */
     protected void clearCache() {
-        synchronized (monitor) {
+        cache.clear();
+        repositoryResult = null;
+    }
+
+    /**
+     * Removes the entries of the items within the given scope from the cache.
+     * The results of all other items remain cached.
+     *
+     * @param scope The subtrees affected by access control modifications.
+     * @return The number of removed entries.
+     */
+    protected int clearCache(InvalidationScope scope) {
+        if (scope.includesAll()) {
+            int size = cache.size();
             cache.clear();
+            repositoryResult = null;
+            return size;
+        }
+        List<Path> paths = new ArrayList<Path>();
+        for (Path path : cache.entries().keySet()) {
+            if (scope.includes(path)) {
+                paths.add(path);
+            }
         }
+        return cache.removeAll(paths);
     }
 
     //------------------------------------------------< CompiledPermissions >---
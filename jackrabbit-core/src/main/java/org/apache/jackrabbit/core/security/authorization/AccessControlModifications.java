@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.core.security.authorization;
 
+import org.apache.jackrabbit.spi.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,10 @@ public class AccessControlModifications<K> {
 
     private final Map<K, Integer> modificationMap;
 
+    private final Map<K, Path> pathMap;
+
+    private final InvalidationScope scope;
+
     /**
      * @param modificationMap Map specifying the access control modifications.
      * The keys allows to identify the <code>Node</code> that was modified by
@@ -49,7 +54,27 @@ public class AccessControlModifications<K> {
      * </ul>
      */
     public AccessControlModifications(Map<K, Integer> modificationMap) {
+        this(modificationMap, Collections.<K, Path>emptyMap());
+    }
+
+    /**
+     * @param modificationMap Map specifying the access control modifications.
+     * See {@link #AccessControlModifications(Map)}.
+     * @param pathMap Map specifying the paths of the modified nodes. If the
+     * path of any modified node is unknown, listeners must assume that all
+     * access control content has been modified.
+     */
+    public AccessControlModifications(Map<K, Integer> modificationMap, Map<K, Path> pathMap) {
         this.modificationMap = Collections.unmodifiableMap(modificationMap);
+        this.pathMap = Collections.unmodifiableMap(pathMap);
+        if (!modificationMap.isEmpty() && pathMap.keySet().containsAll(modificationMap.keySet())) {
+            scope = new InvalidationScope();
+            for (Path path : pathMap.values()) {
+                scope.add(path);
+            }
+        } else {
+            scope = null;
+        }
     }
 
     /**
@@ -67,4 +92,22 @@ public class AccessControlModifications<K> {
     public Integer getType(K identifier) {
         return modificationMap.get(identifier);
     }
+
+    /**
+     * @param identifier
+     * @return The path of the <code>Node</code> identified by the given
+     * "identifier" or <code>null</code> if it is unknown.
+     */
+    public Path getPath(K identifier) {
+        return pathMap.get(identifier);
+    }
+
+    /**
+     * @return The subtrees affected by the modifications or <code>null</code>
+     * if the paths of the modified nodes are not known. In the latter case
+     * all cached permissions must be considered invalid.
+     */
+    public InvalidationScope getScope() {
+        return scope;
+    }
 }
\ No newline at end of file
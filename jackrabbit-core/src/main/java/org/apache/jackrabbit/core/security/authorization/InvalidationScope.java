@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.security.authorization;
+
+import org.apache.jackrabbit.spi.Path;
+import org.apache.jackrabbit.spi.commons.name.PathMap;
+
+/**
+ * <code>InvalidationScope</code> is the set of subtrees affected by access
+ * control modifications. The root paths of the subtrees are kept in a
+ * {@link PathMap}, so testing whether a path lies within the scope only
+ * walks along the elements of that path, regardless of the number of
+ * modified nodes.
+ */
+public class InvalidationScope {
+
+    private final PathMap<Boolean> roots = new PathMap<Boolean>();
+
+    private int size;
+
+    private boolean all;
+
+    /**
+     * Adds the subtree rooted at the given node to this scope.
+     *
+     * @param path The normalized absolute path of the modified node.
+     */
+    public void add(Path path) {
+        PathMap.Element<Boolean> element = roots.put(path);
+        if (element.get() == null) {
+            element.set(Boolean.TRUE);
+            size++;
+        }
+        all |= path.denotesRoot();
+    }
+
+    /**
+     * @param path A normalized absolute path.
+     * @return <code>true</code> if the given path is one of the modified
+     * nodes or a descendant of one of them.
+     */
+    public boolean includes(Path path) {
+        PathMap.Element<Boolean> element = roots.map(path, false);
+        while (element != null) {
+            if (element.get() != null) {
+                return true;
+            }
+            element = element.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if the root node was modified, in which case
+     * every path is within the scope.
+     */
+    public boolean includesAll() {
+        return all;
+    }
+
+    /**
+     * @return the number of modified nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if no node has been added.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
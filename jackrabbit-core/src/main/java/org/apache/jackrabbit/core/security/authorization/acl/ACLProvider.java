@@ -51,6 +51,8 @@ import javax.jcr.security.Privilege;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -84,6 +86,20 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
      */
     private static final Logger log = LoggerFactory.getLogger(ACLProvider.class);
 
+    /**
+     * Constant for the name of the configuration option "permission-cache-size".
+     * The option defines the maximum number of evaluation results cached by
+     * the compiled permissions of a session. Default is 5000.
+     */
+    public static final String PARAM_PERMISSION_CACHE_SIZE = "permission-cache-size";
+
+    /**
+     * Constant for the name of the configuration option "share-permissions".
+     * If set to <code>true</code> (the default) sessions with the same set of
+     * principals share their compiled permissions and the cached results.
+     */
+    public static final String PARAM_SHARE_PERMISSIONS = "share-permissions";
+
     /**
      * The node id of the root node
      */
@@ -96,6 +112,17 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
      */
     private EntryCollector entryCollector;
 
+    /**
+     * The maximum number of results cached by the compiled permissions.
+     */
+    private int permissionCacheSize = CompiledPermissionsImpl.DEFAULT_CACHE_SIZE;
+
+    /**
+     * Compiled permissions shared by all sessions with the same set of
+     * principal names, or <code>null</code> if permissions are not shared.
+     */
+    private Map<Set<String>, SharedPermissions> sharedPermissions;
+
     //----------------------------------------------< AccessControlProvider >---
     /**
      * @see org.apache.jackrabbit.core.security.authorization.AccessControlProvider#init(Session, Map)
@@ -116,6 +143,19 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
             initRootACL(session, systemEditor);
         }
 
+        Object cacheSize = configuration.get(PARAM_PERMISSION_CACHE_SIZE);
+        if (cacheSize != null) {
+            try {
+                permissionCacheSize = Integer.parseInt(cacheSize.toString());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for " + PARAM_PERMISSION_CACHE_SIZE + ": " + cacheSize);
+            }
+        }
+        Object share = configuration.get(PARAM_SHARE_PERMISSIONS);
+        if (share == null || Boolean.valueOf(share.toString())) {
+            sharedPermissions = new HashMap<Set<String>, SharedPermissions>();
+        }
+
         entryCollector = createEntryCollector(session);
     }
 
@@ -123,6 +163,11 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
     public void close() {
         super.close();        
         entryCollector.close();
+        if (sharedPermissions != null) {
+            synchronized (sharedPermissions) {
+                sharedPermissions.clear();
+            }
+        }
     }
 
     /**
@@ -239,8 +284,10 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
             return getAdminPermissions();
         } else if (isReadOnly(principals)) {
             return getReadOnlyPermissions();
+        } else if (sharedPermissions != null) {
+            return acquirePermissions(principals);
         } else {
-            return new CompiledPermissionsImpl(principals, session, entryCollector, this, true);
+            return new CompiledPermissionsImpl(principals, session, entryCollector, this, true, permissionCacheSize);
         }
     }
 
@@ -252,7 +299,14 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
         if (isAdminOrSystem(principals)) {
             return true;
         } else {
-            CompiledPermissions cp = new CompiledPermissionsImpl(principals, session, entryCollector, this, false);
+            // the shared permissions of the principals are most likely
+            // used by the session about to be created
+            CompiledPermissions cp;
+            if (sharedPermissions != null) {
+                cp = acquirePermissions(principals);
+            } else {
+                cp = new CompiledPermissionsImpl(principals, session, entryCollector, this, false);
+            }
             try {
                 return cp.canRead(null, rootNodeId);
             } finally {
@@ -275,7 +329,78 @@ public class ACLProvider extends AbstractAccessControlProvider implements Access
         return new CachingEntryCollector(systemSession, rootNodeId);
     }
 
+    /**
+     * @return The statistics of the permission caches of the sessions
+     * evaluated by this provider.
+     */
+    public PermissionCacheStatistics getPermissionCacheStatistics() {
+        return entryCollector.getStatistics();
+    }
+
     //------------------------------------------------------------< private >---
+    /**
+     * Returns the compiled permissions shared by all sessions with the
+     * given principals, creating them if no such session exists. The
+     * returned instance must be closed when it is no longer used.
+     *
+     * @param principals The principals of the session.
+     * @return The shared compiled permissions.
+     * @throws RepositoryException If an error occurs.
+     */
+    private CompiledPermissions acquirePermissions(Set<Principal> principals) throws RepositoryException {
+        Set<String> key = new HashSet<String>(principals.size());
+        for (Principal principal : principals) {
+            key.add(principal.getName());
+        }
+        synchronized (sharedPermissions) {
+            SharedPermissions cp = sharedPermissions.get(key);
+            if (cp == null) {
+                cp = new SharedPermissions(key, principals);
+                sharedPermissions.put(key, cp);
+            } else {
+                cp.references++;
+            }
+            return cp;
+        }
+    }
+
+    /**
+     * Compiled permissions shared by the sessions with the same principal
+     * names. They are only disposed after the last session closed them.
+     * Modifications of access control content are processed once for all
+     * of these sessions.
+     */
+    private final class SharedPermissions extends CompiledPermissionsImpl {
+
+        private final Set<String> key;
+
+        /**
+         * The number of sessions using this instance, guarded by
+         * {@link ACLProvider#sharedPermissions}.
+         */
+        private int references = 1;
+
+        private SharedPermissions(Set<String> key, Set<Principal> principals) throws RepositoryException {
+            super(principals, ACLProvider.this.session, ACLProvider.this.entryCollector,
+                    ACLProvider.this, true, ACLProvider.this.permissionCacheSize);
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            boolean dispose;
+            synchronized (sharedPermissions) {
+                dispose = --references == 0;
+                if (dispose && sharedPermissions.get(key) == this) {
+                    sharedPermissions.remove(key);
+                }
+            }
+            if (dispose) {
+                super.close();
+            }
+        }
+    }
+
     /**
      * Recursively collects all ACLs that are effective on the specified node.
      *
@@ -18,13 +18,17 @@ package org.apache.jackrabbit.core.security.authorization.acl;
 
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
-import org.apache.jackrabbit.core.cache.GrowingLRUMap;
+import org.apache.jackrabbit.core.cache.ClockCache;
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
+import org.apache.jackrabbit.core.security.authorization.InvalidationScope;
+import org.apache.jackrabbit.spi.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,10 +45,10 @@ class CachingEntryCollector extends EntryCollector {
     /**
      * Cache to look up the list of access control entries defined at a given
      * nodeID (key). The map only contains an entry if the corresponding Node
-     * is access controlled.
+     * is access controlled. Lookups do not block, so concurrent sessions
+     * evaluating permissions never wait for each other.
      */
-    private final Map<NodeId, Entries> cache;
-    private final Object monitor = new Object();
+    private final ClockCache<NodeId, Entries> cache;
 
     /**
      * Create a new instance.
@@ -53,7 +57,6 @@ class CachingEntryCollector extends EntryCollector {
      * @param rootID The id of the root node.
      * @throws RepositoryException If an error occurs.
      */
-    @SuppressWarnings("unchecked")    
     CachingEntryCollector(SessionImpl systemSession, NodeId rootID) throws RepositoryException {
         super(systemSession, rootID);
 
@@ -69,15 +72,13 @@ class CachingEntryCollector extends EntryCollector {
 
         log.info("Creating cache with max size of: " + maxsize);
 
-        cache = new GrowingLRUMap(1024, maxsize);
+        cache = new ClockCache<NodeId, Entries>(1024, maxsize);
     }
 
     @Override
     protected void close() {
         super.close();
-        synchronized (monitor) {
-            cache.clear();
-        }
+        cache.clear();
     }
 
     //-----------------------------------------------------< EntryCollector >---
@@ -86,16 +87,14 @@ class CachingEntryCollector extends EntryCollector {
      */
     @Override    
     protected Entries getEntries(NodeImpl node) throws RepositoryException {
-        Entries entries;
         NodeId nodeId = node.getNodeId();
-        synchronized (monitor) {
-            entries = cache.get(nodeId);
-            if (entries == null) {
-                // fetch entries and update the cache
-                entries = updateCache(node);
-            } else {
-                log.debug("Cache hit for nodeId {}", nodeId);
-            }
+        long generation = cache.getGeneration();
+        Entries entries = cache.get(nodeId);
+        if (entries == null) {
+            // fetch entries and update the cache
+            entries = updateCache(node, generation);
+        } else {
+            log.debug("Cache hit for nodeId {}", nodeId);
         }
         return entries;
     }
@@ -105,29 +104,30 @@ class CachingEntryCollector extends EntryCollector {
      */
     @Override
     protected Entries getEntries(NodeId nodeId) throws RepositoryException {
-        Entries entries;
-        synchronized (monitor) {
-            entries = cache.get(nodeId);
-            if (entries == null) {
-                // fetch entries and update the cache
-                NodeImpl n = getNodeById(nodeId);
-                entries = updateCache(n);
-            } else {
-                log.debug("Cache hit for nodeId {}", nodeId);
-            }
+        long generation = cache.getGeneration();
+        Entries entries = cache.get(nodeId);
+        if (entries == null) {
+            // fetch entries and update the cache
+            NodeImpl n = getNodeById(nodeId);
+            entries = updateCache(n, generation);
+        } else {
+            log.debug("Cache hit for nodeId {}", nodeId);
         }
         return entries;
     }
 
     /**
      * Read the entries defined for the specified node and update the cache
-     * accordingly.
+     * accordingly. The entries are not cached if the cache has been modified
+     * by an access control modification since the given generation, as they
+     * may have been read before the modification.
      *
      * @param node The target node
+     * @param generation The generation of the cache before reading the entries.
      * @return The list of entries present on the specified node or an empty list.
      * @throws RepositoryException If an error occurs.
      */
-    private Entries updateCache(NodeImpl node) throws RepositoryException {
+    private Entries updateCache(NodeImpl node, long generation) throws RepositoryException {
         Entries entries = super.getEntries(node);
         if (!entries.isEmpty()) {
             // find the next access control ancestor in the hierarchy
@@ -135,9 +135,9 @@ class CachingEntryCollector extends EntryCollector {
             NodeId nextId = null;
             NodeImpl n = node;            
             while (nextId == null && !rootID.equals(n.getNodeId())) {
-                if (cache.containsKey(n.getNodeId())) {
+                if (cache.get(n.getNodeId()) != null) {
                     nextId = n.getNodeId();
-                } else if (cache.containsKey(n.getParentId())) {
+                } else if (cache.get(n.getParentId()) != null) {
                     nextId = n.getParentId();
                 } else {
                     n = (NodeImpl) n.getParent();
@@ -150,7 +150,7 @@ class CachingEntryCollector extends EntryCollector {
             // adjust the 'nextId' to point to the next access controlled
             // ancestor node instead of the parent and remember the entries.
             entries.setNextId(nextId);
-            cache.put(node.getNodeId(), entries);
+            cache.put(node.getNodeId(), entries, generation);
             
             log.debug("Update cache for node with ID {0}: {1}", node, entries);
         } // else: not access controlled -> ignore.
@@ -183,6 +183,7 @@ class CachingEntryCollector extends EntryCollector {
     @SuppressWarnings("unchecked")
     public void notifyListeners(AccessControlModifications modifications) {
         /* Update cache for all affected access controlled nodes */
+        InvalidationScope added = new InvalidationScope();
         for (Object key : modifications.getNodeIdentifiers()) {
             if (!(key instanceof NodeId)) {
                 log.warn("Cannot process AC modificationMap entry. Keys must be NodeId.");
@@ -190,35 +191,49 @@ class CachingEntryCollector extends EntryCollector {
             }
             NodeId nodeId = (NodeId) key;
             int type = modifications.getType(nodeId);
-            synchronized (monitor) {
-                if ((type & POLICY_ADDED) == POLICY_ADDED) {
-                    // clear the complete cache since the nextAcNodeId may
-                    // have changed due to the added acl.
+            if ((type & POLICY_ADDED) == POLICY_ADDED) {
+                // the nextAcNodeId of the access controlled nodes below the
+                // new acl may have changed.
+                Path path = modifications.getPath(nodeId);
+                if (path == null) {
                     log.debug("Policy added, clearing the cache");
                     cache.clear();
+                    added = null;
                     break; // no need for further processing.
-                } else if ((type & POLICY_REMOVED) == POLICY_REMOVED) {
-                    // clear the entry and change the entries having a nextID
-                    // pointing to this node.
-                    Entries ce = cache.remove(nodeId);
-                    if (ce != null) {
-                        NodeId nextId = ce.getNextId();
-                        for (Entries entry : cache.values()) {
-                            if (nodeId.equals(entry.getNextId())) {
-                                entry.setNextId(nextId);
-                            }
+                }
+                added.add(path);
+            } else if ((type & POLICY_REMOVED) == POLICY_REMOVED) {
+                // clear the entry and change the entries having a nextID
+                // pointing to this node.
+                Entries ce = cache.remove(nodeId);
+                if (ce != null) {
+                    NodeId nextId = ce.getNextId();
+                    for (Entries entry : cache.values()) {
+                        if (nodeId.equals(entry.getNextId())) {
+                            entry.setNextId(nextId);
                         }
                     }
-                } else if ((type & POLICY_MODIFIED) == POLICY_MODIFIED) {
-                    // simply clear the cache entry -> reload upon next access.
-                    cache.remove(nodeId);
-                } else if ((type & MOVE) == MOVE) {
-                    // some sort of move operation that may affect the cache
-                    log.debug("Move operation, clearing the cache");
-                    cache.clear();
-                    break; // no need for further processing.
+                }
+            } else if ((type & POLICY_MODIFIED) == POLICY_MODIFIED) {
+                // simply clear the cache entry -> reload upon next access.
+                cache.remove(nodeId);
+            } else if ((type & MOVE) == MOVE) {
+                // some sort of move operation that may affect the cache
+                log.debug("Move operation, clearing the cache");
+                cache.clear();
+                added = null;
+                break; // no need for further processing.
+            }
+        }
+        if (added != null && !added.isEmpty()) {
+            log.debug("Policy added, clearing the cache below {} node(s)", added.size());
+            List<NodeId> ids = new ArrayList<NodeId>();
+            for (Map.Entry<NodeId, Entries> entry : cache.entries().entrySet()) {
+                if (added.includes(entry.getValue().getPath())) {
+                    ids.add(entry.getKey());
                 }
             }
+            cache.removeAll(ids);
         }
         super.notifyListeners(modifications);
     }
@@ -17,7 +17,7 @@
 package org.apache.jackrabbit.core.security.authorization.acl;
 
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
-import org.apache.jackrabbit.core.cache.GrowingLRUMap;
+import org.apache.jackrabbit.core.cache.ClockCache;
 import org.apache.jackrabbit.core.ItemImpl;
 import org.apache.jackrabbit.core.ItemManager;
 import org.apache.jackrabbit.core.NodeImpl;
@@ -29,12 +29,14 @@ import org.apache.jackrabbit.core.security.authorization.AbstractCompiledPermiss
 import org.apache.jackrabbit.core.security.authorization.AccessControlListener;
 import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
 import org.apache.jackrabbit.core.security.authorization.AccessControlUtils;
+import org.apache.jackrabbit.core.security.authorization.InvalidationScope;
 import org.apache.jackrabbit.core.security.authorization.Permission;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeBits;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeManagerImpl;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeRegistry;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.Path;
+import org.apache.jackrabbit.spi.commons.name.PathFactoryImpl;
 import org.apache.jackrabbit.util.Text;
 
 import javax.jcr.ItemNotFoundException;
@@ -57,21 +59,43 @@ class CompiledPermissionsImpl extends AbstractCompiledPermissions implements Acc
     private final EntryCollector entryCollector;
     private final AccessControlUtils util;
 
+    /**
+     * The default maximum number of cached results per cache.
+     */
+    static final int DEFAULT_CACHE_SIZE = 5000;
+
     /*
-     * Start with initial map size of 1024 and grow up to 5000 before
-     * removing LRU items.
+     * Start with initial map size of 1024 and grow up to the configured
+     * cache size before evicting items that have not been read recently.
      */
-    @SuppressWarnings("unchecked")
-    private final Map<ItemId, Boolean> readCache = new GrowingLRUMap(1024, 5000);
+    private final ClockCache<ItemId, CachedRead> readCache;
 
-    private final Object monitor = new Object();
+    /*
+     * Read permissions inherited from a parent node, keyed by the id of the
+     * parent. Sibling items without entries of their own share the result,
+     * which avoids walking up the hierarchy for every single item when large
+     * numbers of siblings are checked (e.g. when filtering query results).
+     */
+    private final ClockCache<NodeId, CachedRead> inheritedReadCache;
+
+    private final PermissionCacheStatistics statistics;
 
     CompiledPermissionsImpl(Set<Principal> principals, SessionImpl session,
                             EntryCollector entryCollector, AccessControlUtils util,
                             boolean listenToEvents) throws RepositoryException {
+        this(principals, session, entryCollector, util, listenToEvents, DEFAULT_CACHE_SIZE);
+    }
+
+    CompiledPermissionsImpl(Set<Principal> principals, SessionImpl session,
+                            EntryCollector entryCollector, AccessControlUtils util,
+                            boolean listenToEvents, int cacheSize) throws RepositoryException {
+        super(cacheSize);
         this.session = session;
         this.entryCollector = entryCollector;
         this.util = util;
+        readCache = new ClockCache<ItemId, CachedRead>(1024, cacheSize);
+        inheritedReadCache = new ClockCache<NodeId, CachedRead>(1024, cacheSize);
+        statistics = entryCollector.getStatistics();
 
         principalNames = new ArrayList<String>(principals.size());
         for (Principal princ : principals) {
@@ -187,7 +211,10 @@ class CompiledPermissionsImpl extends AbstractCompiledPermissions implements Acc
         }
 
         boolean isAcItem = util.isAcItem(absPath);
-        return buildResult(node, existingNode, isAcItem, new EntryFilterImpl(principalNames, absPath, session));
+        long start = System.nanoTime();
+        Result result = buildResult(node, existingNode, isAcItem, new EntryFilterImpl(principalNames, absPath, session));
+        statistics.evaluated(System.nanoTime() - start);
+        return result;
     }
 
     @Override
@@ -208,12 +235,34 @@ class CompiledPermissionsImpl extends AbstractCompiledPermissions implements Acc
      */
     @Override
     protected void clearCache() {
-        synchronized (monitor) {
-            readCache.clear();
-        }
+        readCache.clear();
+        inheritedReadCache.clear();
         super.clearCache();
     }
 
+    /**
+     * @see AbstractCompiledPermissions#clearCache(InvalidationScope)
+     */
+    @Override
+    protected int clearCache(InvalidationScope scope) {
+        return super.clearCache(scope) + clearCache(readCache, scope) + clearCache(inheritedReadCache, scope);
+    }
+
+    private static <K> int clearCache(ClockCache<K, CachedRead> cache, InvalidationScope scope) {
+        if (scope.includesAll()) {
+            int size = cache.size();
+            cache.clear();
+            return size;
+        }
+        List<K> keys = new ArrayList<K>();
+        for (Map.Entry<K, CachedRead> entry : cache.entries().entrySet()) {
+            if (scope.includes(entry.getValue().path)) {
+                keys.add(entry.getKey());
+            }
+        }
+        return cache.removeAll(keys);
+    }
+
     //--------------------------------------------< CompiledPermissions >---
     /**
      * @see org.apache.jackrabbit.core.security.authorization.CompiledPermissions#close()
@@ -232,46 +281,84 @@ class CompiledPermissionsImpl extends AbstractCompiledPermissions implements Acc
         ItemId id = (itemId == null) ? session.getHierarchyManager().resolvePath(path) : itemId;
         // no extra check for existence as method may only be called for existing items.
         boolean isExistingNode = id.denotesNode();
-        boolean canRead = false;
-        synchronized (monitor) {
-            if (readCache.containsKey(id)) {
-                canRead = readCache.get(id);
-            } else {
-                ItemManager itemMgr = session.getItemManager();
-                NodeId nodeId = (isExistingNode) ? (NodeId) id : ((PropertyId) id).getParentId();
-                NodeImpl node = (NodeImpl) itemMgr.getItem(nodeId);
-
-                boolean isAcItem = util.isAcItem(node);
-                EntryFilterImpl filter;
-                if (path == null) {
-                    filter = new EntryFilterImpl(principalNames, id, session);
-                } else {
-                    filter = new EntryFilterImpl(principalNames, path, session);
-                }
+        long generation = readCache.getGeneration();
+        CachedRead cached = readCache.get(id);
+        if (cached != null) {
+            return cached.canRead;
+        }
 
-                if (isAcItem) {
-                    /* item defines ac content -> regular evaluation */
-                    Result result = buildResult(node, isExistingNode, isAcItem, filter);
-                    canRead = result.grants(Permission.READ);
-                } else {
-                    /*
-                     simplified evaluation focusing on READ permission. this allows
-                     to omit evaluation of parent node permissions that are
-                     required when calculating the complete set of permissions
-                     (see special treatment of remove, create or ac-specific
-                      permissions).
-                     */
-                    for (AccessControlEntry accessControlEntry : entryCollector.collectEntries(node, filter)) {
-                        ACLTemplate.Entry ace = (ACLTemplate.Entry) accessControlEntry;
-                        if (ace.getPrivilegeBits().includesRead()) {
-                            canRead = ace.isAllow();
-                            break;
-                        }
-                    }
-                }
-                readCache.put(id, canRead);
+        long start = System.nanoTime();
+        ItemManager itemMgr = session.getItemManager();
+        NodeId nodeId = (isExistingNode) ? (NodeId) id : ((PropertyId) id).getParentId();
+        NodeImpl node = (NodeImpl) itemMgr.getItem(nodeId);
+        // the entries in effect at the node (and its properties) are defined
+        // at the node or its ancestors, which is where modifications occur
+        Path nodePath = node.getPrimaryPath();
+
+        boolean isAcItem = util.isAcItem(node);
+        EntryFilterImpl filter;
+        if (path == null) {
+            filter = new EntryFilterImpl(principalNames, id, session);
+        } else {
+            filter = new EntryFilterImpl(principalNames, path, session);
+        }
+
+        boolean canRead;
+        if (isAcItem) {
+            /* item defines ac content -> regular evaluation */
+            Result result = buildResult(node, isExistingNode, isAcItem, filter);
+            canRead = result.grants(Permission.READ);
+        } else {
+            /*
+             simplified evaluation focusing on READ permission. this allows
+             to omit evaluation of parent node permissions that are
+             required when calculating the complete set of permissions
+             (see special treatment of remove, create or ac-specific
+              permissions).
+             */
+            canRead = canReadSimplified(node, nodePath, filter);
+        }
+        statistics.evaluated(System.nanoTime() - start);
+        // not cached if the cache was cleared in the meantime
+        readCache.put(id, new CachedRead(nodePath, canRead), generation);
+        return canRead;
+    }
+
+    /**
+     * Evaluates the READ permission for the given node (or a property of
+     * that node) from the entries in effect at the node. If the node doesn't
+     * define any entries itself, the result only depends on the entries
+     * inherited from its parent and is shared among all siblings, unless some
+     * of the inherited entries are restricted to certain paths.
+     *
+     * @param node The node defining the entries to evaluate.
+     * @param nodePath The path of the node.
+     * @param filter The entry filter for the target item.
+     * @return <code>true</code> if READ is granted.
+     * @throws RepositoryException If an error occurs.
+     */
+    private boolean canReadSimplified(NodeImpl node, Path nodePath, EntryFilterImpl filter) throws RepositoryException {
+        NodeId parentId = node.getParentId();
+        long generation = inheritedReadCache.getGeneration();
+        boolean inherited = parentId != null && entryCollector.getEntries(node).isEmpty();
+        if (inherited) {
+            CachedRead cached = inheritedReadCache.get(parentId);
+            if (cached != null) {
+                return cached.canRead;
             }
         }
+
+        boolean canRead = false;
+        for (AccessControlEntry accessControlEntry : entryCollector.collectEntries(node, filter)) {
+            ACLTemplate.Entry ace = (ACLTemplate.Entry) accessControlEntry;
+            if (ace.getPrivilegeBits().includesRead()) {
+                canRead = ace.isAllow();
+                break;
+            }
+        }
+        if (inherited && !filter.hasRestrictedEntries()) {
+            inheritedReadCache.put(parentId, new CachedRead(nodePath.getAncestor(1), canRead), generation);
+        }
         return canRead;
     }
 
@@ -280,7 +367,29 @@ class CompiledPermissionsImpl extends AbstractCompiledPermissions implements Acc
      * @see org.apache.jackrabbit.core.security.authorization.AccessControlListener#acModified(org.apache.jackrabbit.core.security.authorization.AccessControlModifications)
      */
     public void acModified(AccessControlModifications modifications) {
-        // ignore the details of the modifications and clear all caches.
-        clearCache();
+        InvalidationScope scope = modifications.getScope();
+        if (scope == null) {
+            // unknown scope (e.g. a move) -> clear all caches.
+            scope = new InvalidationScope();
+            scope.add(PathFactoryImpl.getInstance().getRootPath());
+        }
+        // only drop the results of the modified subtrees.
+        statistics.invalidated(!scope.includesAll(), clearCache(scope));
+    }
+
+    //--------------------------------------------------------< inner class >---
+    /**
+     * Cached READ permission together with the path of the node whose
+     * entries (and the entries of its ancestors) it was evaluated from.
+     */
+    private static final class CachedRead {
+
+        private final Path path;
+        private final boolean canRead;
+
+        private CachedRead(Path path, boolean canRead) {
+            this.path = path;
+            this.canRead = canRead;
+        }
     }
 }
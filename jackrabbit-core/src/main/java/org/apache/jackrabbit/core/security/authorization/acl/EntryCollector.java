@@ -23,6 +23,7 @@ import org.apache.jackrabbit.core.observation.SynchronousEventListener;
 import org.apache.jackrabbit.core.security.authorization.AccessControlConstants;
 import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
 import org.apache.jackrabbit.core.security.authorization.AccessControlObserver;
+import org.apache.jackrabbit.spi.Path;
 import org.apache.jackrabbit.spi.commons.conversion.NameResolver;
 import org.apache.jackrabbit.util.Text;
 import org.slf4j.Logger;
@@ -69,6 +70,11 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
 
     private final EventListener moveListener;
 
+    /**
+     * Statistics of the permission caches built from the collected entries.
+     */
+    private final PermissionCacheStatistics statistics = new PermissionCacheStatistics();
+
     /**
      *
      * @param systemSession
@@ -194,7 +200,7 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
             // not access controlled
             aces = Collections.emptyList();
         }
-        return new Entries(aces, node.getParentId());
+        return new Entries(aces, node.getParentId(), aces.isEmpty() ? null : node.getPrimaryPath());
     }
 
     /**
@@ -218,6 +224,14 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
         return ((NodeImpl) systemSession.getItemManager().getItem(nodeId));
     }
 
+    /**
+     * @return The statistics of the permission caches built from the entries
+     * collected by this instance.
+     */
+    PermissionCacheStatistics getStatistics() {
+        return statistics;
+    }
+
     //------------------------------------------------------< EventListener >---
     /**
      * Collects access controlled nodes that are effected by access control
@@ -274,6 +288,11 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
          */
         private final Map<NodeId, Integer> modMap = new HashMap<NodeId,Integer>();
 
+        /**
+         * Map of access-controlled nodeId to the path of that node.
+         */
+        private final Map<NodeId, Path> pathMap = new HashMap<NodeId, Path>();
+
         private ACLEventSieve(Session session, NameResolver resolver) throws RepositoryException {
             this.session = session;
             this.repPolicyName = resolver.getJCRName(AccessControlConstants.N_POLICY);
@@ -317,7 +336,7 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
          * @return access control modifications
          */
         private AccessControlModifications<NodeId> getModifications() {
-            return new AccessControlModifications<NodeId>(modMap);
+            return new AccessControlModifications<NodeId>(modMap, pathMap);
         }
 
         private void siftNodeAdded(String identifier) throws RepositoryException {
@@ -327,13 +346,13 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
                     // a new ACL was added -> use the added node to update
                     // the cache.
                     addModification(
-                            accessControlledIdFromAclNode(n),
+                            accessControlledNodeFromAclNode(n),
                             AccessControlObserver.POLICY_ADDED);
                 } else if (n.isNodeType(EntryCollector.NT_REP_ACE)) {
                     // a new ACE was added -> use the parent node (acl)
                     // to update the cache.
                     addModification(
-                            accessControlledIdFromAceNode(n),
+                            accessControlledNodeFromAceNode(n),
                             AccessControlObserver.POLICY_MODIFIED);
                 } /* else: some other node added below an access controlled
                      parent node -> not interested. */
@@ -349,13 +368,13 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
                 if (repPolicyName.equals(Text.getName(path))){
                     // the complete ACL was removed -> clear cache entry
                     addModification(
-                            parent.getNodeId(),
+                            parent,
                             AccessControlObserver.POLICY_REMOVED);
                 } else if (parent.isNodeType(EntryCollector.NT_REP_ACL)) {
                     // an ace was removed -> refresh cache for the
                     // containing access control list upon next access
                     addModification(
-                            accessControlledIdFromAclNode(parent),
+                            accessControlledNodeFromAclNode(parent),
                             AccessControlObserver.POLICY_MODIFIED);
                 } /* else:
                          a) some other child node of an access controlled
@@ -374,7 +393,7 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
                 NodeImpl parent = (NodeImpl) session.getNodeByIdentifier(identifier);
                 if (parent.isNodeType(EntryCollector.NT_REP_ACE)) {
                     addModification(
-                            accessControlledIdFromAceNode(parent),
+                            accessControlledNodeFromAceNode(parent),
                             AccessControlObserver.POLICY_MODIFIED);
                 } /* some other property below an access controlled node
                  changed -> not interested. (NOTE: rep:ACL doesn't
@@ -384,15 +403,17 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
             }
         }
 
-        private NodeId accessControlledIdFromAclNode(Node aclNode) throws RepositoryException {
-            return ((NodeImpl) aclNode.getParent()).getNodeId();
+        private NodeImpl accessControlledNodeFromAclNode(Node aclNode) throws RepositoryException {
+            return (NodeImpl) aclNode.getParent();
         }
 
-        private NodeId accessControlledIdFromAceNode(Node aceNode) throws RepositoryException {
-            return accessControlledIdFromAclNode(aceNode.getParent());
+        private NodeImpl accessControlledNodeFromAceNode(Node aceNode) throws RepositoryException {
+            return accessControlledNodeFromAclNode(aceNode.getParent());
         }
 
-        private void addModification(NodeId accessControllNodeId, int modType) {
+        private void addModification(NodeImpl accessControlledNode, int modType) throws RepositoryException {
+            NodeId accessControllNodeId = accessControlledNode.getNodeId();
+            pathMap.put(accessControllNodeId, accessControlledNode.getPrimaryPath());
             if (modMap.containsKey(accessControllNodeId)) {
                 // update modMap
                 modType |= modMap.get(accessControllNodeId);
@@ -439,11 +460,13 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
     static class Entries {
 
         private final List<AccessControlEntry> aces;
-        private NodeId nextId;
+        private volatile NodeId nextId;
+        private final Path path;
 
-        Entries(List<AccessControlEntry> aces, NodeId nextId) {
+        Entries(List<AccessControlEntry> aces, NodeId nextId, Path path) {
             this.aces = aces;
             this.nextId = nextId;
+            this.path = path;
         }
 
         List<AccessControlEntry> getACEs() {
@@ -458,6 +481,14 @@ public class EntryCollector extends AccessControlObserver implements AccessContr
             this.nextId = nextId;
         }
 
+        /**
+         * @return The path of the access controlled node or <code>null</code>
+         * if there are no entries.
+         */
+        Path getPath() {
+            return path;
+        }
+
         boolean isEmpty() {
             return aces.isEmpty();
         }
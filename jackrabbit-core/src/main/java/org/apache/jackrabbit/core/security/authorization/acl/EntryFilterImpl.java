@@ -44,6 +44,8 @@ class EntryFilterImpl implements EntryFilter {
 
     private String itemPath;
 
+    private boolean restricted;
+
     EntryFilterImpl(Collection<String> principalNames, final ItemId id, final SessionImpl sessionImpl) {
         this.principalNames = principalNames;
         this.pathProvider = new PathProvider() {
@@ -110,6 +112,7 @@ class EntryFilterImpl implements EntryFilter {
             } else {
                 // there is a glob-restriction: check if the target path matches
                 // this entry.
+                restricted = true;
                 try {
                     return entry.matches(getPath());
                 } catch (RepositoryException e) {
@@ -122,6 +125,15 @@ class EntryFilterImpl implements EntryFilter {
         return false;
     }
 
+    /**
+     * @return <code>true</code> if any of the entries passed to this filter
+     * applies to the principals but is restricted to certain paths, i.e. if
+     * the filter result depends on the target path.
+     */
+    boolean hasRestrictedEntries() {
+        return restricted;
+    }
+
     String getPath() throws RepositoryException {
         if (itemPath == null) {
             itemPath = pathProvider.getPath();
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.security.authorization.acl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>PermissionCacheStatistics</code> counts how often the cached
+ * permissions of the sessions are invalidated by access control
+ * modifications and how much evaluation work is needed to rebuild them.
+ */
+public final class PermissionCacheStatistics {
+
+    private final AtomicLong fullInvalidations = new AtomicLong();
+
+    private final AtomicLong scopedInvalidations = new AtomicLong();
+
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+
+    private final AtomicLong evaluations = new AtomicLong();
+
+    private final AtomicLong evaluationTime = new AtomicLong();
+
+    PermissionCacheStatistics() {
+    }
+
+    /**
+     * Records the invalidation of a permission cache.
+     *
+     * @param scoped <code>false</code> if the complete cache was cleared.
+     * @param entries The number of removed cache entries.
+     */
+    void invalidated(boolean scoped, int entries) {
+        if (scoped) {
+            scopedInvalidations.incrementAndGet();
+        } else {
+            fullInvalidations.incrementAndGet();
+        }
+        invalidatedEntries.addAndGet(entries);
+    }
+
+    /**
+     * Records the evaluation of a permission that was not cached.
+     *
+     * @param nanos The time spent on the evaluation in nanoseconds.
+     */
+    void evaluated(long nanos) {
+        evaluations.incrementAndGet();
+        evaluationTime.addAndGet(nanos);
+    }
+
+    /**
+     * @return The number of times a permission cache was cleared completely.
+     */
+    public long getFullInvalidationCount() {
+        return fullInvalidations.get();
+    }
+
+    /**
+     * @return The number of times only the entries of the modified subtrees
+     * were removed from a permission cache.
+     */
+    public long getScopedInvalidationCount() {
+        return scopedInvalidations.get();
+    }
+
+    /**
+     * @return The total number of cache entries removed by invalidations.
+     */
+    public long getInvalidatedEntryCount() {
+        return invalidatedEntries.get();
+    }
+
+    /**
+     * @return The number of permission evaluations that were not answered
+     * from a cache.
+     */
+    public long getEvaluationCount() {
+        return evaluations.get();
+    }
+
+    /**
+     * @return The total time spent on these evaluations in milliseconds.
+     */
+    public long getEvaluationTime() {
+        return evaluationTime.get() / 1000000;
+    }
+
+    @Override
+    public String toString() {
+        return "invalidations: " + getFullInvalidationCount() + " full, "
+                + getScopedInvalidationCount() + " scoped ("
+                + getInvalidatedEntryCount() + " entries), evaluations: "
+                + getEvaluationCount() + " (" + getEvaluationTime() + " ms)";
+    }
+}
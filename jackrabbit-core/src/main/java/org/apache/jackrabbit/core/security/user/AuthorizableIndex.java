@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.security.user;
+
+import org.apache.jackrabbit.core.NodeImpl;
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.SessionListener;
+import org.apache.jackrabbit.core.cache.ClockCache;
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.observation.SynchronousEventListener;
+import org.apache.jackrabbit.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>AuthorizableIndex</code> maps principal names to the identifiers of
+ * the corresponding authorizable nodes. The IDs of users and groups don't
+ * need an index as the node id is calculated from the ID.
+ * <p>
+ * The index is filled with the results of principal lookups that required a
+ * search, and is updated synchronously when the principal name of an
+ * authorizable is added or changed. An entry is only trusted after checking
+ * the principal name of the node it points to, so entries of removed or
+ * renamed authorizables are dropped upon the next lookup.
+ */
+public class AuthorizableIndex implements UserConstants, SynchronousEventListener, SessionListener {
+
+    /**
+     * logger instance
+     */
+    private static final Logger log = LoggerFactory.getLogger(AuthorizableIndex.class);
+
+    /**
+     * The default maximum number of indexed principal names.
+     */
+    static final int DEFAULT_SIZE = 100000;
+
+    private final SessionImpl systemSession;
+    private final String pPrincipalName;
+    private final ClockCache<String, NodeId> principalNames;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    AuthorizableIndex(SessionImpl systemSession, int maxSize) throws RepositoryException {
+        this.systemSession = systemSession;
+        pPrincipalName = systemSession.getJCRName(P_PRINCIPAL_NAME);
+        principalNames = new ClockCache<String, NodeId>(1024, maxSize);
+
+        String[] ntNames = new String[] {
+                systemSession.getJCRName(NT_REP_AUTHORIZABLE)
+        };
+        // register event listener to be informed about new principal names.
+        systemSession.getWorkspace().getObservationManager().addEventListener(this,
+                Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED,
+                "/",
+                true,
+                null,
+                ntNames,
+                false);
+        // make sure the index is informed if the system session is
+        // logged out in order to stop listening to events.
+        systemSession.addListener(this);
+    }
+
+    /**
+     * Looks up the authorizable node with the given principal name.
+     *
+     * @param principalName The principal name.
+     * @param session The session used to read the node.
+     * @return The authorizable node or <code>null</code> if the principal name
+     * is not indexed or the node cannot be read by the given session.
+     * @throws RepositoryException If an error occurs.
+     */
+    NodeImpl getNode(String principalName, SessionImpl session) throws RepositoryException {
+        NodeId nodeId = principalNames.get(principalName);
+        if (nodeId != null) {
+            try {
+                NodeImpl n = session.getNodeById(nodeId);
+                if (n.isNodeType(NT_REP_AUTHORIZABLE) && n.hasProperty(P_PRINCIPAL_NAME)
+                        && principalName.equals(n.getProperty(P_PRINCIPAL_NAME).getString())) {
+                    hits.incrementAndGet();
+                    return n;
+                }
+                // principal name changed in the meantime
+                principalNames.remove(principalName);
+            } catch (ItemNotFoundException e) {
+                // removed -> resolve the name otherwise.
+                log.debug("Indexed authorizable {} not found.", principalName);
+            } catch (AccessDeniedException e) {
+                // not accessible -> resolve the name otherwise.
+                log.debug("Indexed authorizable {} not accessible.", principalName);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the authorizable node found for the given principal name.
+     *
+     * @param principalName The principal name.
+     * @param node The authorizable node.
+     */
+    void put(String principalName, NodeImpl node) {
+        principalNames.put(principalName, node.getNodeId());
+    }
+
+    /**
+     * @return The number of principal lookups answered by the index.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of principal lookups that were not answered by the
+     * index.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of indexed principal names.
+     */
+    public int getSize() {
+        return principalNames.size();
+    }
+
+    //------------------------------------------------------< EventListener >---
+    /**
+     * @see javax.jcr.observation.EventListener#onEvent(javax.jcr.observation.EventIterator)
+     */
+    public void onEvent(EventIterator eventIterator) {
+        while (eventIterator.hasNext()) {
+            Event ev = eventIterator.nextEvent();
+            try {
+                String path = ev.getPath();
+                if (pPrincipalName.equals(Text.getName(path)) && systemSession.propertyExists(path)) {
+                    String principalName = systemSession.getProperty(path).getString();
+                    principalNames.put(principalName, NodeId.valueOf(ev.getIdentifier()));
+                }
+            } catch (RepositoryException e) {
+                // not indexed -> resolved by a search upon lookup.
+                log.debug("Failed to index principal name: {}", e.getMessage());
+            }
+        }
+    }
+
+    //----------------------------------------------------< SessionListener >---
+    /**
+     * @see SessionListener#loggingOut(org.apache.jackrabbit.core.SessionImpl)
+     */
+    public void loggingOut(SessionImpl session) {
+        try {
+            systemSession.getWorkspace().getObservationManager().removeEventListener(this);
+        } catch (RepositoryException e) {
+            log.error("Unexpected error: Failed to stop event listening of AuthorizableIndex.", e);
+        }
+        principalNames.clear();
+    }
+
+    /**
+     * @see SessionListener#loggedOut(org.apache.jackrabbit.core.SessionImpl)
+     */
+    public void loggedOut(SessionImpl session) {
+        // nothing to do
+    }
+}
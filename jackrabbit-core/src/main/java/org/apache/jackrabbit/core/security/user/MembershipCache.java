@@ -16,7 +16,7 @@
  */
 package org.apache.jackrabbit.core.security.user;
 
-import org.apache.jackrabbit.core.cache.GrowingLRUMap;
+import org.apache.jackrabbit.core.cache.ClockCache;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.PropertyImpl;
 import org.apache.jackrabbit.core.SessionImpl;
@@ -35,6 +35,7 @@ import javax.jcr.ItemVisitor;
 import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
@@ -46,9 +47,16 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * <code>MembershipCache</code>...
+ * <code>MembershipCache</code> keeps the declared group membership of
+ * authorizables, i.e. a reverse index from member to the groups listing it
+ * as member. The index is read without locking; the transitive membership
+ * is computed from the cached declared memberships upon request.
+ * <p>
+ * Changes to the members of a group only remove the cached entries of the
+ * former and current members of that group, all other entries remain valid.
  */
 public class MembershipCache implements UserConstants, SynchronousEventListener, SessionListener {
 
@@ -61,16 +69,27 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
     private final String groupsPath;
     private final boolean useMembersNode;
     private final String pMembers;
-    private final Map<String, Collection<String>> cache;
+    private final ClockCache<String, Collection<String>> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The default maximum number of cached declared memberships.
+     */
+    static final int DEFAULT_SIZE = 5000;
 
-    @SuppressWarnings("unchecked")
     MembershipCache(SessionImpl systemSession, String groupsPath, boolean useMembersNode) throws RepositoryException {
+        this(systemSession, groupsPath, useMembersNode, DEFAULT_SIZE);
+    }
+
+    MembershipCache(SessionImpl systemSession, String groupsPath, boolean useMembersNode, int maxSize) throws RepositoryException {
         this.systemSession = systemSession;
         this.groupsPath = (groupsPath == null) ? UserConstants.GROUPS_PATH : groupsPath;
         this.useMembersNode = useMembersNode;
 
         pMembers = systemSession.getJCRName(UserManagerImpl.P_MEMBERS);
-        cache = new GrowingLRUMap(1024, 5000);
+        cache = new ClockCache<String, Collection<String>>(1024, maxSize);
 
         String[] ntNames = new String[] {
                 systemSession.getJCRName(UserConstants.NT_REP_GROUP),
@@ -95,32 +114,41 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
      * @see javax.jcr.observation.EventListener#onEvent(javax.jcr.observation.EventIterator)
      */
     public void onEvent(EventIterator eventIterator) {
-        // evaluate if the membership cache needs to be cleared;
+        // collect the groups whose members changed
+        Set<String> groupNodeIds = new HashSet<String>();
         boolean clear = false;
         while (eventIterator.hasNext() && !clear) {
             Event ev = eventIterator.nextEvent();
             try {
                 if (pMembers.equals(Text.getName(ev.getPath()))) {
                     // simple case: a rep:members property that is affected
-                    clear = true;
+                    groupNodeIds.add(ev.getIdentifier());
                 } else if (useMembersNode) {
                     // test if it affects a property defined by rep:Members node type.
                     int type = ev.getType();
+                    boolean affected;
                     if (type == Event.PROPERTY_ADDED || type == Event.PROPERTY_CHANGED) {
                         Property p = systemSession.getProperty(ev.getPath());
                         Name declNtName = ((NodeTypeImpl) p.getDefinition().getDeclaringNodeType()).getQName();
-                        clear = NT_REP_MEMBERS.equals(declNtName);
+                        affected = NT_REP_MEMBERS.equals(declNtName);
                     } else {
                         // PROPERTY_REMOVED
                         // test if the primary node type of the parent node is rep:Members
                         // this could potentially by some other property as well as the
                         // rep:Members node are not protected and could changed by
                         // adding a mixin type.
-                        // ignoring this and simply clear the cache
+                        // ignoring this and simply update the members of the group
                         String parentId = ev.getIdentifier();
                         Node n = systemSession.getNodeByIdentifier(parentId);
                         Name ntName = ((NodeTypeImpl) n.getPrimaryNodeType()).getQName();
-                        clear = (UserConstants.NT_REP_MEMBERS.equals(ntName));
+                        affected = (UserConstants.NT_REP_MEMBERS.equals(ntName));
+                    }
+                    if (affected) {
+                        NodeImpl n = (NodeImpl) systemSession.getNodeByIdentifier(ev.getIdentifier());
+                        while (n.isNodeType(NT_REP_MEMBERS)) {
+                            n = (NodeImpl) n.getParent();
+                        }
+                        groupNodeIds.add(n.getIdentifier());
                     }
                 }
             } catch (RepositoryException e) {
@@ -132,7 +160,12 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
         }
 
         if (clear) {
-            synchronized (cache) {
+            cache.clear();
+        } else if (!groupNodeIds.isEmpty()) {
+            try {
+                invalidate(groupNodeIds);
+            } catch (RepositoryException e) {
+                log.warn(e.getMessage());
                 cache.clear();
             }
         }
@@ -166,7 +199,7 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
      * authorizable in question is declared member of.
      * @throws RepositoryException If an error occurs.
      */
-    synchronized Collection<String> getDeclaredMemberOf(String authorizableNodeIdentifier) throws RepositoryException {
+    Collection<String> getDeclaredMemberOf(String authorizableNodeIdentifier) throws RepositoryException {
         return declaredMemberOf(authorizableNodeIdentifier);
     }
 
@@ -177,7 +210,7 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
      * authorizable in question is a direct or indirect member of.
      * @throws RepositoryException If an error occurs.
      */
-    synchronized Collection<String> getMemberOf(String authorizableNodeIdentifier) throws RepositoryException {
+    Collection<String> getMemberOf(String authorizableNodeIdentifier) throws RepositoryException {
         Set<String> groupNodeIds = new HashSet<String>();
         memberOf(authorizableNodeIdentifier, groupNodeIds);
         return Collections.unmodifiableCollection(groupNodeIds);
@@ -219,6 +252,35 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
         return groupNodeIds;
     }
 
+    /**
+     * @return The number of membership lookups answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of membership lookups that required reading the
+     * membership from the repository.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of cached declared memberships.
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return The maximum number of cached declared memberships.
+     */
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
     //------------------------------------------------------------< private >---
     /**
      * @param authorizableNodeIdentifier
@@ -226,14 +288,18 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
      * @throws RepositoryException
      */
     private Collection<String> declaredMemberOf(String authorizableNodeIdentifier) throws RepositoryException {
+        long generation = cache.getGeneration();
         Collection<String> groupNodeIds = cache.get(authorizableNodeIdentifier);
         if (groupNodeIds == null) {
+            misses.incrementAndGet();
             // retrieve a new session with system-subject in order to avoid
             // concurrent read operations using the system session of this workspace.
             Session session = getSession();
             try {
-                groupNodeIds = collectDeclaredMembership(authorizableNodeIdentifier, session);
-                cache.put(authorizableNodeIdentifier, Collections.unmodifiableCollection(groupNodeIds));
+                groupNodeIds = Collections.unmodifiableCollection(
+                        collectDeclaredMembership(authorizableNodeIdentifier, session));
+                // not cached if the members of any group changed in the meantime
+                cache.put(authorizableNodeIdentifier, groupNodeIds, generation);
             }
             finally {
                 // release session if it isn't the original system session
@@ -241,10 +307,71 @@ public class MembershipCache implements UserConstants, SynchronousEventListener,
                     session.logout();
                 }
             }
+        } else {
+            hits.incrementAndGet();
         }
         return groupNodeIds;
     }
 
+    /**
+     * Removes the cached declared memberships of the current and former
+     * members of the specified groups.
+     *
+     * @param groupNodeIds The identifiers of the groups whose members changed.
+     * @throws RepositoryException If an error occurs.
+     */
+    private void invalidate(Set<String> groupNodeIds) throws RepositoryException {
+        Set<String> memberIds = new HashSet<String>();
+        for (String groupNodeId : groupNodeIds) {
+            collectMembers(groupNodeId, memberIds);
+        }
+        for (Map.Entry<String, Collection<String>> entry : cache.entries().entrySet()) {
+            for (String groupNodeId : groupNodeIds) {
+                if (entry.getValue().contains(groupNodeId)) {
+                    memberIds.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        int removed = cache.removeAll(memberIds);
+        log.debug("Membership of {} groups changed, removed {} cache entries", groupNodeIds.size(), removed);
+    }
+
+    /**
+     * Collects the identifiers of the current members of the specified
+     * group, regardless of whether they are stored in the members property
+     * or the members node structure.
+     *
+     * @param groupNodeId The identifier of the group node.
+     * @param memberIds The collection the member identifiers are added to.
+     * @throws RepositoryException If an error occurs.
+     */
+    private void collectMembers(String groupNodeId, final Collection<String> memberIds) throws RepositoryException {
+        NodeImpl group;
+        try {
+            group = (NodeImpl) systemSession.getNodeByIdentifier(groupNodeId);
+        } catch (ItemNotFoundException e) {
+            // group removed -> only the former members are affected
+            return;
+        }
+        if (group.hasProperty(P_MEMBERS)) {
+            for (Value value : group.getProperty(P_MEMBERS).getValues()) {
+                memberIds.add(value.getString());
+            }
+        }
+        if (group.hasNode(N_MEMBERS)) {
+            ItemVisitor visitor = new TraversingItemVisitor.Default() {
+                @Override
+                protected void entering(Property property, int level) throws RepositoryException {
+                    if (property.getType() == PropertyType.WEAKREFERENCE && !property.isMultiple()) {
+                        memberIds.add(property.getString());
+                    }
+                }
+            };
+            visitor.visit(group.getNode(N_MEMBERS));
+        }
+    }
+
     /**
      * 
      * @param authorizableNodeIdentifier
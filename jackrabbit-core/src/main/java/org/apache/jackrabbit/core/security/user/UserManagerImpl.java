@@ -154,6 +154,11 @@ import java.util.UUID;
  * instead of the default multi valued property {@link UserConstants#P_MEMBERS}.
  * Its value determines the maximum number of member properties until additional
  * intermediate nodes are inserted. Valid parameter values are integers &gt; 4.</li>
+ * <li>{@link #PARAM_MEMBERSHIP_CACHE_SIZE}: The maximum number of declared
+ * group memberships kept in the membership cache. The default value is 5000.</li>
+ * <li>{@link #PARAM_AUTHORIZABLE_INDEX_SIZE}: The maximum number of principal
+ * names kept in the {@link AuthorizableIndex}. A value of 0 disables the index.
+ * The default value is 100000.</li>
  * </ul>
  *
  * <h4>Authorizable Actions</h4>
@@ -239,6 +244,20 @@ public class UserManagerImpl extends ProtectedItemModifier
      */
     public static final String PARAM_GROUP_MEMBERSHIP_SPLIT_SIZE = "groupMembershipSplitSize";
 
+    /**
+     * The maximum number of declared group memberships kept in the
+     * {@link MembershipCache}. Only takes effect if the user manager creates
+     * the cache itself. Valid values are integers > 0.
+     */
+    public static final String PARAM_MEMBERSHIP_CACHE_SIZE = "membershipCacheSize";
+
+    /**
+     * The maximum number of principal names kept in the
+     * {@link AuthorizableIndex}. Only takes effect if the user manager creates
+     * the index itself. A value of 0 disables the index.
+     */
+    public static final String PARAM_AUTHORIZABLE_INDEX_SIZE = "authorizableIndexSize";
+
     private static final Logger log = LoggerFactory.getLogger(UserManagerImpl.class);
 
     private final SessionImpl session;
@@ -281,6 +300,12 @@ public class UserManagerImpl extends ProtectedItemModifier
      */
     private final MembershipCache membershipCache;
 
+    /**
+     * The index of principal names, <code>null</code> if lookups by principal
+     * name always search the content.
+     */
+    private AuthorizableIndex authorizableIndex;
+
     /**
      * Authorizable actions that will all be executed upon creation and removal
      * of authorizables in the order they are contained in the array.<p/>
@@ -356,7 +381,16 @@ public class UserManagerImpl extends ProtectedItemModifier
         if (mCache != null) {
             membershipCache = mCache;
         } else {
-            membershipCache = new MembershipCache(session, groupsPath, groupMembershipSplitSize > 0);
+            param = (config != null) ? config.get(PARAM_MEMBERSHIP_CACHE_SIZE) : null;
+            membershipCache = new MembershipCache(session, groupsPath, groupMembershipSplitSize > 0,
+                    parseMembershipCacheSize(param));
+
+            // the index is shared along with the membership cache
+            param = (config != null) ? config.get(PARAM_AUTHORIZABLE_INDEX_SIZE) : null;
+            int indexSize = parseAuthorizableIndexSize(param);
+            if (indexSize > 0) {
+                authorizableIndex = new AuthorizableIndex(session, indexSize);
+            }
         }
 
         NodeResolver nr;
@@ -397,6 +431,24 @@ public class UserManagerImpl extends ProtectedItemModifier
      */
     public MembershipCache getMembershipCache() {
         return membershipCache;
+    }
+
+    /**
+     * @return The index of principal names used by this user manager
+     * instance or <code>null</code>.
+     */
+    public AuthorizableIndex getAuthorizableIndex() {
+        return authorizableIndex;
+    }
+
+    /**
+     * Sets the index of principal names used to look up authorizables
+     * without searching the content.
+     *
+     * @param authorizableIndex The index to use or <code>null</code>.
+     */
+    public void setAuthorizableIndex(AuthorizableIndex authorizableIndex) {
+        this.authorizableIndex = authorizableIndex;
     }  
 
     /**
@@ -480,8 +532,17 @@ public class UserManagerImpl extends ProtectedItemModifier
             } catch (RepositoryException e) {
                 // ignore and execute the query.
             }
-            // authorizable whose ID matched the principal name -> search.
-            n = (NodeImpl) authResolver.findNode(P_PRINCIPAL_NAME, name, NT_REP_AUTHORIZABLE);
+            // authorizable whose ID matched the principal name -> look up
+            // the index and search if the name isn't indexed.
+            if (authorizableIndex != null && !session.hasPendingChanges()) {
+                n = authorizableIndex.getNode(name, session);
+            }
+            if (n == null) {
+                n = (NodeImpl) authResolver.findNode(P_PRINCIPAL_NAME, name, NT_REP_AUTHORIZABLE);
+                if (n != null && authorizableIndex != null && !n.isNew()) {
+                    authorizableIndex.put(name, n);
+                }
+            }
         }
         // build the corresponding authorizable object
         return getAuthorizable(n);
@@ -1058,6 +1119,40 @@ public class UserManagerImpl extends ProtectedItemModifier
         return n;
     }
 
+    private static int parseAuthorizableIndexSize(Object param) {
+        int n = AuthorizableIndex.DEFAULT_SIZE;
+        if (param != null) {
+            try {
+                n = Integer.parseInt(param.toString());
+            } catch (NumberFormatException e) {
+                n = -1;
+            }
+            if (n < 0) {
+                log.warn("Invalid value {} for {}. Expected integer >= 0",
+                        param.toString(), PARAM_AUTHORIZABLE_INDEX_SIZE);
+                n = AuthorizableIndex.DEFAULT_SIZE;
+            }
+        }
+        return n;
+    }
+
+    private static int parseMembershipCacheSize(Object param) {
+        int n = MembershipCache.DEFAULT_SIZE;
+        if (param != null) {
+            try {
+                n = Integer.parseInt(param.toString());
+            } catch (NumberFormatException e) {
+                n = 0;
+            }
+            if (n <= 0) {
+                log.warn("Invalid value {} for {}. Expected integer > 0",
+                        param.toString(), PARAM_MEMBERSHIP_CACHE_SIZE);
+                n = MembershipCache.DEFAULT_SIZE;
+            }
+        }
+        return n;
+    }
+
     //--------------------------------------------------------------------------
     /**
      * Let the configured <code>AuthorizableAction</code>s perform additional
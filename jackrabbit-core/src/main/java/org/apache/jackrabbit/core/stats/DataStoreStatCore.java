@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.stats;
+
+import org.apache.jackrabbit.api.stats.DataStoreStat;
+
+/**
+ * Extends external facing {@link DataStoreStat} with some internal operations
+ * 
+ */
+public interface DataStoreStatCore extends DataStoreStat {
+
+    /**
+     * Decides whether a read of a binary is sampled. Only sampled reads are
+     * logged using {@link #logRead(String, long)}, so that the length of
+     * other binaries does not need to be read.
+     * 
+     * @return <code>true</code> if the read is to be logged
+     */
+    boolean sampleRead();
+
+    /**
+     * Logs a sampled read of a binary from the data store.
+     * 
+     * @param identifier
+     *            the data identifier of the binary
+     * @param length
+     *            the length of the binary in bytes
+     */
+    void logRead(final String identifier, long length);
+
+}
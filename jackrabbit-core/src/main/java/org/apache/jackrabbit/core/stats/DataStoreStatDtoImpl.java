@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.stats;
+
+import java.util.Date;
+
+import org.apache.jackrabbit.api.stats.DataStoreStatDto;
+
+/**
+ * Object that holds statistical info about a binary in the data store.
+ * 
+ */
+public class DataStoreStatDtoImpl implements DataStoreStatDto {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * lazy, computed at call time
+     */
+    private long position;
+
+    /**
+     * data identifier of the binary
+     */
+    private final String identifier;
+
+    /**
+     * length of the binary in bytes
+     */
+    private final long length;
+
+    /**
+     * estimated number of reads
+     */
+    private long readCount;
+
+    /**
+     * time of the last sampled read
+     */
+    private long lastAccess;
+
+    public DataStoreStatDtoImpl(final String identifier, long length) {
+        this.identifier = identifier;
+        this.length = length;
+    }
+
+    DataStoreStatDtoImpl(DataStoreStatDtoImpl dto) {
+        this(dto.identifier, dto.length);
+        this.readCount = dto.readCount;
+        this.lastAccess = dto.lastAccess;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public String getLastAccessTime() {
+        return new Date(lastAccess).toString();
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * Records a sampled read.
+     * 
+     * @param count
+     *            the number of reads the sample stands for
+     */
+    void addReads(long count) {
+        readCount += count;
+        lastAccess = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "DataStoreStat [identifier=" + identifier + ", length="
+                + length + ", readCount=" + readCount + ", lastAccess="
+                + getLastAccessTime() + "]";
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.stats;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.api.stats.DataStoreStatDto;
+
+/**
+ * Default {@link DataStoreStatCore} implementation.
+ * <p>
+ * Only one out of {@link #getSampleRate()} reads is recorded. The hot
+ * binaries are tracked with the "space saving" algorithm: a bounded number of
+ * candidates is kept, and when a new binary is seen while the table is full,
+ * it replaces the least read candidate and inherits its read count. Read
+ * counts are therefore estimates that may be too high, but a binary that is
+ * read frequently is never dropped from the table.
+ */
+public class DataStoreStatImpl implements DataStoreStatCore {
+
+    private final static Comparator<DataStoreStatDto> comparator = new Comparator<DataStoreStatDto>() {
+        public int compare(DataStoreStatDto o1, DataStoreStatDto o2) {
+            if (o1.getReadCount() == o2.getReadCount()) {
+                return 0;
+            }
+            return o1.getReadCount() > o2.getReadCount() ? -1 : 1;
+        }
+    };
+
+    /**
+     * the number of tracked candidates will be bigger than the desired number
+     * of hot binaries by HOT_QUEUE_MULTIPLIER times
+     */
+    private static final int HOT_QUEUE_MULTIPLIER = 5;
+
+    private static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private final Map<String, DataStoreStatDtoImpl> hotBinaries = new HashMap<String, DataStoreStatDtoImpl>();
+
+    private final AtomicLong reads = new AtomicLong();
+
+    private volatile int hotBinariesQueueSize = 15;
+
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private volatile boolean enabled = false;
+
+    public DataStoreStatImpl() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1: " + rate);
+        }
+        this.sampleRate = rate;
+    }
+
+    public int getHotBinariesQueueSize() {
+        return hotBinariesQueueSize;
+    }
+
+    public void setHotBinariesQueueSize(int size) {
+        synchronized (hotBinaries) {
+            hotBinariesQueueSize = size;
+            while (hotBinaries.size() > size * HOT_QUEUE_MULTIPLIER) {
+                removeColdest();
+            }
+        }
+    }
+
+    public boolean sampleRead() {
+        if (!enabled) {
+            return false;
+        }
+        int rate = sampleRate;
+        return rate <= 1 || reads.incrementAndGet() % rate == 0;
+    }
+
+    public void logRead(final String identifier, long length) {
+        if (!enabled) {
+            return;
+        }
+        int rate = sampleRate;
+        synchronized (hotBinaries) {
+            DataStoreStatDtoImpl dto = hotBinaries.get(identifier);
+            if (dto == null) {
+                long inherited = 0;
+                if (hotBinaries.size() >= hotBinariesQueueSize
+                        * HOT_QUEUE_MULTIPLIER) {
+                    DataStoreStatDtoImpl coldest = removeColdest();
+                    if (coldest != null) {
+                        inherited = coldest.getReadCount();
+                    }
+                }
+                dto = new DataStoreStatDtoImpl(identifier, length);
+                dto.addReads(inherited);
+                hotBinaries.put(identifier, dto);
+            }
+            dto.addReads(rate);
+        }
+    }
+
+    /**
+     * Removes the candidate with the lowest read count. The caller must
+     * synchronize on the candidate table.
+     * 
+     * @return the removed candidate, or <code>null</code> if there is none
+     */
+    private DataStoreStatDtoImpl removeColdest() {
+        DataStoreStatDtoImpl coldest = null;
+        for (DataStoreStatDtoImpl dto : hotBinaries.values()) {
+            if (coldest == null || dto.getReadCount() < coldest.getReadCount()) {
+                coldest = dto;
+            }
+        }
+        if (coldest != null) {
+            hotBinaries.remove(coldest.getIdentifier());
+        }
+        return coldest;
+    }
+
+    public DataStoreStatDto[] getHotBinaries() {
+        DataStoreStatDto[] top;
+        int size;
+        synchronized (hotBinaries) {
+            top = new DataStoreStatDto[hotBinaries.size()];
+            Iterator<DataStoreStatDtoImpl> it = hotBinaries.values().iterator();
+            for (int i = 0; it.hasNext(); i++) {
+                top[i] = new DataStoreStatDtoImpl(it.next());
+            }
+            size = hotBinariesQueueSize;
+        }
+        Arrays.sort(top, comparator);
+        int retSize = Math.min(top.length, size);
+        DataStoreStatDto[] retval = new DataStoreStatDto[retSize];
+        for (int i = 0; i < retSize; i++) {
+            retval[i] = top[i];
+            retval[i].setPosition(i + 1);
+        }
+        return retval;
+    }
+
+    public void clearHotBinariesQueue() {
+        synchronized (hotBinaries) {
+            hotBinaries.clear();
+        }
+    }
+
+    public void reset() {
+        clearHotBinariesQueue();
+        reads.set(0);
+    }
+}
@@ -37,4 +37,14 @@ public interface QueryStatCore extends QueryStat {
      */
     void logQuery(final String language, final String statement, long durationMs);
 
+    /**
+     * Logs a query whose parsed query tree was found in the plan cache.
+     */
+    void logPlanCacheHit();
+
+    /**
+     * Logs a query that had to be parsed and was added to the plan cache.
+     */
+    void logPlanCacheMiss();
+
 }
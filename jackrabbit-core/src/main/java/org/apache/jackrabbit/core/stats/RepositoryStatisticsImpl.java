@@ -50,6 +50,10 @@ public class RepositoryStatisticsImpl implements
         createAvg(Type.BUNDLE_WRITE_COUNTER, Type.BUNDLE_WRITE_DURATION,
                 Type.BUNDLE_WRITE_AVERAGE);
         createAvg(Type.QUERY_COUNT, Type.QUERY_DURATION, Type.QUERY_AVERAGE);
+        createAvg(Type.DATASTORE_READ_COUNTER, Type.DATASTORE_READ_DURATION,
+                Type.DATASTORE_READ_AVERAGE);
+        createAvg(Type.DATASTORE_WRITE_COUNTER,
+                Type.DATASTORE_WRITE_DURATION, Type.DATASTORE_WRITE_AVERAGE);
 
     }
 
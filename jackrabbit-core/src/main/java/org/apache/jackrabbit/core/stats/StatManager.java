@@ -30,12 +30,14 @@ public class StatManager {
 
     public static String ALL_STATS_ENABLED_PROPERTY = "org.apache.jackrabbit.api.stats.ALL";
     public static String QUERY_STATS_ENABLED_PROPERTY = "org.apache.jackrabbit.api.stats.QueryStat";
+    public static String DATASTORE_STATS_ENABLED_PROPERTY = "org.apache.jackrabbit.api.stats.DataStoreStat";
 
     private static final Logger log = LoggerFactory
             .getLogger(StatManager.class);
 
     /* STAT OBJECTS */
     private final QueryStatCore queryStat = new QueryStatImpl();
+    private final DataStoreStatCore dataStoreStat = new DataStoreStatImpl();
 
     public StatManager() {
         init();
@@ -45,13 +47,19 @@ public class StatManager {
         boolean allEnabled = getBoolean(ALL_STATS_ENABLED_PROPERTY);
         queryStat.setEnabled(allEnabled
                 || getBoolean(QUERY_STATS_ENABLED_PROPERTY));
+        dataStoreStat.setEnabled(allEnabled
+                || getBoolean(DATASTORE_STATS_ENABLED_PROPERTY));
         log.debug(
-                "Started StatManager. QueryStat is enabled {}",
-                new Object[] { queryStat.isEnabled() });
+                "Started StatManager. QueryStat is enabled {}, DataStoreStat is enabled {}",
+                new Object[] { queryStat.isEnabled(), dataStoreStat.isEnabled() });
     }
 
     public QueryStatCore getQueryStat() {
         return queryStat;
     }
 
+    public DataStoreStatCore getDataStoreStat() {
+        return dataStoreStat;
+    }
+
 }
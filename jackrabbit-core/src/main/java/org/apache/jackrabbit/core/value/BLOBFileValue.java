@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.core.value;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -103,4 +104,15 @@ abstract class BLOBFileValue implements Binary {
         return false;
     }
 
+    /**
+     * Returns the temporary file backing this value, if no other value
+     * uses the file. The caller may move the file away, but must dispose
+     * this value afterwards.
+     *
+     * @return the temporary file or <code>null</code>
+     */
+    File getExclusiveFile() {
+        return null;
+    }
+
 }
@@ -121,6 +121,15 @@ class BLOBInTempFile extends BLOBFileValue {
         }
     }
 
+    File getExclusiveFile() {
+        // only a temporary file is owned by this value
+        if (temp) {
+            return file;
+        } else {
+            return null;
+        }
+    }
+
     BLOBFileValue copy() throws RepositoryException {
         if (temp) {
             return BLOBInTempFile.getInstance(getStream(), temp);
@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.core.value;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -83,9 +84,15 @@ public class InternalValue extends AbstractQValue {
     private static final InternalValue BOOLEAN_FALSE = new InternalValue(false);
 
     /**
-     * Temporary binary values smaller or equal this size are kept in memory
+     * Temporary binary values smaller or equal this size are kept in memory.
+     * The default matches the default <code>minBlobSize</code> of the bundle
+     * persistence managers, so that binaries that are later inlined in the
+     * bundle are not first spooled to a temporary file and read back again.
+     * It can be changed using the system property
+     * <code>org.apache.jackrabbit.maxInMemoryBinarySize</code>.
      */
-    private static final int MIN_BLOB_FILE_SIZE = 1024;
+    private static final int MIN_BLOB_FILE_SIZE = Integer.getInteger(
+            "org.apache.jackrabbit.maxInMemoryBinarySize", 0x1000);
 
     //------------------------------------------------------< factory methods >
     /**
@@ -476,6 +483,22 @@ public class InternalValue extends AbstractQValue {
         return getCalendar();
     }
 
+    /**
+     * Returns the temporary file that backs this binary value, if this value
+     * is the only user of the file. The caller may move the file into its
+     * final location instead of copying it, but must {@link #discard()} this
+     * value afterwards.
+     *
+     * @return the temporary file, or <code>null</code> if the binary is not
+     *         backed by a temporary file that is used exclusively
+     */
+    public File getExclusiveTemporaryFile() {
+        if (type != PropertyType.BINARY) {
+            return null;
+        }
+        return ((BLOBFileValue) val).getExclusiveFile();
+    }
+
     /**
      * Create a copy of this object. Immutable values will return itself,
      * while mutable values will return a copy.
@@ -600,7 +623,9 @@ public class InternalValue extends AbstractQValue {
         if (store != null) {
             maxMemorySize = store.getMinRecordLength() - 1;
         } else {
-            maxMemorySize = MIN_BLOB_FILE_SIZE;
+            // read one more byte, as a binary of exactly this size is kept
+            // in memory, like the bundle inlines binaries up to minBlobSize
+            maxMemorySize = MIN_BLOB_FILE_SIZE + 1;
         }
         maxMemorySize = Math.max(0, maxMemorySize);
         byte[] buffer = new byte[maxMemorySize];
@@ -711,6 +736,20 @@ public class InternalValue extends AbstractQValue {
         }
     }
 
+    /**
+     * Returns the data store identifier of a binary value.
+     *
+     * @return the data identifier, or <code>null</code> if this is not a
+     *         binary value or the binary is not stored in a data store
+     */
+    public DataIdentifier getDataIdentifier() {
+        if (type == PropertyType.BINARY) {
+            return ((BLOBFileValue) val).getDataIdentifier();
+        } else {
+            return null;
+        }
+    }
+
     /**
      * @see org.apache.jackrabbit.spi.QValue#discard()
      */
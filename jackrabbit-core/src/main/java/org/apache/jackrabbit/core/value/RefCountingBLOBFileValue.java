@@ -16,6 +16,7 @@
  */
 package org.apache.jackrabbit.core.value;
 
+import java.io.File;
 import java.io.InputStream;
 
 import javax.jcr.RepositoryException;
@@ -101,6 +102,15 @@ public class RefCountingBLOBFileValue extends BLOBFileValue {
      * @throws RepositoryException if an error occurs while creating the copy or
      *                             if this value has been disposed already.
      */
+    @Override
+    synchronized File getExclusiveFile() {
+        if (refCount == 1) {
+            return value.getExclusiveFile();
+        } else {
+            return null;
+        }
+    }
+
     @Override
     synchronized BLOBFileValue copy() throws RepositoryException {
         if (refCount <= 0) {
@@ -180,6 +190,14 @@ public class RefCountingBLOBFileValue extends BLOBFileValue {
             return getInternalValue().copy();
         }
 
+        @Override
+        File getExclusiveFile() {
+            if (disposed) {
+                return null;
+            }
+            return getInternalValue().getExclusiveFile();
+        }
+
         public boolean equals(Object obj) {
             if (obj instanceof RefCountBinary) {
                 RefCountBinary other = (RefCountBinary) obj;
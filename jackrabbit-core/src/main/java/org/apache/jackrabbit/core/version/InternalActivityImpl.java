@@ -30,6 +30,8 @@ import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.value.InternalValue;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.commons.name.NameConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Implements a internal representation of an activity node.
@@ -37,6 +39,24 @@ import org.apache.jackrabbit.spi.commons.name.NameConstants;
  */
 class InternalActivityImpl extends InternalVersionItemImpl implements InternalActivity {
 
+    /**
+     * default logger
+     */
+    private static Logger log = LoggerFactory.getLogger(InternalActivityImpl.class);
+
+    /**
+     * Index of the latest version of each version history referenced by
+     * this activity, built lazily from the rep:versions property.
+     * key = version history id
+     * value = version id
+     */
+    private Map<NodeId, NodeId> latestVersions;
+
+    /**
+     * The rep:versions values the index was built from.
+     */
+    private InternalValue[] indexedVersions;
+
     /**
      * Creates a new VersionHistory object for the given node state.
      * @param vMgr version manager
@@ -98,7 +118,9 @@ class InternalActivityImpl extends InternalVersionItemImpl implements InternalAc
      * @param v the version
      * @throws RepositoryException if an error occurs
      */
-    public void addVersion(InternalVersionImpl v) throws RepositoryException {
+    public synchronized void addVersion(InternalVersionImpl v) throws RepositoryException {
+        boolean indexed = latestVersions != null
+                && indexedVersions == getVersionValues();
         InternalValue[] versions;
         if (node.hasProperty(NameConstants.REP_VERSIONS)) {
             InternalValue[] vs = node.getPropertyValues(NameConstants.REP_VERSIONS);
@@ -110,6 +132,12 @@ class InternalActivityImpl extends InternalVersionItemImpl implements InternalAc
         }
         node.setPropertyValues(NameConstants.REP_VERSIONS, PropertyType.REFERENCE, versions);
         node.store();
+
+        // keep the index up to date instead of rebuilding it
+        if (indexed) {
+            latestVersions.put(v.getVersionHistory().getId(), v.getId());
+            indexedVersions = getVersionValues();
+        }
     }
 
     /**
@@ -117,7 +145,7 @@ class InternalActivityImpl extends InternalVersionItemImpl implements InternalAc
      * @param v the version
      * @throws RepositoryException if an error occurs
      */
-    public void removeVersion(InternalVersionImpl v) throws RepositoryException {
+    public synchronized void removeVersion(InternalVersionImpl v) throws RepositoryException {
         List<InternalValue> versions = new LinkedList<InternalValue>();
         if (node.hasProperty(NameConstants.REP_VERSIONS)) {
             NodeId vId = v.getId();
@@ -130,6 +158,47 @@ class InternalActivityImpl extends InternalVersionItemImpl implements InternalAc
         node.setPropertyValues(NameConstants.REP_VERSIONS, PropertyType.REFERENCE, versions.toArray(new InternalValue[versions.size()]));
         node.store();
 
+        latestVersions = null;
+    }
+
+    /**
+     * Returns the values of the rep:versions property.
+     * @return the version references or <code>null</code>
+     */
+    private InternalValue[] getVersionValues() {
+        if (node.hasProperty(NameConstants.REP_VERSIONS)) {
+            return node.getPropertyValues(NameConstants.REP_VERSIONS);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the index of the latest version per version history. The index
+     * is rebuilt whenever the rep:versions property was changed by someone
+     * else, e.g. by another cluster node.
+     * @return map of version history ids to version ids
+     */
+    private synchronized Map<NodeId, NodeId> getLatestVersions() {
+        InternalValue[] versions = getVersionValues();
+        if (latestVersions == null || versions != indexedVersions) {
+            Map<NodeId, NodeId> index = new HashMap<NodeId, NodeId>();
+            if (versions != null) {
+                for (InternalValue ref : versions) {
+                    NodeId versionId = ref.getNodeId();
+                    try {
+                        // versions are stored below their version history;
+                        // currently we assume that the last version is the best
+                        index.put(vMgr.getNodeStateEx(versionId).getParentId(), versionId);
+                    } catch (RepositoryException e) {
+                        log.warn("Missing version {} of activity {}", versionId, getId());
+                    }
+                }
+            }
+            latestVersions = index;
+            indexedVersions = versions;
+        }
+        return latestVersions;
     }
 
     /**
@@ -140,16 +209,9 @@ class InternalActivityImpl extends InternalVersionItemImpl implements InternalAc
      */
     public InternalVersion getLatestVersion(InternalVersionHistory history)
             throws RepositoryException {
-        if (node.hasProperty(NameConstants.REP_VERSIONS)) {
-            InternalVersion best = null;
-            for (InternalValue ref: node.getPropertyValues(NameConstants.REP_VERSIONS)) {
-                InternalVersion v = history.getVersion(ref.getNodeId());
-                if (v != null) {
-                    // currently we assume that the last version is the best
-                    best = v;
-                }
-            }
-            return best;
+        NodeId versionId = getLatestVersions().get(history.getId());
+        if (versionId != null) {
+            return history.getVersion(versionId);
         } else {
             return null;
         }
@@ -16,10 +16,12 @@
  */
 package org.apache.jackrabbit.core.version;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -62,6 +64,13 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
      */
     private Map<Name, Name> labelCache = new HashMap<Name, Name>();
 
+    /**
+     * the reverse of the label cache
+     * key = version name
+     * value = version labels
+     */
+    private Map<Name, List<Name>> versionLabels = new HashMap<Name, List<Name>>();
+
     /**
      * the root version of this history
      */
@@ -74,6 +83,13 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
      */
     private Map<Name, NodeId> nameCache = new LinkedHashMap<Name, NodeId>();
 
+    /**
+     * the reverse of the name cache
+     * key = version id (NodeId)
+     * value = version name
+     */
+    private Map<NodeId, Name> idCache = new HashMap<NodeId, Name>();
+
     /**
      * the hashmap of all versions
      * key = version id (NodeId)
@@ -121,8 +137,10 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
      */
     private synchronized void init() throws RepositoryException {
         nameCache.clear();
+        idCache.clear();
         versionCache.clear();
         labelCache.clear();
+        versionLabels.clear();
 
         // get id
         historyId = node.getNodeId();
@@ -141,7 +159,7 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
                     Name labelName = pState.getName();
                     NodeId id = pState.getValues()[0].getNodeId();
                     if (node.getState().hasChildNodeEntry(id)) {
-                        labelCache.put(labelName, node.getState().getChildNodeEntry(id).getName());
+                        putLabel(labelName, node.getState().getChildNodeEntry(id).getName());
                     } else {
                         log.warn("Error while resolving label reference. Version missing: " + id);
                     }
@@ -160,6 +178,39 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
                 continue;
             }
             nameCache.put(child.getName(), child.getId());
+            idCache.put(child.getId(), child.getName());
+        }
+    }
+
+    /**
+     * Adds a label to the label caches.
+     * @param label version label
+     * @param versionName name of the labeled version
+     */
+    private void putLabel(Name label, Name versionName) {
+        labelCache.put(label, versionName);
+        List<Name> labels = versionLabels.get(versionName);
+        if (labels == null) {
+            labels = new ArrayList<Name>(1);
+            versionLabels.put(versionName, labels);
+        }
+        labels.add(label);
+    }
+
+    /**
+     * Removes a label from the label caches.
+     * @param label version label
+     */
+    private void removeLabel(Name label) {
+        Name versionName = labelCache.remove(label);
+        if (versionName != null) {
+            List<Name> labels = versionLabels.get(versionName);
+            if (labels != null) {
+                labels.remove(label);
+                if (labels.isEmpty()) {
+                    versionLabels.remove(versionName);
+                }
+            }
         }
     }
 
@@ -205,9 +256,9 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
             vMgr.versionCreated(v);
 
             // add labels
-            for (Name labelName: labelCache.keySet()) {
-                Name versionName = labelCache.get(labelName);
-                if (v.getName().equals(versionName)) {
+            List<Name> labels = versionLabels.get(v.getName());
+            if (labels != null) {
+                for (Name labelName : labels) {
                     v.internalAddLabel(labelName);
                 }
             }
@@ -325,11 +376,9 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
     private synchronized InternalVersion getCachedVersion(NodeId id) {
         InternalVersion v = versionCache.get(id);
         if (v == null) {
-            for (Name versionName : nameCache.keySet()) {
-                if (nameCache.get(versionName).equals(id)) {
-                    v = createVersionInstance(versionName);
-                    break;
-                }
+            Name versionName = idCache.get(id);
+            if (versionName != null) {
+                v = createVersionInstance(versionName);
             }
         }
         return v;
@@ -433,6 +482,7 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
         // and remove from history
         versionCache.remove(v.getId());
         nameCache.remove(versionName);
+        idCache.remove(v.getId());
         vMgr.versionDestroyed(v);
 
         // Check if this was the last version in addition to the root version
@@ -459,7 +509,7 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
 
         // now also remove from labelCache
         for (Name label : labels) {
-            labelCache.remove(label);
+            removeLabel(label);
         }
     }
 
@@ -516,10 +566,10 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
         // update internal structures
         if (prev != null) {
             prev.internalRemoveLabel(label);
-            labelCache.remove(label);
+            removeLabel(label);
         }
         if (version != null) {
-            labelCache.put(label, version.getName());
+            putLabel(label, version.getName());
             ((InternalVersionImpl) version).internalAddLabel(label);
         }
         return prev;
@@ -547,7 +597,7 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
             for (InternalValue pred: predecessors) {
                 NodeId predId = pred.getNodeId();
                 // check if version exist
-                if (!nameCache.containsValue(predId)) {
+                if (!idCache.containsKey(predId)) {
                     throw new RepositoryException(
                             "Invalid predecessor in source node: " + predId);
                 }
@@ -602,6 +652,7 @@ class InternalVersionHistoryImpl extends InternalVersionItemImpl
         // update cache
         versionCache.put(version.getId(), version);
         nameCache.put(version.getName(), version.getId());
+        idCache.put(version.getId(), version.getName());
 
         return version;
     }
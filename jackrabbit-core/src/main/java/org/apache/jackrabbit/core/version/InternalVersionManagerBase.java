@@ -48,7 +48,9 @@ import org.slf4j.LoggerFactory;
  * Base implementation of the {@link InternalVersionManager} interface.
  * <p/>
  * All read operations must acquire the read lock before reading, all write
- * operations must acquire the write lock.
+ * operations must acquire the write lock. Write operations on an existing
+ * version history additionally acquire the history lock first, which
+ * serializes them per history.
  */
 abstract class InternalVersionManagerBase implements InternalVersionManager {
 
@@ -193,6 +195,25 @@ abstract class InternalVersionManagerBase implements InternalVersionManager {
         }
     }
 
+    /**
+     * Acquires the lock that serializes modifications of the given version
+     * history. Must be acquired before the write lock.
+     * @param historyId id of the version history
+     * @return returns the history lock
+     */
+    protected VersioningLock.HistoryLock acquireHistoryLock(NodeId historyId) {
+        return rwLock.acquireHistoryLock(historyId);
+    }
+
+    /**
+     * Returns the lock of this version manager, for monitoring the
+     * contention on it.
+     * @return the versioning lock
+     */
+    public VersioningLock getVersioningLock() {
+        return rwLock;
+    }
+
     /**
      * acquires the read lock on this version manager.
      * @return returns the read lock
@@ -596,31 +617,36 @@ abstract class InternalVersionManagerBase implements InternalVersionManager {
      */
     protected InternalVersion checkin(NodeStateEx node, Calendar created)
             throws RepositoryException {
-        WriteOperation operation = startWriteOperation();
-        try {
-            boolean simple =
-                !node.getEffectiveNodeType().includesNodeType(MIX_VERSIONABLE);
-            InternalVersionHistoryImpl vh;
-            if (simple) {
-                // in simple versioning the history id needs to be calculated
-                vh = (InternalVersionHistoryImpl) getVersionHistoryOfNode(
-                        node.getNodeId());
-            } else {
-                // in full versioning, the history id can be retrieved via
-                // the property
-                vh = (InternalVersionHistoryImpl) getVersionHistory(
-                        node.getPropertyValue(JCR_VERSIONHISTORY).getNodeId());
-            }
+        boolean simple =
+            !node.getEffectiveNodeType().includesNodeType(MIX_VERSIONABLE);
+        InternalVersionHistoryImpl vh;
+        if (simple) {
+            // in simple versioning the history id needs to be calculated
+            vh = (InternalVersionHistoryImpl) getVersionHistoryOfNode(
+                    node.getNodeId());
+        } else {
+            // in full versioning, the history id can be retrieved via
+            // the property
+            vh = (InternalVersionHistoryImpl) getVersionHistory(
+                    node.getPropertyValue(JCR_VERSIONHISTORY).getNodeId());
+        }
 
-            InternalVersion version =
-                internalCheckin(vh, node, simple, created);
+        VersioningLock.HistoryLock historyLock = acquireHistoryLock(vh.getId());
+        try {
+            WriteOperation operation = startWriteOperation();
+            try {
+                InternalVersion version =
+                    internalCheckin(vh, node, simple, created);
 
-            operation.save();
-            return version;
-        } catch (ItemStateException e) {
-            throw new RepositoryException(e);
+                operation.save();
+                return version;
+            } catch (ItemStateException e) {
+                throw new RepositoryException(e);
+            } finally {
+                operation.close();
+            }
         } finally {
-            operation.close();
+            historyLock.release();
         }
     }
 
@@ -755,14 +781,19 @@ abstract class InternalVersionManagerBase implements InternalVersionManager {
      */
     protected void internalRemoveVersion(InternalVersionHistoryImpl history, Name name)
             throws VersionException, RepositoryException {
-        WriteOperation operation = startWriteOperation();
+        VersioningLock.HistoryLock historyLock = acquireHistoryLock(history.getId());
         try {
-            history.removeVersion(name);
-            operation.save();
-        } catch (ItemStateException e) {
-            log.error("Error while storing: " + e.toString());
+            WriteOperation operation = startWriteOperation();
+            try {
+                history.removeVersion(name);
+                operation.save();
+            } catch (ItemStateException e) {
+                log.error("Error while storing: " + e.toString());
+            } finally {
+                operation.close();
+            }
         } finally {
-            operation.close();
+            historyLock.release();
         }
     }
 
@@ -781,16 +812,21 @@ abstract class InternalVersionManagerBase implements InternalVersionManager {
                                               Name version, Name label,
                                               boolean move)
             throws RepositoryException {
-        WriteOperation operation = startWriteOperation();
+        VersioningLock.HistoryLock historyLock = acquireHistoryLock(history.getId());
         try {
-            InternalVersion v = history.setVersionLabel(version, label, move);
-            operation.save();
-            return v;
-        } catch (ItemStateException e) {
-            log.error("Error while storing: " + e.toString());
-            return null;
+            WriteOperation operation = startWriteOperation();
+            try {
+                InternalVersion v = history.setVersionLabel(version, label, move);
+                operation.save();
+                return v;
+            } catch (ItemStateException e) {
+                log.error("Error while storing: " + e.toString());
+                return null;
+            } finally {
+                operation.close();
+            }
         } finally {
-            operation.close();
+            historyLock.release();
         }
     }
 
@@ -24,8 +24,10 @@ import javax.jcr.Session;
 import javax.jcr.version.Version;
 import javax.jcr.version.VersionIterator;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * This Class implements a VersionIterator that iterates over a version
@@ -163,11 +165,13 @@ class VersionIteratorImpl implements VersionIterator {
      */
     private synchronized void collectAllVersions(InternalVersion root) {
         LinkedList<InternalVersion> workQueue = new LinkedList<InternalVersion>();
+        // merged branches reach the same version more than once
+        Set<NodeId> visited = new HashSet<NodeId>();
         workQueue.add(root);
         while (!workQueue.isEmpty()) {
             InternalVersion currentVersion = workQueue.removeFirst();
             NodeId id = currentVersion.getId();
-            if (!versions.contains(id)) {
+            if (visited.add(id)) {
                 versions.add(id);
                 workQueue.addAll(currentVersion.getSuccessors());
             }
@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.core.version;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import javax.jcr.ItemExistsException;
 import javax.jcr.PropertyType;
@@ -61,6 +62,21 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
      */
     private static final Logger log = LoggerFactory.getLogger(VersionManagerImplRestore.class);
 
+    /**
+     * Nesting depth of {@link #internalRestore(NodeStateEx, InternalVersion, VersionSelector, boolean)}.
+     */
+    private int restoreDepth;
+
+    /**
+     * Number of nodes restored by this version manager.
+     */
+    private long restoredNodeCount;
+
+    /**
+     * Total time spent restoring nodes, in nanoseconds.
+     */
+    private long restoreTime;
+
     /**
      * Creates a new version manager for the given session
      *
@@ -269,6 +285,51 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
                                              VersionSelector vsel,
                                              boolean removeExisting)
             throws RepositoryException, ItemStateException {
+        long start = System.nanoTime();
+        long count = restoredNodeCount;
+        restoreDepth++;
+        try {
+            return doInternalRestore(state, version, vsel, removeExisting);
+        } finally {
+            if (--restoreDepth == 0) {
+                long time = System.nanoTime() - start;
+                restoreTime += time;
+                if (log.isDebugEnabled()) {
+                    log.debug("Restored " + (restoredNodeCount - count)
+                            + " nodes of version " + version.getName()
+                            + " in " + TimeUnit.NANOSECONDS.toMillis(time) + "ms");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes restored by this version manager.
+     *
+     * @return number of restored nodes
+     */
+    public long getRestoredNodeCount() {
+        return restoredNodeCount;
+    }
+
+    /**
+     * Returns the total time spent restoring nodes.
+     *
+     * @return time in milliseconds
+     */
+    public long getRestoreTime() {
+        return TimeUnit.NANOSECONDS.toMillis(restoreTime);
+    }
+
+    /**
+     * Restores the given version, see
+     * {@link #internalRestore(NodeStateEx, InternalVersion, VersionSelector, boolean)}.
+     */
+    private Set<InternalVersion> doInternalRestore(NodeStateEx state,
+                                                   InternalVersion version,
+                                                   VersionSelector vsel,
+                                                   boolean removeExisting)
+            throws RepositoryException, ItemStateException {
 
         // fail if root version
         if (version.isRootVersion()) {
@@ -351,6 +412,7 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
                                          boolean removeExisting,
                                          boolean copy)
             throws RepositoryException, ItemStateException {
+        restoredNodeCount++;
 
         // check uuid
         if (state.getEffectiveNodeType().includesNodeType(NameConstants.MIX_REFERENCEABLE)) {
@@ -469,19 +531,23 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
         // need to sync with state manager
         state.store();
 
-        // create a map that contains a int->NodeStateEx mapping for each child name
-        Map<Name, Map<Integer, NodeStateEx>> entryToNodeStateExMapping = new HashMap<Name, Map<Integer, NodeStateEx>>();
+        // create a map that contains a int->ChildNodeEntry mapping for each
+        // child name, the child states are only loaded when replaced
+        Map<Name, Map<Integer, ChildNodeEntry>> entryMapping = new HashMap<Name, Map<Integer, ChildNodeEntry>>();
         for (ChildNodeEntry entry : state.getState().getChildNodeEntries()) {
-            Map<Integer, NodeStateEx> id2stateMap = entryToNodeStateExMapping
+            Map<Integer, ChildNodeEntry> index2entryMap = entryMapping
                     .get(entry.getName());
-            if (id2stateMap == null) {
-                id2stateMap = new HashMap<Integer, NodeStateEx>();
+            if (index2entryMap == null) {
+                index2entryMap = new HashMap<Integer, ChildNodeEntry>();
+                entryMapping.put(entry.getName(), index2entryMap);
             }
-            id2stateMap.put(entry.getIndex(),
-                    state.getNode(entry.getName(), entry.getIndex()));
-            entryToNodeStateExMapping.put(entry.getName(), id2stateMap);
+            index2entryMap.put(entry.getIndex(), entry);
         }
 
+        // restored children in the order of the frozen node, for
+        // reordering the child node entries once all children are restored
+        Set<NodeId> restoredChildren = new LinkedHashSet<NodeId>();
+
         // For each child node C present on F:
         // - F will never have a child node with an OPV of IGNORE, INITIALIZE,
         //   COMPUTE or ABORT (see 15.2 Check-In: Creating a Version).
@@ -503,11 +569,12 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
                 InternalFrozenNode f = (InternalFrozenNode) child;
 
                 // if node is present, remove it
-                Map<Integer, NodeStateEx> id2stateMap = entryToNodeStateExMapping
+                Map<Integer, ChildNodeEntry> index2entryMap = entryMapping
                         .get(entry.getName());
-                if (id2stateMap != null
-                        && id2stateMap.containsKey(entry.getIndex())) {
-                    state.removeNode(id2stateMap.get(entry.getIndex()));
+                if (index2entryMap != null
+                        && index2entryMap.containsKey(entry.getIndex())) {
+                    NodeId id = index2entryMap.get(entry.getIndex()).getId();
+                    state.removeNode(state.getState().getChildNodeEntry(id));
                 }
 
                 // check for existing
@@ -629,28 +696,35 @@ abstract public class VersionManagerImplRestore extends VersionManagerImplBase {
                     restored.add(v);
                 }
             }
-            if (restoredChild != null && state.getEffectiveNodeType().hasOrderableChildNodes()) {
-                //   In a repository that supports orderable child nodes, the relative
-                //   ordering of the set of child nodes C that are copied from F is
-                //   preserved.
-
-                // order at end
-                ArrayList<ChildNodeEntry> list = new ArrayList<ChildNodeEntry>(state.getState().getChildNodeEntries());
-                ChildNodeEntry toReorder = null;
-                boolean isLast = true;
-                for (ChildNodeEntry e: list) {
-                    if (e.getId().equals(restoredChild.getNodeId())) {
-                        toReorder = e;
-                    } else if (toReorder != null) {
-                        isLast = false;
-                    }
+            if (restoredChild != null) {
+                // move to the end
+                restoredChildren.remove(restoredChild.getNodeId());
+                restoredChildren.add(restoredChild.getNodeId());
+            }
+        }
+
+        if (!restoredChildren.isEmpty() && state.getEffectiveNodeType().hasOrderableChildNodes()) {
+            //   In a repository that supports orderable child nodes, the relative
+            //   ordering of the set of child nodes C that are copied from F is
+            //   preserved.
+
+            // order the restored children at the end, in one pass
+            List<ChildNodeEntry> entries = state.getState().getChildNodeEntries();
+            List<ChildNodeEntry> list = new ArrayList<ChildNodeEntry>(entries.size());
+            for (ChildNodeEntry e : entries) {
+                if (!restoredChildren.contains(e.getId())) {
+                    list.add(e);
                 }
-                if (toReorder != null && !isLast) {
-                    list.remove(toReorder);
-                    list.add(toReorder);
-                    state.getState().setChildNodeEntries(list);
+            }
+            for (NodeId id : restoredChildren) {
+                ChildNodeEntry e = state.getState().getChildNodeEntry(id);
+                if (e != null) {
+                    list.add(e);
                 }
             }
+            if (!list.equals(entries)) {
+                state.getState().setChildNodeEntries(list);
+            }
         }
     }
 
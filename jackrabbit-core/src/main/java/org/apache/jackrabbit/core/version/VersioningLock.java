@@ -17,10 +17,14 @@
 package org.apache.jackrabbit.core.version;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.xa.Xid;
 
 import org.apache.jackrabbit.core.TransactionContext;
+import org.apache.jackrabbit.core.id.NodeId;
 
 import EDU.oswego.cs.dl.util.concurrent.ReadWriteLock;
 import EDU.oswego.cs.dl.util.concurrent.ReentrantWriterPreferenceReadWriteLock;
@@ -31,9 +35,19 @@ import EDU.oswego.cs.dl.util.concurrent.Sync;
  * synchronization. Unlike a normal reentrant lock, this one allows the lock
  * to be re-entered not just by a thread that's already holding the lock but
  * by any thread within the same transaction.
+ * <p>
+ * In addition to the read-write lock, a set of striped history locks
+ * serializes modifications of a single version history, so that the
+ * preparation of such a modification can happen before the write lock
+ * is acquired.
  */
 public class VersioningLock {
 
+    /**
+     * Number of history lock stripes.
+     */
+    private static final int HISTORY_LOCK_STRIPES = 64;
+
     /**
      * The internal read-write lock.
      * Thread concerning ReentrantWriterPreferenceReadWriteLock
@@ -46,6 +60,43 @@ public class VersioningLock {
      */
     private final ReadWriteLock xidRwLock = new XidRWLock();
 
+    /**
+     * The history lock stripes.
+     */
+    private final ReentrantLock[] historyLocks =
+        new ReentrantLock[HISTORY_LOCK_STRIPES];
+
+    /**
+     * Number of acquired write locks.
+     */
+    private final AtomicLong writeLockCount = new AtomicLong();
+
+    /**
+     * Number of write locks that could not be acquired immediately.
+     */
+    private final AtomicLong contendedWriteLockCount = new AtomicLong();
+
+    /**
+     * Total time spent waiting for write locks, in nanoseconds.
+     */
+    private final AtomicLong writeLockWaitTime = new AtomicLong();
+
+    /**
+     * Number of acquired history locks.
+     */
+    private final AtomicLong historyLockCount = new AtomicLong();
+
+    /**
+     * Number of history locks that could not be acquired immediately.
+     */
+    private final AtomicLong contendedHistoryLockCount = new AtomicLong();
+
+    public VersioningLock() {
+        for (int i = 0; i < historyLocks.length; i++) {
+            historyLocks[i] = new ReentrantLock();
+        }
+    }
+
     public ReadLock acquireReadLock() throws InterruptedException {
         if (TransactionContext.getCurrentXid() == null) {
             return new ReadLock(rwLock.readLock());
@@ -55,21 +106,98 @@ public class VersioningLock {
     }
 
     public WriteLock acquireWriteLock() throws InterruptedException {
+        ReadWriteLock lock;
         if (TransactionContext.getCurrentXid() == null) {
-            return new WriteLock(rwLock);
+            lock = rwLock;
         } else {
-            return new WriteLock(xidRwLock);
+            lock = xidRwLock;
+        }
+        if (!lock.writeLock().attempt(0)) {
+            contendedWriteLockCount.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                lock.writeLock().acquire();
+            } finally {
+                writeLockWaitTime.addAndGet(System.nanoTime() - start);
+            }
+        }
+        writeLockCount.incrementAndGet();
+        return new WriteLock(lock);
+    }
+
+    /**
+     * Acquires the lock that serializes modifications of the given version
+     * history. Unrelated histories are likely to map to different locks.
+     * The history lock must be acquired before the write lock, never while
+     * the write lock is held.
+     *
+     * @param historyId id of the version history
+     * @return the history lock
+     */
+    public HistoryLock acquireHistoryLock(NodeId historyId) {
+        int index = (historyId.hashCode() & 0x7fffffff) % historyLocks.length;
+        ReentrantLock lock = historyLocks[index];
+        if (!lock.tryLock()) {
+            contendedHistoryLockCount.incrementAndGet();
+            lock.lock();
         }
+        historyLockCount.incrementAndGet();
+        return new HistoryLock(lock);
+    }
+
+    /**
+     * Returns the number of write locks acquired so far.
+     *
+     * @return number of write locks
+     */
+    public long getWriteLockCount() {
+        return writeLockCount.get();
+    }
+
+    /**
+     * Returns the number of write locks that had to wait for other
+     * readers or writers.
+     *
+     * @return number of contended write locks
+     */
+    public long getContendedWriteLockCount() {
+        return contendedWriteLockCount.get();
+    }
+
+    /**
+     * Returns the total time spent waiting for write locks.
+     *
+     * @return time in milliseconds
+     */
+    public long getWriteLockWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(writeLockWaitTime.get());
+    }
+
+    /**
+     * Returns the number of history locks acquired so far.
+     *
+     * @return number of history locks
+     */
+    public long getHistoryLockCount() {
+        return historyLockCount.get();
+    }
+
+    /**
+     * Returns the number of history locks that had to wait for another
+     * modification of the same (or a colliding) version history.
+     *
+     * @return number of contended history locks
+     */
+    public long getContendedHistoryLockCount() {
+        return contendedHistoryLockCount.get();
     }
 
     public static class WriteLock {
 
         private ReadWriteLock readWriteLock;
 
-        private WriteLock(ReadWriteLock readWriteLock)
-                throws InterruptedException {
+        private WriteLock(ReadWriteLock readWriteLock) {
             this.readWriteLock = readWriteLock;
-            this.readWriteLock.writeLock().acquire();
         }
 
         public void release() {
@@ -84,6 +212,20 @@ public class VersioningLock {
 
     }
 
+    public static class HistoryLock {
+
+        private final ReentrantLock lock;
+
+        private HistoryLock(ReentrantLock lock) {
+            this.lock = lock;
+        }
+
+        public void release() {
+            lock.unlock();
+        }
+
+    }
+
     public static class ReadLock {
 
         private final Sync readLock;
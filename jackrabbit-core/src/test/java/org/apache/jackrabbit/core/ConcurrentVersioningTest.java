@@ -20,9 +20,11 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Node;
 import javax.jcr.version.Version;
+import javax.jcr.version.VersionHistory;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <code>ConcurrentVersioningTest</code> contains test cases that run version
@@ -69,6 +71,28 @@ public class ConcurrentVersioningTest extends AbstractConcurrencyTest {
         }, CONCURRENCY);
     }
 
+    public void testConcurrentAddVersionLabel() throws RepositoryException {
+        Node n = testRootNode.addNode("test");
+        n.addMixin(mixVersionable);
+        superuser.save();
+        n.checkin();
+        n.checkout();
+
+        final AtomicInteger count = new AtomicInteger();
+        runTask(new Task() {
+            public void execute(Session session, Node test) throws RepositoryException {
+                // all threads modify the same version history
+                VersionHistory history = test.getVersionHistory();
+                for (int i = 0; i < NUM_OPERATIONS / CONCURRENCY; i++) {
+                    history.addVersionLabel("1.0", "label" + count.incrementAndGet(), false);
+                }
+            }
+        }, CONCURRENCY, n.getPath());
+
+        String[] labels = n.getVersionHistory().getVersionLabels();
+        assertEquals(NUM_OPERATIONS, labels.length);
+    }
+
     public void testConcurrentCreateAndCheckinCheckout() throws RepositoryException {
         runTask(new Task() {
             public void execute(Session session, Node test) throws RepositoryException {
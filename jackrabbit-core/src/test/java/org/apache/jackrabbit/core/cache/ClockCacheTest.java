@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+/**
+ * <code>ClockCacheTest</code>...
+ */
+public class ClockCacheTest extends TestCase {
+
+    public void testMaxSize() {
+        int maxSize = 100;
+        ClockCache<String, String> c = new ClockCache<String, String>(2, maxSize);
+        for (int i = 0; i < 1000; i++) {
+            c.put("key" + i, "value" + i);
+            assertTrue("i = " + i, c.size() <= maxSize);
+        }
+        assertEquals("value999", c.get("key999"));
+    }
+
+    public void testReferencedEntriesSurvive() {
+        ClockCache<String, String> c = new ClockCache<String, String>(2, 10);
+        c.put("hot", "value");
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value", c.get("hot"));
+            c.put("key" + i, "value" + i);
+        }
+        assertEquals("value", c.get("hot"));
+    }
+
+    public void testStalePutIsDropped() {
+        ClockCache<String, String> c = new ClockCache<String, String>(2, 10);
+        long generation = c.getGeneration();
+        c.clear();
+        assertFalse(c.put("key", "stale", generation));
+        assertNull(c.get("key"));
+
+        generation = c.getGeneration();
+        assertTrue(c.put("key", "value", generation));
+        assertEquals("value", c.get("key"));
+
+        generation = c.getGeneration();
+        assertEquals("value", c.remove("key"));
+        assertFalse(c.put("key", "stale", generation));
+        assertEquals(0, c.size());
+    }
+
+    public void testRemoveAll() {
+        ClockCache<String, String> c = new ClockCache<String, String>(2, 10);
+        c.put("a", "1");
+        c.put("b", "2");
+        c.put("c", "3");
+        assertEquals(3, c.entries().size());
+
+        assertEquals(2, c.removeAll(Arrays.asList("a", "c", "x")));
+        assertEquals(1, c.size());
+        assertEquals("2", c.get("b"));
+        assertEquals(Collections.singletonMap("b", "2"), c.entries());
+
+        // a new generation starts even if nothing was removed
+        long generation = c.getGeneration();
+        assertEquals(0, c.removeAll(Collections.singleton("x")));
+        assertFalse(c.put("x", "stale", generation));
+    }
+}
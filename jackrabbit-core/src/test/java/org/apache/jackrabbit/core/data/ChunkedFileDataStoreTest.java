@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.test.JUnitTest;
+
+/**
+ * Tests the chunked file data store.
+ */
+public class ChunkedFileDataStoreTest extends JUnitTest {
+
+    private File testDir = new File(System.getProperty("java.io.tmpdir"), "chunkedDataStore");
+
+    private ChunkedFileDataStore store;
+
+    public void setUp() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+        testDir.mkdirs();
+        store = new ChunkedFileDataStore();
+        store.setPath(testDir.getPath());
+        store.setMinChunkSize(256);
+        store.setAverageChunkSize(1024);
+        store.setMaxChunkSize(4096);
+        store.init(testDir.getPath());
+    }
+
+    public void tearDown() throws IOException {
+        store.close();
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    public void testRoundTrip() throws Exception {
+        byte[] data = createData(1, 100000);
+        DataRecord rec = store.addRecord(new ByteArrayInputStream(data));
+        assertEquals(data.length, rec.getLength());
+        rec = store.getRecord(rec.getIdentifier());
+        assertEquals(data.length, rec.getLength());
+        assertTrue(Arrays.equals(data, read(rec)));
+
+        DataRecord empty = store.addRecord(new ByteArrayInputStream(new byte[0]));
+        assertEquals(0, empty.getLength());
+        assertEquals(0, read(empty).length);
+    }
+
+    public void testSameIdentifierAsFileDataStore() throws Exception {
+        byte[] data = createData(2, 10000);
+        FileDataStore fds = new FileDataStore();
+        fds.setPath(new File(testDir, "plain").getPath());
+        fds.init(testDir.getPath());
+        DataRecord plain = fds.addRecord(new ByteArrayInputStream(data));
+        DataRecord chunked = store.addRecord(new ByteArrayInputStream(data));
+        assertEquals(plain.getIdentifier(), chunked.getIdentifier());
+        fds.close();
+    }
+
+    public void testSharedChunks() throws Exception {
+        byte[] data = createData(3, 200000);
+        DataRecord a = store.addRecord(new ByteArrayInputStream(data));
+        int chunks = store.getChunkCount();
+        assertTrue(chunks > 10);
+
+        // modify the "header" and insert some bytes in the middle
+        byte[] modified = new byte[data.length + 5];
+        System.arraycopy(data, 0, modified, 0, 100000);
+        System.arraycopy(data, 100000, modified, 100005, data.length - 100000);
+        modified[10]++;
+        DataRecord b = store.addRecord(new ByteArrayInputStream(modified));
+        assertFalse(a.getIdentifier().equals(b.getIdentifier()));
+        assertTrue(store.getChunkCount() - chunks <= 4);
+        assertTrue(Arrays.equals(data, read(a)));
+        assertTrue(Arrays.equals(modified, read(b)));
+    }
+
+    public void testGarbageCollection() throws Exception {
+        byte[] data = createData(4, 50000);
+        byte[] modified = data.clone();
+        modified[0]++;
+        DataIdentifier a = store.addRecord(new ByteArrayInputStream(data)).getIdentifier();
+        DataIdentifier b = store.addRecord(new ByteArrayInputStream(modified)).getIdentifier();
+        int chunks = store.getChunkCount();
+
+        Thread.sleep(100);
+        long start = System.currentTimeMillis();
+        store.clearInUse();
+        store.updateModifiedDateOnAccess(start);
+        // only b is still in use
+        store.getRecord(b).getLength();
+        assertEquals(1, store.deleteAllOlderThan(start));
+        store.updateModifiedDateOnAccess(0);
+
+        assertNull(store.getRecordIfStored(a));
+        // only the first chunk of a was not shared with b
+        assertEquals(chunks - 1, store.getChunkCount());
+        assertTrue(Arrays.equals(modified, read(store.getRecord(b))));
+    }
+
+    private static byte[] createData(long seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] read(DataRecord rec) throws Exception {
+        InputStream in = rec.getStream();
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -19,8 +19,11 @@ package org.apache.jackrabbit.core.data;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Random;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.core.data.db.DbDataStore;
 import org.apache.jackrabbit.core.util.db.ConnectionFactory;
 import org.apache.jackrabbit.test.JUnitTest;
@@ -186,4 +189,55 @@ public class DBDataStoreTest extends JUnitTest {
         }
     }
 
+    public void testAsyncUpload() throws Exception {
+        File pending = new File("target/test-db-datastore/pending");
+        pending.mkdirs();
+
+        // a record left over from an interrupted upload
+        byte[] leftOver = new byte[3000];
+        new Random(1).nextBytes(leftOver);
+        DataIdentifier leftOverId = new DataIdentifier(
+                MessageDigest.getInstance("SHA-1").digest(leftOver));
+        FileUtils.writeByteArrayToFile(new File(pending, leftOverId.toString()), leftOver);
+
+        DbDataStore async = new DbDataStore();
+        async.setConnectionFactory(new ConnectionFactory());
+        async.setUrl("jdbc:derby:target/test-db-datastore/db;create=true");
+        async.setDriver("org.apache.derby.jdbc.EmbeddedDriver");
+        async.setAsyncUploadThreads(2);
+        async.setAsyncUploadQueueSize(1);
+        async.setPendingUploadPath(pending.getPath());
+        async.init("target/test-db-datastore");
+
+        DataRecord[] records = new DataRecord[10];
+        byte[][] content = new byte[records.length][];
+        for (int i = 0; i < records.length; i++) {
+            content[i] = new byte[2000 + i];
+            new Random(i + 2).nextBytes(content[i]);
+            records[i] = async.addRecord(new ByteArrayInputStream(content[i]));
+            // readable right away, from the pending file or the database
+            assertEquals(content[i].length, records[i].getLength());
+            assertTrue(Arrays.equals(content[i], read(records[i])));
+        }
+        async.close();
+        assertEquals(0, async.getPendingUploadCount());
+
+        // all records are now stored in the database
+        for (int i = 0; i < records.length; i++) {
+            DataRecord record = store.getRecord(records[i].getIdentifier());
+            assertTrue(Arrays.equals(content[i], read(record)));
+        }
+        assertTrue(Arrays.equals(leftOver, read(store.getRecord(leftOverId))));
+        assertEquals(0, pending.list().length);
+    }
+
+    private static byte[] read(DataRecord record) throws Exception {
+        InputStream in = record.getStream();
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.api.stats.DataStoreStatDto;
+import org.apache.jackrabbit.api.stats.RepositoryStatistics.Type;
+import org.apache.jackrabbit.core.stats.DataStoreStatImpl;
+import org.apache.jackrabbit.core.stats.RepositoryStatisticsImpl;
+import org.apache.jackrabbit.test.JUnitTest;
+
+/**
+ * Tests the access statistics of the instrumented data store.
+ */
+public class InstrumentedDataStoreTest extends JUnitTest {
+
+    private File testDir = new File(System.getProperty("java.io.tmpdir"), "instrumentedDataStore");
+
+    private RepositoryStatisticsImpl statistics;
+
+    private DataStoreStatImpl dataStoreStat;
+
+    private DataStore store;
+
+    public void setUp() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+        testDir.mkdirs();
+        FileDataStore fds = new FileDataStore();
+        fds.setPath(testDir.getPath());
+        fds.init(testDir.getPath());
+        statistics = new RepositoryStatisticsImpl();
+        dataStoreStat = new DataStoreStatImpl();
+        dataStoreStat.setEnabled(true);
+        dataStoreStat.setSampleRate(1);
+        store = new InstrumentedDataStore(fds, statistics, dataStoreStat);
+    }
+
+    public void tearDown() throws IOException {
+        store.close();
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    public void testCounters() throws Exception {
+        DataRecord a = store.addRecord(new ByteArrayInputStream(createData(1, 1000)));
+        store.addRecord(new ByteArrayInputStream(createData(2, 3000)));
+        assertEquals(2, statistics.getCounter(Type.DATASTORE_WRITE_COUNTER).get());
+        assertEquals(4000, statistics.getCounter(Type.DATASTORE_WRITE_BYTES).get());
+
+        read(store.getRecord(a.getIdentifier()));
+        read(store.getRecord(a.getIdentifier()));
+        assertEquals(2, statistics.getCounter(Type.DATASTORE_READ_COUNTER).get());
+        assertEquals(2000, statistics.getCounter(Type.DATASTORE_READ_BYTES).get());
+        assertTrue(statistics.getCounter(Type.DATASTORE_READ_DURATION).get() > 0);
+    }
+
+    public void testHotBinaries() throws Exception {
+        dataStoreStat.setHotBinariesQueueSize(2);
+        DataRecord[] records = new DataRecord[20];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = store.addRecord(new ByteArrayInputStream(createData(i, 100)));
+        }
+        // record 5 is read most, followed by record 7; every other record
+        // is read once, more often than the size of the candidate table
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                read(records[5]);
+            }
+            for (int i = 0; i < 5; i++) {
+                read(records[7]);
+            }
+            for (int i = 0; i < records.length; i++) {
+                read(records[i]);
+            }
+        }
+        DataStoreStatDto[] hot = dataStoreStat.getHotBinaries();
+        assertEquals(2, hot.length);
+        assertEquals(records[5].getIdentifier().toString(), hot[0].getIdentifier());
+        assertEquals(1, hot[0].getPosition());
+        assertEquals(100, hot[0].getLength());
+        assertTrue(hot[0].getReadCount() >= 33);
+        assertEquals(records[7].getIdentifier().toString(), hot[1].getIdentifier());
+
+        dataStoreStat.setSampleRate(4);
+        dataStoreStat.reset();
+        for (int i = 0; i < 8; i++) {
+            read(records[5]);
+        }
+        hot = dataStoreStat.getHotBinaries();
+        assertEquals(1, hot.length);
+        assertEquals(8, hot[0].getReadCount());
+    }
+
+    private static byte[] createData(long seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] read(DataRecord rec) throws Exception {
+        InputStream in = rec.getStream();
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+}
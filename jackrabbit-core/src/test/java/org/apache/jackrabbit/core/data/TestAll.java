@@ -35,6 +35,7 @@ public class TestAll extends TestCase {
     public static Test suite() {
         TestSuite suite = new ConcurrentTestSuite("Data tests");
 
+        suite.addTestSuite(ChunkedFileDataStoreTest.class);
         suite.addTestSuite(ConcurrentGcTest.class);
         suite.addTestSuite(CopyValueTest.class);
         suite.addTestSuite(DataStoreAPITest.class);
@@ -44,6 +45,7 @@ public class TestAll extends TestCase {
         suite.addTestSuite(GarbageCollectorTest.class);
         suite.addTestSuite(GCConcurrentTest.class);
         suite.addTestSuite(GCEventListenerTest.class);
+        suite.addTestSuite(InstrumentedDataStoreTest.class);
         suite.addTestSuite(LazyFileInputStreamTest.class);
         suite.addTestSuite(NodeTypeTest.class);
         suite.addTestSuite(OpenFilesTest.class);
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.lock;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.jcr.Node;
+
+import org.apache.jackrabbit.core.NodeImpl;
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.fs.FileSystem;
+import org.apache.jackrabbit.core.fs.mem.MemoryFileSystem;
+import org.apache.jackrabbit.test.AbstractJCRTest;
+
+/**
+ * Tests that open-scoped locks are recorded in the lock journal and
+ * survive a restart of the lock manager.
+ */
+public class LockJournalTest extends AbstractJCRTest {
+
+    private FileSystem fs;
+
+    private ScheduledExecutorService executor;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        fs = new MemoryFileSystem();
+        fs.init();
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        fs.close();
+        super.tearDown();
+    }
+
+    public void testReplayJournal() throws Exception {
+        NodeImpl n = (NodeImpl) testRootNode.addNode(nodeName1);
+        n.addMixin(mixLockable);
+        superuser.save();
+
+        LockManagerImpl lm = createLockManager();
+        try {
+            lm.lock(n, false, false);
+            assertEquals(1, lm.getLockCount());
+            assertEquals(1, lm.getJournalSize());
+            assertFalse(fs.exists("/locks"));
+
+            // a new lock manager replays and compacts the journal
+            LockManagerImpl other = createLockManager();
+            try {
+                assertNotNull(other.getLockInfo(n.getNodeId()));
+                assertEquals(0, other.getJournalSize());
+                assertTrue(fs.exists("/locks"));
+            } finally {
+                dispose(other);
+            }
+
+            lm.unlock(n);
+            assertEquals(1, lm.getUnlockCount());
+
+            other = createLockManager();
+            try {
+                assertNull(other.getLockInfo(n.getNodeId()));
+            } finally {
+                dispose(other);
+            }
+        } finally {
+            dispose(lm);
+        }
+    }
+
+    public void testSessionScopedLocksNotJournaled() throws Exception {
+        Node n = testRootNode.addNode(nodeName1);
+        n.addMixin(mixLockable);
+        superuser.save();
+
+        LockManagerImpl lm = createLockManager();
+        try {
+            lm.lock((NodeImpl) n, false, true);
+            assertEquals(0, lm.getJournalSize());
+            lm.unlock((NodeImpl) n);
+            assertEquals(0, lm.getJournalSize());
+        } finally {
+            dispose(lm);
+        }
+    }
+
+    private LockManagerImpl createLockManager() throws Exception {
+        return new LockManagerImpl((SessionImpl) superuser, fs, executor);
+    }
+
+    private void dispose(LockManagerImpl lm) throws Exception {
+        superuser.getWorkspace().getObservationManager().removeEventListener(lm);
+        lm.close();
+    }
+}
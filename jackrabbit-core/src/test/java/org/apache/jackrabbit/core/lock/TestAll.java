@@ -39,6 +39,7 @@ public class TestAll extends TestCase {
         suite.addTestSuite(ConcurrentLockingWithTransactionsTest.class);
         suite.addTestSuite(ExtendedLockingTest.class);
         suite.addTestSuite(LockTimeoutTest.class);
+        suite.addTestSuite(LockJournalTest.class);
 
         return suite;
     }
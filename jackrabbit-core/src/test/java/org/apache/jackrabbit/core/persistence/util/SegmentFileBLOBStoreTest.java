@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.persistence.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.core.fs.FileSystemResource;
+import org.apache.jackrabbit.core.fs.local.LocalFileSystem;
+
+public class SegmentFileBLOBStoreTest extends TestCase {
+
+    private final File directory = new File("target/segment-blob-store");
+
+    private SegmentFileBLOBStore store;
+
+    protected void setUp() throws Exception {
+        FileUtils.deleteDirectory(directory);
+        store = open();
+    }
+
+    protected void tearDown() throws Exception {
+        store.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private SegmentFileBLOBStore open() throws Exception {
+        SegmentFileBLOBStore s = new SegmentFileBLOBStore(directory);
+        s.setMaxSegmentSize(10000);
+        s.init();
+        return s;
+    }
+
+    public void testPutGetRemove() throws Exception {
+        byte[] a = data(1, 3000);
+        byte[] b = data(2, 5000);
+        store.put("a", new ByteArrayInputStream(a), a.length);
+        store.put("b", new ByteArrayInputStream(b), b.length);
+        assertTrue(Arrays.equals(a, read(store.get("a"))));
+        assertTrue(Arrays.equals(b, read(store.get("b"))));
+
+        FileSystemResource resource = store.getResource("b");
+        assertTrue(resource.exists());
+        assertEquals(b.length, resource.length());
+        assertTrue(Arrays.equals(b, read(resource.getInputStream())));
+
+        assertTrue(store.remove("a"));
+        assertFalse(store.remove("a"));
+        assertFalse(store.getResource("a").exists());
+    }
+
+    public void testReopen() throws Exception {
+        byte[] a = data(1, 3000);
+        byte[] b = data(2, 5000);
+        byte[] c = data(3, 7000);
+        store.put("a", new ByteArrayInputStream(a), a.length);
+        store.put("b", new ByteArrayInputStream(b), b.length);
+        store.put("b", new ByteArrayInputStream(c), c.length);
+        store.put("c", new ByteArrayInputStream(c), c.length);
+        store.remove("a");
+        store.close();
+
+        store = open();
+        assertFalse(store.getResource("a").exists());
+        assertTrue(Arrays.equals(c, read(store.get("b"))));
+        assertTrue(Arrays.equals(c, read(store.get("c"))));
+    }
+
+    public void testIncompleteRecord() throws Exception {
+        byte[] a = data(1, 3000);
+        store.put("a", new ByteArrayInputStream(a), a.length);
+        store.put("b", new ByteArrayInputStream(a), a.length);
+        store.close();
+
+        // simulate a crash while writing the second record
+        File segment = new File(directory, "segment-1.dat");
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            raf.setLength(raf.length() - 10);
+        } finally {
+            raf.close();
+        }
+
+        store = open();
+        assertTrue(Arrays.equals(a, read(store.get("a"))));
+        assertFalse(store.getResource("b").exists());
+        store.put("c", new ByteArrayInputStream(a), a.length);
+        assertTrue(Arrays.equals(a, read(store.get("c"))));
+    }
+
+    public void testCompaction() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            byte[] d = data(i, 2000);
+            store.put("blob" + i, new ByteArrayInputStream(d), d.length);
+        }
+        for (int i = 0; i < 20; i += 2) {
+            store.remove("blob" + i);
+        }
+        store.compact();
+        for (int i = 1; i < 20; i += 2) {
+            assertTrue(Arrays.equals(data(i, 2000), read(store.get("blob" + i))));
+        }
+        assertFalse(new File(directory, "segment-1.dat").exists());
+
+        store.close();
+        store = open();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i % 2 == 1, store.getResource("blob" + i).exists());
+        }
+    }
+
+    public void testRemovedAfterCompaction() throws Exception {
+        byte[] d = data(1, 3000);
+        // segment 1
+        for (String blobId : new String[]{"a", "f1", "f2"}) {
+            store.put(blobId, new ByteArrayInputStream(d), d.length);
+        }
+        // segment 2, with the removal marker of "a"
+        store.put("f3", new ByteArrayInputStream(d), d.length);
+        store.remove("a");
+        store.put("g1", new ByteArrayInputStream(d), d.length);
+        store.put("g2", new ByteArrayInputStream(d), d.length);
+        // segment 3
+        store.put("g3", new ByteArrayInputStream(d), d.length);
+        store.remove("f3");
+        store.remove("g1");
+        store.compact();
+        assertFalse(new File(directory, "segment-2.dat").exists());
+        assertTrue(new File(directory, "segment-1.dat").exists());
+
+        // the removal marker was kept, as segment 1 still contains "a"
+        store.close();
+        store = open();
+        assertFalse(store.getResource("a").exists());
+        for (String blobId : new String[]{"f1", "f2", "g2", "g3"}) {
+            assertTrue(Arrays.equals(d, read(store.get(blobId))));
+        }
+    }
+
+    public void testFallback() throws Exception {
+        store.close();
+        LocalFileSystem fs = new LocalFileSystem();
+        fs.setRoot(directory);
+        fs.init();
+        FileSystemBLOBStore legacy = new FileSystemBLOBStore(fs);
+        byte[] a = data(1, 3000);
+        legacy.put("/legacy/a.bin", new ByteArrayInputStream(a), a.length);
+
+        store = new SegmentFileBLOBStore(directory, legacy);
+        store.init();
+        assertTrue(Arrays.equals(a, read(store.get("/legacy/a.bin"))));
+        assertTrue(store.getResource("/legacy/a.bin").exists());
+
+        // overwriting moves the blob into the segments
+        byte[] b = data(2, 3000);
+        store.put("/legacy/a.bin", new ByteArrayInputStream(b), b.length);
+        assertFalse(legacy.getResource("/legacy/a.bin").exists());
+        assertTrue(Arrays.equals(b, read(store.get("/legacy/a.bin"))));
+        fs.close();
+    }
+
+    private static byte[] data(long seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws Exception {
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -27,6 +27,7 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(HashMapIndexTest.class);
         suite.addTestSuite(BundleBindingTest.class);
+        suite.addTestSuite(SegmentFileBLOBStoreTest.class);
 
         return suite;
     }
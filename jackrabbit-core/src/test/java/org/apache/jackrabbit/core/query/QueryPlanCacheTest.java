@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+
+import org.apache.jackrabbit.spi.commons.query.QueryRootNode;
+import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelTree;
+
+/**
+ * Tests the cache of parsed query statements.
+ */
+public class QueryPlanCacheTest extends AbstractQueryTest {
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        cache.put(Query.XPATH, "a", "plan-a");
+        cache.put(Query.XPATH, "b", "plan-b");
+        assertEquals("plan-a", cache.get(Query.XPATH, "a"));
+        cache.put(Query.XPATH, "c", "plan-c");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(Query.XPATH, "b"));
+        assertEquals("plan-a", cache.get(Query.XPATH, "a"));
+        assertNull(cache.get(Query.JCR_SQL2, "a"));
+    }
+
+    public void testSQL2BindVariables() throws Exception {
+        Node n1 = testRootNode.addNode("node1");
+        n1.setProperty(propertyName1, "foo");
+        Node n2 = testRootNode.addNode("node2");
+        n2.setProperty(propertyName1, "bar");
+        superuser.save();
+
+        String stmt = "SELECT * FROM [nt:base] WHERE ISCHILDNODE(["
+                + testRoot + "]) AND [" + propertyName1 + "] = $value";
+        Query q = qm.createQuery(stmt, Query.JCR_SQL2);
+        q.bindValue("value", vf.createValue("foo"));
+        checkResult(q.execute(), new Node[]{n1});
+
+        QueryPlanCache cache = getSearchIndex().getQueryPlanCache();
+        Object plan = cache.get(Query.JCR_SQL2, stmt);
+        assertTrue(plan instanceof QueryObjectModelTree);
+
+        q = qm.createQuery(stmt, Query.JCR_SQL2);
+        q.bindValue("value", vf.createValue("bar"));
+        checkResult(q.execute(), new Node[]{n2});
+        assertSame(plan, cache.get(Query.JCR_SQL2, stmt));
+    }
+
+    public void testXPath() throws Exception {
+        Node n1 = testRootNode.addNode("node1");
+        n1.setProperty(propertyName1, "foo");
+        superuser.save();
+
+        String stmt = testPath + "/*[@" + propertyName1 + " = 'foo']";
+        executeXPathQuery(stmt, new Node[]{n1});
+        Object plan = getSearchIndex().getQueryPlanCache().get(
+                Query.XPATH, stmt);
+        assertTrue(plan instanceof QueryRootNode);
+        executeXPathQuery(stmt, new Node[]{n1});
+    }
+
+    public void testRemappedNamespaces() throws Exception {
+        Node n1 = testRootNode.addNode("node1", "nt:unstructured");
+        superuser.save();
+
+        Session session = getHelper().getSuperuserSession();
+        try {
+            session.setNamespacePrefix("foo", "http://www.jcp.org/jcr/nt/1.0");
+            String stmt = testPath + "/element(*, foo:unstructured)";
+            QueryManager qm = session.getWorkspace().getQueryManager();
+            checkResult(qm.createQuery(stmt, Query.XPATH).execute(),
+                    new Node[]{n1});
+            assertNull(getSearchIndex().getQueryPlanCache().get(
+                    Query.XPATH, stmt));
+        } finally {
+            session.logout();
+        }
+    }
+
+}
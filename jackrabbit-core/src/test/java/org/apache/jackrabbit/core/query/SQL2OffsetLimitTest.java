@@ -156,6 +156,55 @@ public class SQL2OffsetLimitTest extends AbstractQueryTest {
         assertTrue(expected.isEmpty());
     }
 
+    public void testOrderedPagination() throws Exception {
+        for (String s : c) {
+            testRootNode.getNode(s).setProperty("prop", s);
+        }
+        testRootNode.getSession().save();
+
+        Query q = qm.createQuery("SELECT * FROM [nt:base] WHERE ISCHILDNODE(["
+                + testRoot + "]) order by [prop] desc", Query.JCR_SQL2);
+        q.setOffset(1);
+        q.setLimit(3);
+        assertEquals(Arrays.asList("d", "c", "b"), qrToPaths(q.execute()));
+
+        q.setOffset(4);
+        q.setLimit(3);
+        assertEquals(Arrays.asList("a"), qrToPaths(q.execute()));
+    }
+
+    public void testUnorderedPagination() throws Exception {
+        List<String> expected = new ArrayList<String>(c);
+        Query q = qm.createQuery("SELECT * FROM [nt:base] WHERE ISCHILDNODE(["
+                + testRoot + "])", Query.JCR_SQL2);
+        for (int i = 0; i < c.size(); i += 2) {
+            q.setOffset(i);
+            q.setLimit(2);
+            List<String> out = qrToPaths(q.execute());
+            assertEquals(Math.min(2, c.size() - i), out.size());
+            for (String s : out) {
+                assertTrue(expected.remove(s));
+            }
+        }
+        assertTrue(expected.isEmpty());
+
+        q.setOffset(c.size() * 2);
+        q.setLimit(2);
+        assertTrue(qrToPaths(q.execute()).isEmpty());
+    }
+
+    public void testUnorderedPaginationSize() throws Exception {
+        Query q = qm.createQuery("SELECT * FROM [nt:base] WHERE ISCHILDNODE(["
+                + testRoot + "])", Query.JCR_SQL2);
+        q.setOffset(1);
+        q.setLimit(2);
+        assertEquals(2, q.execute().getRows().getSize());
+
+        q.setOffset(c.size() - 1);
+        q.setLimit(2);
+        assertEquals(1, q.execute().getRows().getSize());
+    }
+
     private List<String> qrToPaths(QueryResult qr) throws RepositoryException {
         List<String> ret = new ArrayList<String>();
         for (Row row : JcrUtils.getRows(qr)) {
@@ -198,6 +198,25 @@ public class XPathAxisTest extends AbstractQueryTest {
         executeXPathQuery(xpath, new Node[0]);
     }
 
+    public void testDescendantAxisSiblingTrees() throws RepositoryException {
+        // hits outside of the context are checked before and after hits
+        // inside of the context, with shared ancestors
+        Node n111 = n11.addNode("node111");
+        Node n121 = n12.addNode("node121");
+        Node n211 = n21.addNode("node211");
+        Node n221 = n22.addNode("node221");
+        for (Node n : new Node[]{n11, n111, n121, n21, n211, n221}) {
+            n.setProperty("prop", "value");
+        }
+        testRootNode.save();
+        String xpath = "/jcr:root" + testRoot + "/node1//*[@prop = 'value']";
+        executeXPathQuery(xpath, new Node[]{n11, n111, n121});
+        xpath = "/jcr:root" + testRoot + "/node2//*[@prop = 'value']";
+        executeXPathQuery(xpath, new Node[]{n21, n211, n221});
+        xpath = "/jcr:root" + testRoot + "/node1/node12//*[@prop = 'value']";
+        executeXPathQuery(xpath, new Node[]{n121});
+    }
+
     public void testRootQuery() throws RepositoryException {
         // JCR-1987
         executeXPathQuery("/jcr:root[@foo = 'does-not-exist']", new Node[0]);
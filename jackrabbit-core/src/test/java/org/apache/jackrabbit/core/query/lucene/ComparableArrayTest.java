@@ -50,4 +50,18 @@ public class ComparableArrayTest {
         assertEquals("[b, a, d, c]", ca.toString());
         assertEquals(0, ca.getOffset());
     }
+
+    /**
+     * The SharedFieldCache shares arrays among documents with the same single
+     * value. A copy must not change the shared array.
+     */
+    @Test
+    public void testCopy() throws RepositoryException {
+        ComparableArray shared = new ComparableArray("a", 0);
+        ComparableArray ca = shared.copy().insert("b", 1);
+        assertEquals("a", shared.toString());
+        assertEquals("[a, b]", ca.toString());
+        assertEquals(0, ca.getOffset());
+        assertEquals(0, shared.compareTo(new ComparableArray("a", 0)));
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.core.data.DataIdentifier;
+
+/**
+ * <code>ExtractedTextStoreTest</code> checks the persistent store of extracted
+ * text.
+ */
+public class ExtractedTextStoreTest extends TestCase {
+
+    private File dir;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = new File(new File("target"), "extracted-text");
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+        super.tearDown();
+    }
+
+    public void testReadWrite() throws Exception {
+        ExtractedTextStore store = new ExtractedTextStore(dir, 1024 * 1024);
+        DataIdentifier id = new DataIdentifier("0123456789abcdef");
+        assertNull(store.read(id, 100));
+        store.write(id, "hello world", 100);
+        assertEquals("hello world", store.read(id, 100));
+        assertEquals("hello", store.read(id, 5));
+        // complete text is available for a larger limit
+        assertEquals("hello world", store.read(id, 1000));
+
+        // identifiers that cannot be used as file names
+        DataIdentifier other = new DataIdentifier("a/b");
+        store.write(other, "other", 100);
+        assertEquals("other", store.read(other, 100));
+
+        // the store is persistent
+        store = new ExtractedTextStore(dir, 1024 * 1024);
+        assertEquals("hello world", store.read(id, 100));
+        assertTrue(store.getSize() > 0);
+    }
+
+    public void testTruncatedText() throws Exception {
+        ExtractedTextStore store = new ExtractedTextStore(dir, 1024 * 1024);
+        DataIdentifier id = new DataIdentifier("0123456789abcdef");
+        store.write(id, "hello", 5);
+        assertEquals("hel", store.read(id, 3));
+        assertEquals("hello", store.read(id, 5));
+        // more text may be extracted with a larger limit
+        assertNull(store.read(id, 10));
+    }
+
+    public void testEviction() throws Exception {
+        ExtractedTextStore store = new ExtractedTextStore(dir, 2000);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append(Integer.toHexString(i * 7919 % 251));
+        }
+        for (int i = 0; i < 100; i++) {
+            store.write(new DataIdentifier("abcdef" + i), text + "-" + i, 1000);
+            assertTrue(store.getSize() <= 2000);
+        }
+        int stored = 0;
+        for (int i = 0; i < 100; i++) {
+            if (store.read(new DataIdentifier("abcdef" + i), 1000) != null) {
+                stored++;
+            }
+        }
+        assertTrue(stored > 0);
+        assertTrue(stored < 100);
+    }
+
+    public void testStaleTempFiles() throws Exception {
+        ExtractedTextStore store = new ExtractedTextStore(dir, 1024 * 1024);
+        DataIdentifier id = new DataIdentifier("0123456789abcdef");
+        store.write(id, "hello world", 100);
+        File sub = new File(new File(new File(dir, "01"), "23"), "45");
+        File temp = new File(sub, "0123456789abcdef.txt.gz.tmp1");
+        FileUtils.writeStringToFile(temp, "incomplete");
+
+        store = new ExtractedTextStore(dir, 1024 * 1024);
+        assertFalse(temp.exists());
+        assertEquals("hello world", store.read(id, 100));
+    }
+}
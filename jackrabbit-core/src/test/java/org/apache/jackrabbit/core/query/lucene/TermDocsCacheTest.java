@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+
+/**
+ * <code>TermDocsCacheTest</code> checks that cached term docs are identical
+ * to the ones read from the index.
+ */
+public class TermDocsCacheTest extends TestCase {
+
+    private static final int NUM_DOCS = 1000;
+
+    private IndexReader reader;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        Directory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new StandardAnalyzer(Version.LUCENE_24),
+                true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            if (i % 2 == 0) {
+                addProperty(doc, "dense");
+            }
+            if (i % 100 == 7) {
+                addProperty(doc, "sparse");
+            }
+            writer.addDocument(doc);
+        }
+        writer.close();
+        reader = IndexReader.open(dir, true);
+    }
+
+    protected void tearDown() throws Exception {
+        reader.close();
+        super.tearDown();
+    }
+
+    public void testCachedTermDocs() throws Exception {
+        TermDocsCache cache = new TermDocsCache(reader, FieldNames.PROPERTIES);
+        long hits = TermDocsCache.getHitCount();
+        long memory = TermDocsCache.getMemoryUsed();
+        for (int i = 0; i < 12; i++) {
+            for (String text : new String[]{"dense", "sparse", "unknown"}) {
+                Term t = new Term(FieldNames.PROPERTIES, text);
+                assertEquals(getDocs(reader.termDocs(t)), getDocs(cache.termDocs(t)));
+            }
+        }
+        assertTrue(TermDocsCache.getHitCount() > hits);
+
+        TermDocs docs = cache.termDocs(new Term(FieldNames.PROPERTIES, "sparse"));
+        assertTrue(docs.skipTo(500));
+        assertEquals(507, docs.doc());
+        assertTrue(docs.next());
+        assertEquals(607, docs.doc());
+        assertFalse(docs.skipTo(NUM_DOCS));
+
+        cache.dispose();
+        assertEquals(memory, TermDocsCache.getMemoryUsed());
+        Term t = new Term(FieldNames.PROPERTIES, "dense");
+        assertEquals(getDocs(reader.termDocs(t)), getDocs(cache.termDocs(t)));
+    }
+
+    private static void addProperty(Document doc, String value) {
+        doc.add(new Field(FieldNames.PROPERTIES, false, value, Field.Store.NO,
+                Field.Index.NOT_ANALYZED_NO_NORMS, Field.TermVector.NO));
+    }
+
+    private static List<Integer> getDocs(TermDocs docs) throws Exception {
+        List<Integer> list = new ArrayList<Integer>();
+        try {
+            while (docs.next()) {
+                list.add(docs.doc());
+            }
+        } finally {
+            docs.close();
+        }
+        return list;
+    }
+}
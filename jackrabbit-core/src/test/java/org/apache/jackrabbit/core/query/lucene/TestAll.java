@@ -44,6 +44,9 @@ public class TestAll extends TestCase {
         suite.addTestSuite(IndexingConfigurationImplTest.class);
         suite.addTestSuite(SQL2IndexingAggregateTest.class);
         suite.addTestSuite(SQL2IndexingAggregateTest2.class);
+        suite.addTestSuite(TermDocsCacheTest.class);
+        suite.addTestSuite(TextExtractionPipelineTest.class);
+        suite.addTestSuite(ExtractedTextStoreTest.class);
 
         return suite;
     }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.query.lucene;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.core.data.FileDataStore;
+import org.apache.jackrabbit.core.value.InternalValue;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.EmptyParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * <code>TextExtractionPipelineTest</code> checks that binaries with the same
+ * content are extracted only once.
+ */
+public class TextExtractionPipelineTest extends TestCase {
+
+    private File dir;
+
+    private FileDataStore store;
+
+    private CountingParser parser;
+
+    private QueuingExecutor executor;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        dir = new File(new File("target"), "extraction-pipeline");
+        FileUtils.deleteDirectory(dir);
+        store = new FileDataStore();
+        store.setMinRecordLength(0);
+        store.init(dir.getPath());
+        parser = new CountingParser();
+        executor = new QueuingExecutor();
+    }
+
+    protected void tearDown() throws Exception {
+        store.close();
+        FileUtils.deleteDirectory(dir);
+        super.tearDown();
+    }
+
+    public void testSameBinaryExtractedOnce() throws Exception {
+        TextExtractionPipeline pipeline =
+            new TextExtractionPipeline(executor, Integer.MAX_VALUE, 1000);
+        LazyTextExtractorField f1 = createField(pipeline, "content");
+        LazyTextExtractorField f2 = createField(pipeline, "content");
+        LazyTextExtractorField other = createField(pipeline, "other");
+        assertEquals(2, executor.tasks.size());
+        assertFalse(f1.isExtractorFinished());
+
+        executor.runAll();
+        assertEquals(2, parser.count);
+        assertTrue(f1.isExtractorFinished());
+        assertEquals(f1.stringValue(), f2.stringValue());
+        assertFalse(f1.stringValue().equals(other.stringValue()));
+
+        // extracted text is reused from memory
+        LazyTextExtractorField f3 = createField(pipeline, "content");
+        assertTrue(f3.isExtractorFinished());
+        assertEquals(f1.stringValue(), f3.stringValue());
+        assertEquals(0, executor.tasks.size());
+        assertEquals(2, parser.count);
+        assertEquals(2, pipeline.getStatistics().get("text/plain").getCacheHits());
+    }
+
+    public void testDisposeCancelsExtraction() throws Exception {
+        TextExtractionPipeline pipeline =
+            new TextExtractionPipeline(executor, Integer.MAX_VALUE, 1000);
+        LazyTextExtractorField f1 = createField(pipeline, "content");
+        LazyTextExtractorField f2 = createField(pipeline, "content");
+        f1.dispose();
+        f1.dispose();
+        f2.dispose();
+        executor.runAll();
+        assertEquals(0, parser.count);
+        assertEquals(0, pipeline.getPendingJobs());
+
+        // a cancelled job is not reused
+        LazyTextExtractorField f3 = createField(pipeline, "content");
+        executor.runAll();
+        assertEquals(1, parser.count);
+        assertEquals("content", f3.stringValue().trim());
+    }
+
+    public void testStoredTextIsReused() throws Exception {
+        ExtractedTextStore textStore =
+            new ExtractedTextStore(new File(dir, "text"), 1024 * 1024);
+        TextExtractionPipeline pipeline = new TextExtractionPipeline(
+                executor, Integer.MAX_VALUE, 1000, textStore);
+        LazyTextExtractorField f1 = createField(pipeline, "content");
+        executor.runAll();
+        assertEquals(1, parser.count);
+
+        // a new pipeline, e.g. after a restart
+        pipeline = new TextExtractionPipeline(
+                executor, Integer.MAX_VALUE, 1000, textStore);
+        LazyTextExtractorField f2 = createField(pipeline, "content");
+        executor.runAll();
+        assertEquals(1, parser.count);
+        assertEquals(f1.stringValue(), f2.stringValue());
+        assertEquals(1, pipeline.getStatistics().get("text/plain").getStoreHits());
+    }
+
+    public void testBackLog() throws Exception {
+        TextExtractionPipeline pipeline =
+            new TextExtractionPipeline(executor, 0, 1000);
+        LazyTextExtractorField f = createField(pipeline, "content");
+        assertTrue(f.isExtractorFinished());
+        assertEquals(0, executor.tasks.size());
+    }
+
+    private LazyTextExtractorField createField(
+            TextExtractionPipeline pipeline, String content) throws Exception {
+        InternalValue value = InternalValue.create(
+                new ByteArrayInputStream(content.getBytes("UTF-8")), store);
+        assertNotNull(value.getDataIdentifier());
+        Metadata metadata = new Metadata();
+        metadata.set(Metadata.CONTENT_TYPE, "text/plain");
+        return pipeline.createField(parser, value, metadata, false, 1000);
+    }
+
+    private static class CountingParser extends EmptyParser {
+
+        private int count;
+
+        @Override
+        public void parse(
+                InputStream stream, ContentHandler handler,
+                Metadata metadata, ParseContext context)
+                throws SAXException {
+            count++;
+            try {
+                String text = new String(
+                        IOUtils.toByteArray(stream),
+                        "UTF-8");
+                XHTMLContentHandler xhtml =
+                    new XHTMLContentHandler(handler, metadata);
+                xhtml.startDocument();
+                xhtml.element("p", text);
+                xhtml.endDocument();
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    private static class QueuingExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.security.authorization;
+
+import org.apache.jackrabbit.spi.Name;
+import org.apache.jackrabbit.spi.Path;
+import org.apache.jackrabbit.spi.PathFactory;
+import org.apache.jackrabbit.spi.commons.name.NameFactoryImpl;
+import org.apache.jackrabbit.spi.commons.name.PathFactoryImpl;
+import org.apache.jackrabbit.test.JUnitTest;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * <code>InvalidationScopeTest</code>...
+ */
+public class InvalidationScopeTest extends JUnitTest {
+
+    private static final PathFactory PATH_FACTORY = PathFactoryImpl.getInstance();
+
+    public void testEmpty() throws RepositoryException {
+        InvalidationScope scope = new InvalidationScope();
+        assertTrue(scope.isEmpty());
+        assertFalse(scope.includesAll());
+        assertFalse(scope.includes(path("a")));
+        assertFalse(scope.includes(PATH_FACTORY.getRootPath()));
+    }
+
+    public void testSubtrees() throws RepositoryException {
+        InvalidationScope scope = new InvalidationScope();
+        scope.add(path("a", "b"));
+        scope.add(path("c"));
+        scope.add(path("a", "b"));
+        assertEquals(2, scope.size());
+        assertFalse(scope.includesAll());
+
+        assertTrue(scope.includes(path("a", "b")));
+        assertTrue(scope.includes(path("a", "b", "x", "y")));
+        assertTrue(scope.includes(path("c")));
+        assertTrue(scope.includes(path("c", "d")));
+
+        assertFalse(scope.includes(PATH_FACTORY.getRootPath()));
+        assertFalse(scope.includes(path("a")));
+        assertFalse(scope.includes(path("a", "bb")));
+        assertFalse(scope.includes(path("a", "x", "b")));
+        assertFalse(scope.includes(path("d", "c")));
+    }
+
+    public void testRoot() throws RepositoryException {
+        InvalidationScope scope = new InvalidationScope();
+        scope.add(path("a"));
+        scope.add(PATH_FACTORY.getRootPath());
+        assertTrue(scope.includesAll());
+        assertTrue(scope.includes(PATH_FACTORY.getRootPath()));
+        assertTrue(scope.includes(path("x", "y")));
+    }
+
+    private static Path path(String... names) throws RepositoryException {
+        Path path = PATH_FACTORY.getRootPath();
+        for (String name : names) {
+            Name qName = NameFactoryImpl.getInstance().create(Name.NS_DEFAULT_URI, name);
+            path = PATH_FACTORY.create(path, qName, true);
+        }
+        return path;
+    }
+}
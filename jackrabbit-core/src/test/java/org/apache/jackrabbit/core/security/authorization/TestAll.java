@@ -42,6 +42,7 @@ public class TestAll extends TestCase {
         suite.addTestSuite(JackrabbitAccessControlListTest.class);
         suite.addTestSuite(GlobPatternTest.class);
         suite.addTestSuite(PermissionTest.class);
+        suite.addTestSuite(InvalidationScopeTest.class);
 
         return suite;
     }
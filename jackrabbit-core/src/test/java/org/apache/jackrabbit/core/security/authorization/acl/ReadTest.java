@@ -339,6 +339,44 @@ public class ReadTest extends AbstractEvaluationTest {
         assertFalse(testSession.propertyExists(propPath));
     }
 
+    public void testGlobRestrictionOnSiblings() throws Exception {
+        Node n = superuser.getNode(path);
+        String aPath = n.addNode("a", testNodeType).getPath();
+        String bPath = n.addNode("b", testNodeType).getPath();
+        String cPath = n.addNode("c", testNodeType).getPath();
+        superuser.save();
+
+        Privilege[] read = privilegesFromName(Privilege.JCR_READ);
+        Map<String, Value> restrictions = new HashMap<String, Value>(getRestrictions(superuser, path));
+        restrictions.put(AccessControlConstants.P_GLOB.toString(), superuser.getValueFactory().createValue("/b*"));
+        withdrawPrivileges(path, read, restrictions);
+
+        // the siblings inherit the same entries, but only 'b' matches the glob
+        Session testSession = getTestSession();
+        assertTrue(testSession.nodeExists(aPath));
+        assertFalse(testSession.nodeExists(bPath));
+        assertTrue(testSession.nodeExists(cPath));
+        assertTrue(testSession.nodeExists(childNPath));
+    }
+
+    public void testDenySiblingOnly() throws Exception {
+        Node n = superuser.getNode(path);
+        String aPath = n.addNode("a", testNodeType).getPath();
+        String bPath = n.addNode("b", testNodeType).getPath();
+        String cPath = n.addNode("c", testNodeType).getPath();
+        superuser.save();
+
+        Session testSession = getTestSession();
+        assertTrue(testSession.nodeExists(aPath));
+
+        withdrawPrivileges(bPath, privilegesFromName(Privilege.JCR_READ), getRestrictions(superuser, bPath));
+
+        assertTrue(testSession.nodeExists(aPath));
+        assertFalse(testSession.nodeExists(bPath));
+        assertTrue(testSession.nodeExists(cPath));
+        assertTrue(testSession.propertyExists(cPath + "/" + jcrPrimaryType));
+    }
+
     public void testRemoveMixin() throws Exception {
         Node n = superuser.getNode(path);
         
@@ -355,4 +393,28 @@ public class ReadTest extends AbstractEvaluationTest {
         assertFalse(n.hasNode("rep:policy"));
         assertFalse(n.isNodeType("rep:AccessControllable"));
     }
-}
\ No newline at end of file
+
+    public void testSessionsOfSamePrincipals() throws Exception {
+        Session s1 = getHelper().getRepository().login(creds);
+        Session s2 = getHelper().getRepository().login(creds);
+        try {
+            assertTrue(s1.nodeExists(childNPath));
+            assertTrue(s2.nodeExists(childNPath));
+
+            withdrawPrivileges(childNPath, privilegesFromName(Privilege.JCR_READ), getRestrictions(superuser, childNPath));
+
+            // both sessions observe the modified policy
+            assertFalse(s1.nodeExists(childNPath));
+            assertFalse(s2.nodeExists(childNPath));
+            assertTrue(s2.nodeExists(path));
+
+            // logging out one session must not affect the other
+            s1.logout();
+            givePrivileges(childNPath, privilegesFromName(Privilege.JCR_READ), getRestrictions(superuser, childNPath));
+            assertTrue(s2.nodeExists(childNPath));
+        } finally {
+            s1.logout();
+            s2.logout();
+        }
+    }
+}
@@ -126,4 +126,56 @@ public class GroupImplTest extends AbstractUserTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    public void testMembershipCacheUpdate() throws Exception {
+        if (!(userMgr instanceof UserManagerImpl)) {
+            throw new NotExecutableException();
+        }
+        MembershipCache cache = ((UserManagerImpl) userMgr).getMembershipCache();
+
+        Group g1 = null;
+        Group g2 = null;
+        try {
+            g1 = userMgr.createGroup(getTestPrincipal());
+            g2 = userMgr.createGroup(getTestPrincipal());
+            Authorizable user = getTestUser(superuser);
+            g2.addMember(user);
+            g1.addMember(g2);
+            save(superuser);
+
+            assertTrue(contains(user.memberOf(), g1));
+            assertTrue(contains(user.memberOf(), g2));
+            long hits = cache.getHitCount();
+            assertTrue(contains(g2.memberOf(), g1));
+            assertTrue(cache.getHitCount() > hits);
+
+            // only the former members of g1 are affected
+            g1.removeMember(g2);
+            save(superuser);
+            assertFalse(contains(user.memberOf(), g1));
+            assertTrue(contains(user.memberOf(), g2));
+            assertFalse(contains(g2.declaredMemberOf(), g1));
+
+            g1.addMember(g2);
+            save(superuser);
+            assertTrue(contains(user.memberOf(), g1));
+        } finally {
+            if (g1 != null) {
+                g1.remove();
+            }
+            if (g2 != null) {
+                g2.remove();
+            }
+            save(superuser);
+        }
+    }
+
+    private static boolean contains(Iterator<Group> groups, Group group) throws RepositoryException {
+        while (groups.hasNext()) {
+            if (groups.next().getID().equals(group.getID())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -140,6 +140,40 @@ public class UserManagerImplTest extends AbstractUserTest {
         }
     }
 
+    public void testGetAuthorizableByIndexedPrincipalName() throws RepositoryException, NotExecutableException {
+        AuthorizableIndex index = ((UserManagerImpl) userMgr).getAuthorizableIndex();
+        if (index == null) {
+            throw new NotExecutableException("No authorizable index.");
+        }
+
+        Principal p = getTestPrincipal();
+        String uid = getTestUserId(p);
+        User u = null;
+        try {
+            u = userMgr.createUser(uid, buildPassword(uid), p, null);
+            save(superuser);
+
+            // the principal name was indexed upon save
+            long hits = index.getHitCount();
+            Authorizable a = userMgr.getAuthorizable(new TestPrincipal(p.getName()));
+            assertNotNull(a);
+            assertEquals(uid, a.getID());
+            assertTrue(index.getHitCount() > hits);
+
+            u.remove();
+            u = null;
+            save(superuser);
+
+            // stale entries are detected upon lookup
+            assertNull(userMgr.getAuthorizable(new TestPrincipal(p.getName())));
+        } finally {
+            if (u != null) {
+                u.remove();
+                save(superuser);
+            }
+        }
+    }
+
     public void testCreateGroupWithInvalidIdOrPrincipal() throws RepositoryException, NotExecutableException {
         Principal p = getTestPrincipal();
         String uid = p.getName();
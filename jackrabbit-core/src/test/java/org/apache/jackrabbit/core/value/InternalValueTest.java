@@ -16,6 +16,9 @@
  */
 package org.apache.jackrabbit.core.value;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.QValueTest;
@@ -43,4 +46,42 @@ public class InternalValueTest extends QValueTest {
 
     protected void tearDown() throws Exception {
     }
+
+    public void testInMemoryThreshold() throws Exception {
+        // binaries up to the default minBlobSize of the bundles stay in memory
+        InternalValue inMemory = InternalValue.createTemporary(
+                new ByteArrayInputStream(new byte[4096]));
+        assertNull(inMemory.getExclusiveTemporaryFile());
+        assertEquals(4096, inMemory.getLength());
+        inMemory.discard();
+
+        InternalValue inFile = InternalValue.createTemporary(
+                new ByteArrayInputStream(new byte[4097]));
+        assertNotNull(inFile.getExclusiveTemporaryFile());
+        assertEquals(4097, inFile.getLength());
+        inFile.discard();
+    }
+
+    public void testExclusiveTemporaryFile() throws Exception {
+        // small binaries are kept in memory
+        InternalValue small = InternalValue.createTemporary(
+                new ByteArrayInputStream(new byte[1000]));
+        assertNull(small.getExclusiveTemporaryFile());
+        small.discard();
+
+        InternalValue large = InternalValue.createTemporary(
+                new ByteArrayInputStream(new byte[100000]));
+        File file = large.getExclusiveTemporaryFile();
+        assertNotNull(file);
+        assertEquals(100000, file.length());
+
+        // the file can not be moved while a copy uses it
+        InternalValue copy = large.createCopy();
+        assertNull(large.getExclusiveTemporaryFile());
+        assertNull(copy.getExclusiveTemporaryFile());
+        large.discard();
+        assertEquals(file, copy.getExclusiveTemporaryFile());
+        copy.discard();
+        assertFalse(file.exists());
+    }
 }
\ No newline at end of file
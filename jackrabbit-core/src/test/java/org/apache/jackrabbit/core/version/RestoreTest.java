@@ -18,12 +18,14 @@ package org.apache.jackrabbit.core.version;
 
 import org.apache.jackrabbit.test.AbstractJCRTest;
 import org.apache.jackrabbit.core.UserTransactionImpl;
+import org.apache.jackrabbit.core.VersionManagerImpl;
 
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.version.Version;
 
 /**
- * Test case for JCR-1476.
+ * Test cases for restoring versions.
  */
 public class RestoreTest extends AbstractJCRTest {
 
@@ -39,4 +41,32 @@ public class RestoreTest extends AbstractJCRTest {
         assertEquals("Wrong version restored", versionName, n.getBaseVersion().getName());
         tx.commit();
     }
+
+    public void testRestoreChildOrder() throws Exception {
+        Node n = testRootNode.addNode(nodeName1, "nt:unstructured");
+        n.addMixin(mixVersionable);
+        for (int i = 0; i < 10; i++) {
+            n.addNode("child" + i, "nt:unstructured");
+        }
+        testRootNode.save();
+        Version v = n.checkin();
+
+        n.checkout();
+        n.orderBefore("child9", "child0");
+        n.getNode("child5").remove();
+        n.addNode("extra", "nt:unstructured");
+        n.save();
+
+        VersionManagerImpl vMgr = (VersionManagerImpl)
+            superuser.getWorkspace().getVersionManager();
+        long count = vMgr.getRestoredNodeCount();
+        n.restore(v, true);
+        assertEquals(11, vMgr.getRestoredNodeCount() - count);
+
+        NodeIterator it = n.getNodes();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("child" + i, it.nextNode().getName());
+        }
+        assertFalse(it.hasNext());
+    }
 }
@@ -78,4 +78,14 @@ public class VersionIteratorImplTest extends TestCase {
 
     }
 
+    public void testMergedVersions() throws Exception {
+        // 1.0 and 2.0 are both merged into 3.0
+        InternalVersion merged = new DummyInternalVersion(new InternalVersion[] {}, NodeId.randomId());
+        InternalVersion v1 = new DummyInternalVersion(new InternalVersion[] {merged}, NodeId.randomId());
+        InternalVersion v2 = new DummyInternalVersion(new InternalVersion[] {merged}, NodeId.randomId());
+        InternalVersion root = new DummyInternalVersion(new InternalVersion[] {v1, v2}, NodeId.randomId());
+
+        VersionIteratorImpl versionIteratorImpl = new VersionIteratorImpl(null, root);
+        assertEquals(4, versionIteratorImpl.getSize());
+    }
 }
@@ -94,10 +94,15 @@ public abstract class AbstractPerformanceTest {
         runTest(new BigFileWriteTest(), name, conf);
         runTest(new ConcurrentReadTest(), name, conf);
         runTest(new ConcurrentReadWriteTest(), name, conf);
+        runTest(new ConcurrentCheckinTest(), name, conf);
+        runTest(new GetAllVersionsTest(), name, conf);
+        runTest(new RestoreTreeTest(), name, conf);
+        runTest(new ActivityCheckoutTest(), name, conf);
         runTest(new SimpleSearchTest(), name, conf);
         runTest(new SQL2SearchTest(), name, conf);
         runTest(new DescendantSearchTest(), name, conf);
         runTest(new SQL2DescendantSearchTest(), name, conf);
+        runTest(new DeepTreeDescendantSearchTest(), name, conf);
         runTest(new TwoWayJoinTest(), name, conf);
         runTest(new ThreeWayJoinTest(), name, conf);
         runTest(new CreateManyChildNodesTest(), name, conf);
@@ -105,10 +110,13 @@ public abstract class AbstractPerformanceTest {
         runTest(new TransientManyChildNodesTest(), name, conf);
         runTest(new CreateUserTest(), name, conf);
         runTest(new PathBasedQueryTest(), name, conf);
+        runTest(new LikeAndRangeSearchTest(), name, conf);
         try {
             runTest(new AddGroupMembersTest(), name, conf);
             runTest(new GroupMemberLookupTest(), name, conf);
             runTest(new GroupGetMembersTest(), name, conf);
+            runTest(new ConcurrentAccessControlledReadTest(), name, conf);
+            runTest(new PrincipalLookupTest(), name, conf);
         } catch (NoClassDefFoundError e) {
             // ignore these tests if the required jackrabbit-api
             // extensions are not available
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.version.VersionManager;
+
+/**
+ * Test case that checks out and checks in a versionable node 100 times
+ * while an activity that already contains 1000 versions of other version
+ * histories is set on the session.
+ */
+public class ActivityCheckoutTest extends AbstractTest {
+
+    private static final int NODE_COUNT = 10;
+
+    private static final int VERSION_COUNT = getScale(100);
+
+    private Session session;
+
+    private Node root;
+
+    private VersionManager manager;
+
+    private String path;
+
+    public void beforeSuite() throws Exception {
+        failOnRepositoryVersions("1.4", "1.5", "1.6");
+
+        session = loginWriter();
+        root = session.getRootNode().addNode("testroot", "nt:unstructured");
+        for (int i = 0; i < NODE_COUNT; i++) {
+            Node node = root.addNode("node" + i, "nt:unstructured");
+            node.addMixin("mix:versionable");
+        }
+        Node node = root.addNode("main", "nt:unstructured");
+        node.addMixin("mix:versionable");
+        session.save();
+        path = node.getPath();
+
+        manager = session.getWorkspace().getVersionManager();
+        manager.setActivity(manager.createActivity("test"));
+        for (int i = 0; i < VERSION_COUNT; i++) {
+            for (int j = 0; j < NODE_COUNT; j++) {
+                String p = root.getNode("node" + j).getPath();
+                manager.checkin(p);
+                manager.checkout(p);
+            }
+        }
+    }
+
+    public void runTest() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            manager.checkin(path);
+            manager.checkout(path);
+        }
+    }
+
+    public void afterSuite() throws Exception {
+        manager.setActivity(null);
+        root.remove();
+        session.save();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import java.security.Principal;
+import java.util.Random;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.security.AccessControlList;
+import javax.jcr.security.AccessControlManager;
+import javax.jcr.security.AccessControlPolicyIterator;
+import javax.jcr.security.Privilege;
+
+/**
+ * Test case where many concurrent anonymous readers randomly access nodes
+ * and properties of a tree in which every sub-tree defines its own access
+ * control list. Measures the throughput of the permission evaluation under
+ * contention.
+ */
+public class ConcurrentAccessControlledReadTest extends AbstractTest {
+
+    private static final int NODE_COUNT = 100;
+
+    private static final int READER_COUNT = getScale(50);
+
+    private static final Principal EVERYONE = new Principal() {
+        public String getName() {
+            return "everyone";
+        }
+    };
+
+    private Session session;
+
+    private Node root;
+
+    @Override
+    protected void beforeSuite() throws Exception {
+        session = loginWriter();
+        root = session.getRootNode().addNode(
+                getClass().getSimpleName(), "nt:unstructured");
+        session.save();
+
+        AccessControlManager acMgr = session.getAccessControlManager();
+        Privilege[] read = new Privilege[] {
+                acMgr.privilegeFromName(Privilege.JCR_READ) };
+        for (int i = 0; i < NODE_COUNT; i++) {
+            Node node = root.addNode("node" + i, "nt:unstructured");
+            for (int j = 0; j < NODE_COUNT; j++) {
+                node.addNode("node" + j, "nt:unstructured")
+                        .setProperty("property", j);
+            }
+            session.save();
+
+            AccessControlPolicyIterator policies =
+                acMgr.getApplicablePolicies(node.getPath());
+            AccessControlList acl = (AccessControlList) policies.nextAccessControlPolicy();
+            acl.addAccessControlEntry(EVERYONE, read);
+            acMgr.setPolicy(node.getPath(), acl);
+            session.save();
+        }
+
+        for (int i = 0; i < READER_COUNT; i++) {
+            addBackgroundJob(new Reader());
+        }
+    }
+
+    private class Reader implements Runnable {
+
+        private final Session session = loginReader();
+
+        private final Random random = new Random();
+
+        public void run() {
+            try {
+                int i = random.nextInt(NODE_COUNT);
+                int j = random.nextInt(NODE_COUNT);
+                session.getNode(root.getPath() + "/node" + i + "/node" + j)
+                        .getProperty("property").getLong();
+            } catch (RepositoryException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+    @Override
+    protected void runTest() throws Exception {
+        Reader reader = new Reader();
+        for (int i = 0; i < 1000; i++) {
+            reader.run();
+        }
+    }
+
+    @Override
+    protected void afterSuite() throws Exception {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            root.getNode("node" + i).remove();
+            session.save();
+        }
+        root.remove();
+        session.save();
+    }
+
+}
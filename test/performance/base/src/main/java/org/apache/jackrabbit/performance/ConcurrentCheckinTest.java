@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Test case that checks in a versionable node 100 times while 20
+ * concurrent writers continuously check in their own versionable nodes.
+ */
+public class ConcurrentCheckinTest extends AbstractTest {
+
+    private static final int WRITER_COUNT = getScale(20);
+
+    private Session session;
+
+    private Node root;
+
+    private Checkin checkin;
+
+    public void beforeSuite() throws Exception {
+        session = loginWriter();
+        root = session.getRootNode().addNode("testroot", "nt:unstructured");
+        session.save();
+
+        for (int i = 0; i < WRITER_COUNT; i++) {
+            addBackgroundJob(new Checkin("node" + i));
+        }
+        checkin = new Checkin("main");
+    }
+
+    private class Checkin implements Runnable {
+
+        private final Node node;
+
+        public Checkin(String name) {
+            try {
+                Session session = loginWriter();
+                node = session.getRootNode().getNode("testroot").addNode(
+                        name, "nt:unstructured");
+                node.addMixin("mix:versionable");
+                session.save();
+            } catch (RepositoryException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        public void run() {
+            try {
+                node.checkin();
+                node.checkout();
+            } catch (RepositoryException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+    public void runTest() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            checkin.run();
+        }
+    }
+
+    public void afterSuite() throws Exception {
+        root.remove();
+        session.save();
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+
+/**
+ * Performance test to check descendant queries on a deep hierarchy where
+ * most of the nodes that match the property constraint are outside of the
+ * queried sub-tree.
+ */
+public class DeepTreeDescendantSearchTest extends AbstractTest {
+
+    private static final int DEPTH = 20;
+
+    private static final int SUBTREES = 10;
+
+    private static final int NODES_PER_LEVEL = 20;
+
+    private Session session;
+
+    private Node root;
+
+    @Override
+    protected void beforeSuite() throws Exception {
+        session = getRepository().login(getCredentials());
+        root = session.getRootNode().addNode(
+                getClass().getSimpleName(), "nt:unstructured");
+        for (int i = 0; i < SUBTREES; i++) {
+            Node node = root.addNode("tree" + i, "nt:unstructured");
+            for (int level = 0; level < DEPTH; level++) {
+                for (int j = 0; j < NODES_PER_LEVEL; j++) {
+                    node.addNode("leaf" + j, "nt:unstructured")
+                            .setProperty("marker", "leaf");
+                }
+                node = node.addNode("level" + level, "nt:unstructured");
+            }
+            session.save();
+        }
+    }
+
+    @Override
+    protected void runTest() throws Exception {
+        QueryManager qm = session.getWorkspace().getQueryManager();
+        Query query = qm.createQuery("/jcr:root" + root.getPath()
+                + "/tree0//*[@marker = 'leaf']", Query.XPATH);
+        for (int i = 0; i < 10; i++) {
+            int count = 0;
+            NodeIterator nodes = query.execute().getNodes();
+            while (nodes.hasNext()) {
+                nodes.nextNode();
+                count++;
+            }
+            if (count != DEPTH * NODES_PER_LEVEL) {
+                throw new Exception("Invalid test result: " + count);
+            }
+        }
+    }
+
+    @Override
+    protected void afterSuite() throws Exception {
+        root.remove();
+        session.save();
+        session.logout();
+    }
+}
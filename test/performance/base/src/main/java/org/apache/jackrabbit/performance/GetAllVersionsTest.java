@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.version.VersionHistory;
+import javax.jcr.version.VersionIterator;
+import javax.jcr.version.VersionManager;
+
+/**
+ * Test case that iterates over all versions of a labeled version history
+ * with 1000 versions.
+ */
+public class GetAllVersionsTest extends AbstractTest {
+
+    private static final int VERSION_COUNT = getScale(1000);
+
+    private Session session;
+
+    private Node root;
+
+    private VersionHistory history;
+
+    public void beforeSuite() throws Exception {
+        failOnRepositoryVersions("1.4", "1.5", "1.6");
+
+        session = loginWriter();
+        root = session.getRootNode().addNode("testroot", "nt:unstructured");
+        Node node = root.addNode("node", "nt:unstructured");
+        node.addMixin("mix:versionable");
+        session.save();
+
+        VersionManager manager = session.getWorkspace().getVersionManager();
+        history = manager.getVersionHistory(node.getPath());
+        for (int i = 0; i < VERSION_COUNT; i++) {
+            node.setProperty("count", i);
+            session.save();
+            String name = manager.checkpoint(node.getPath()).getName();
+            history.addVersionLabel(name, "label" + i, false);
+        }
+    }
+
+    public void runTest() throws Exception {
+        VersionIterator iterator = history.getAllVersions();
+        while (iterator.hasNext()) {
+            iterator.nextVersion().getCreated();
+        }
+    }
+
+    public void afterSuite() throws Exception {
+        root.remove();
+        session.save();
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+
+/**
+ * <code>LikeAndRangeSearchTest</code> implements a performance test executing
+ * <code>LIKE</code> and range queries that match many distinct terms. The
+ * content is saved in many small batches, which results in an index with
+ * many segments.
+ */
+public class LikeAndRangeSearchTest extends AbstractTest {
+
+    private static final int NODE_COUNT = 100;
+
+    private Session session;
+
+    private Node root;
+
+    @Override
+    protected void beforeSuite() throws Exception {
+        session = getRepository().login(getCredentials());
+        root = session.getRootNode().addNode(
+                getClass().getSimpleName(), "nt:unstructured");
+        for (int i = 0; i < NODE_COUNT; i++) {
+            Node node = root.addNode("node" + i, "nt:unstructured");
+            for (int j = 0; j < NODE_COUNT; j++) {
+                Node child = node.addNode("node" + j, "nt:unstructured");
+                child.setProperty("title", "title-" + i + "-" + j);
+                child.setProperty("rank", i * NODE_COUNT + j);
+            }
+            session.save();
+        }
+    }
+
+    @Override
+    protected void runTest() throws Exception {
+        QueryManager qm = session.getWorkspace().getQueryManager();
+        Query like = qm.createQuery(
+                "SELECT * FROM [nt:unstructured] WHERE title LIKE 'title-%-5'",
+                "JCR-SQL2");
+        check(like, NODE_COUNT);
+        Query range = qm.createQuery(
+                "SELECT * FROM [nt:unstructured] WHERE rank >= 1000 AND rank < 6000",
+                "JCR-SQL2");
+        check(range, 5000);
+    }
+
+    private void check(Query query, int expected) throws Exception {
+        int count = 0;
+        NodeIterator nodes = query.execute().getNodes();
+        while (nodes.hasNext()) {
+            nodes.nextNode();
+            count++;
+        }
+        if (count != expected) {
+            throw new Exception("Invalid test result: " + count);
+        }
+    }
+
+    @Override
+    protected void afterSuite() throws Exception {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            root.getNode("node" + i).remove();
+            session.save();
+        }
+        root.remove();
+        session.save();
+        session.logout();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import org.apache.jackrabbit.api.JackrabbitSession;
+import org.apache.jackrabbit.api.security.user.Authorizable;
+import org.apache.jackrabbit.api.security.user.UserManager;
+
+import java.security.Principal;
+import java.util.Random;
+
+/**
+ * Looks up users by principal names that differ from their IDs, as done
+ * when resolving the principals of a subject upon login.
+ */
+public class PrincipalLookupTest extends AbstractTest {
+
+    private static final int USER_COUNT = getScale(1000);
+
+    private final Random rng = new Random();
+
+    private UserManager userMgr;
+
+    private Authorizable[] users;
+
+    @Override
+    protected void beforeSuite() throws Exception {
+        userMgr = ((JackrabbitSession) loginWriter()).getUserManager();
+        users = new Authorizable[USER_COUNT];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userMgr.createUser(
+                    "lookup_user_" + i, "pass", new TestPrincipal("lookup_principal_" + i), null);
+        }
+    }
+
+    @Override
+    protected void runTest() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            String name = "lookup_principal_" + rng.nextInt(users.length);
+            if (userMgr.getAuthorizable(new TestPrincipal(name)) == null) {
+                throw new Exception("Principal not found: " + name);
+            }
+        }
+    }
+
+    @Override
+    protected void afterSuite() throws Exception {
+        for (Authorizable user : users) {
+            user.remove();
+        }
+    }
+
+    private static class TestPrincipal implements Principal {
+
+        private final String name;
+
+        public TestPrincipal(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+}
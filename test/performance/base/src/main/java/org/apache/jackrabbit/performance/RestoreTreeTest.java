@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.performance;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.version.Version;
+import javax.jcr.version.VersionManager;
+
+/**
+ * Test case that restores a version of a node with 10k descendants.
+ */
+public class RestoreTreeTest extends AbstractTest {
+
+    private static final int NODE_COUNT = 100;
+
+    private Session session;
+
+    private Node root;
+
+    private VersionManager manager;
+
+    private Version version;
+
+    public void beforeSuite() throws Exception {
+        failOnRepositoryVersions("1.4", "1.5", "1.6");
+
+        session = loginWriter();
+        root = session.getRootNode().addNode("testroot", "nt:unstructured");
+        root.addMixin("mix:versionable");
+        for (int i = 0; i < NODE_COUNT; i++) {
+            Node node = root.addNode("node" + i, "nt:unstructured");
+            for (int j = 0; j < NODE_COUNT; j++) {
+                node.addNode("node" + j, "nt:unstructured");
+            }
+        }
+        session.save();
+
+        manager = session.getWorkspace().getVersionManager();
+        version = manager.checkin(root.getPath());
+    }
+
+    public void runTest() throws Exception {
+        manager.restore(version, true);
+    }
+
+    public void afterSuite() throws Exception {
+        manager.checkout(root.getPath());
+        root.remove();
+        session.save();
+    }
+
+}